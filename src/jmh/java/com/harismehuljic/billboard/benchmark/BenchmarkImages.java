@@ -0,0 +1,115 @@
+package com.harismehuljic.billboard.benchmark;
+
+import java.awt.image.BufferedImage;
+import java.util.Random;
+
+/**
+ * The fixed corpus of images the benchmarks run on. Every image is generated from a fixed seed, so results can be
+ * compared between runs and machines without shipping image files.
+ */
+public abstract class BenchmarkImages {
+    /**
+     * The width and height of every source image, which is resized to the size of each benchmark.
+     */
+    public static final int SOURCE_SIZE = 512;
+
+    private static final long SEED = 0x42424356L;
+
+    /**
+     * Returns the source image of a corpus entry.
+     * @param name The name of the entry, which is "flat", "photo" or "noise".
+     * @return A new image of {@link BenchmarkImages#SOURCE_SIZE} by {@link BenchmarkImages#SOURCE_SIZE} pixels.
+     * @throws IllegalArgumentException If no entry has the given name.
+     */
+    public static BufferedImage get(String name) throws IllegalArgumentException {
+        return switch (name) {
+            case "flat" -> createFlat();
+            case "photo" -> createPhoto();
+            case "noise" -> createNoise();
+            default -> throw new IllegalArgumentException("Unknown benchmark image: " + name);
+        };
+    }
+
+    /**
+     * Creates an image made of a few flat colored shapes, like a logo or pixel art, where run-length and rectangle
+     * encoding work best.
+     * @return The image.
+     */
+    private static BufferedImage createFlat() {
+        BufferedImage image = new BufferedImage(SOURCE_SIZE, SOURCE_SIZE, BufferedImage.TYPE_INT_RGB);
+        int[] palette = {0xFFFFFF, 0x1D3557, 0xE63946, 0xF1FAEE, 0x457B9D};
+
+        for (int y = 0; y < SOURCE_SIZE; y++) {
+            for (int x = 0; x < SOURCE_SIZE; x++) {
+                int dx = x - SOURCE_SIZE / 2;
+                int dy = y - SOURCE_SIZE / 2;
+                int color;
+
+                if (dx * dx + dy * dy < SOURCE_SIZE * SOURCE_SIZE / 16) {
+                    color = palette[2];
+                }
+                else if (y < SOURCE_SIZE / 8 || y >= SOURCE_SIZE * 7 / 8) {
+                    color = palette[1];
+                }
+                else {
+                    color = palette[(x / (SOURCE_SIZE / 8) + y / (SOURCE_SIZE / 4)) % 2 == 0 ? 0 : 4];
+                }
+
+                image.setRGB(x, y, color);
+            }
+        }
+
+        return image;
+    }
+
+    /**
+     * Creates an image of smooth gradients with a little grain, which behaves like a photograph: neighboring pixels
+     * are similar, but rarely equal.
+     * @return The image.
+     */
+    private static BufferedImage createPhoto() {
+        BufferedImage image = new BufferedImage(SOURCE_SIZE, SOURCE_SIZE, BufferedImage.TYPE_INT_RGB);
+        Random random = new Random(SEED);
+
+        for (int y = 0; y < SOURCE_SIZE; y++) {
+            for (int x = 0; x < SOURCE_SIZE; x++) {
+                double u = (double) x / SOURCE_SIZE;
+                double v = (double) y / SOURCE_SIZE;
+
+                int red = channel(160 + 80 * Math.sin(u * 5 + v * 2) + random.nextGaussian() * 3);
+                int green = channel(120 + 90 * Math.cos(v * 4 - u) + random.nextGaussian() * 3);
+                int blue = channel(100 + 70 * Math.sin((u - v) * 6) + random.nextGaussian() * 3);
+
+                image.setRGB(x, y, red << 16 | green << 8 | blue);
+            }
+        }
+
+        return image;
+    }
+
+    /**
+     * Creates an image of uniform random colors, which is the worst case for every encoding.
+     * @return The image.
+     */
+    private static BufferedImage createNoise() {
+        BufferedImage image = new BufferedImage(SOURCE_SIZE, SOURCE_SIZE, BufferedImage.TYPE_INT_RGB);
+        Random random = new Random(SEED);
+
+        for (int y = 0; y < SOURCE_SIZE; y++) {
+            for (int x = 0; x < SOURCE_SIZE; x++) {
+                image.setRGB(x, y, random.nextInt(0x1000000));
+            }
+        }
+
+        return image;
+    }
+
+    /**
+     * Clamps a color channel to the range of a byte.
+     * @param value The value of the channel.
+     * @return The clamped channel.
+     */
+    private static int channel(double value) {
+        return (int) Math.max(0, Math.min(255, Math.round(value)));
+    }
+}
@@ -0,0 +1,75 @@
+package com.harismehuljic.billboard.benchmark;
+
+import com.harismehuljic.billboard.preprocessing.PerceptualRunLengthEncodedImage;
+import com.harismehuljic.billboard.preprocessing.data.ImageTypes;
+import com.harismehuljic.billboard.preprocessing.data.ResamplingMode;
+import com.harismehuljic.billboard.preprocessing.util.EncodingCostModel;
+import com.harismehuljic.billboard.preprocessing.util.ImageProcessor;
+import com.harismehuljic.billboard.rendering.CanvasLayout;
+import com.harismehuljic.billboard.rendering.CanvasSnapshot;
+import com.harismehuljic.billboard.util.CanvasFormat;
+import net.minecraft.util.math.Vec3d;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks saving and loading canvases in the {@link CanvasFormat}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class CanvasFormatBenchmark {
+    @Param({"flat", "photo", "noise"})
+    public String image;
+
+    @Param({"128", "256"})
+    public int size;
+
+    @Param({"rle", "glyph"})
+    public String type;
+
+    private CanvasSnapshot snapshot;
+    private byte[] saved;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        CanvasLayout layout = new CanvasLayout(ImageProcessor.process(BenchmarkImages.get(this.image), this.size, this.size,
+                ImageTypes.fromType(this.type), ResamplingMode.AREA_AVERAGE, PerceptualRunLengthEncodedImage.DEFAULT_TOLERANCE,
+                EncodingCostModel.DEFAULT_QUALITY_TARGET));
+
+        int[] pixelSerials = new int[layout.getRegions().size()];
+        for (int i = 0; i < pixelSerials.length; i++) {
+            pixelSerials[i] = i + 1;
+        }
+
+        this.snapshot = new CanvasSnapshot(new UUID(1, 2), this.size, this.size, 1.0F, new Vec3d(0, 64, 0), "minecraft:overworld",
+                layout, List.of(), 0, 0, pixelSerials, pixelSerials.length + 1, 0, false, 0, null);
+        this.saved = this.write();
+    }
+
+    @Benchmark
+    public byte[] write() throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        CanvasFormat.write(this.snapshot, output);
+        return output.toByteArray();
+    }
+
+    @Benchmark
+    public CanvasSnapshot read() throws IOException {
+        return CanvasFormat.read(new ByteArrayInputStream(this.saved));
+    }
+}
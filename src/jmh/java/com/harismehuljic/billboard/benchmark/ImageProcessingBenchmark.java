@@ -0,0 +1,72 @@
+package com.harismehuljic.billboard.benchmark;
+
+import com.harismehuljic.billboard.preprocessing.Image;
+import com.harismehuljic.billboard.preprocessing.PerceptualRunLengthEncodedImage;
+import com.harismehuljic.billboard.preprocessing.data.ImageTypes;
+import com.harismehuljic.billboard.preprocessing.data.ResamplingMode;
+import com.harismehuljic.billboard.preprocessing.util.EncodingCostModel;
+import com.harismehuljic.billboard.preprocessing.util.ImageProcessor;
+import com.harismehuljic.billboard.preprocessing.util.Resampler;
+import com.harismehuljic.billboard.rendering.CanvasLayout;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks resizing an image and processing it with each of the {@link ImageTypes}, which is everything that happens
+ * between downloading an image and laying out its canvas.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ImageProcessingBenchmark {
+    @Param({"flat", "photo", "noise"})
+    public String image;
+
+    @Param({"32", "128", "256"})
+    public int size;
+
+    @Param({"raw", "rle", "rect", "lossy", "glyph", "half", "auto"})
+    public String type;
+
+    private BufferedImage source;
+    private ImageTypes imageType;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        this.source = BenchmarkImages.get(this.image);
+        this.imageType = ImageTypes.fromType(this.type);
+    }
+
+    /**
+     * Counts the entities each processed image would be rendered with, which is reported next to the throughput.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Output {
+        public long entities;
+    }
+
+    @Benchmark
+    public Image process(Output output) {
+        Image processed = ImageProcessor.process(this.source, this.size, this.size, this.imageType,
+                ResamplingMode.AREA_AVERAGE, PerceptualRunLengthEncodedImage.DEFAULT_TOLERANCE, EncodingCostModel.DEFAULT_QUALITY_TARGET);
+        output.entities = new CanvasLayout(processed).getRegions().size();
+        return processed;
+    }
+
+    @Benchmark
+    public int[] resample() {
+        return Resampler.resample(this.source, this.size, this.size, ResamplingMode.AREA_AVERAGE);
+    }
+}
@@ -0,0 +1,81 @@
+package com.harismehuljic.billboard.benchmark;
+
+import com.harismehuljic.billboard.preprocessing.Image;
+import com.harismehuljic.billboard.preprocessing.PerceptualRunLengthEncodedImage;
+import com.harismehuljic.billboard.preprocessing.data.EncodingEstimate;
+import com.harismehuljic.billboard.preprocessing.data.ImageTypes;
+import com.harismehuljic.billboard.preprocessing.data.ResamplingMode;
+import com.harismehuljic.billboard.preprocessing.util.EncodingCostModel;
+import com.harismehuljic.billboard.preprocessing.util.ImageProcessor;
+import com.harismehuljic.billboard.preprocessing.util.Resampler;
+import com.harismehuljic.billboard.rendering.CanvasDelta;
+import com.harismehuljic.billboard.rendering.CanvasLayout;
+import com.harismehuljic.billboard.rendering.CanvasScheduler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.awt.image.BufferedImage;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks splitting processed images into the regions of a canvas, computing the delta between two layouts, and
+ * estimating the cost of every encoding.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class LayoutBenchmark {
+    @Param({"flat", "photo", "noise"})
+    public String image;
+
+    @Param({"32", "128", "256"})
+    public int size;
+
+    @Param({"raw", "rle", "rect", "glyph", "half"})
+    public String type;
+
+    private Image processed;
+    private CanvasLayout layout;
+    private CanvasLayout nextLayout;
+    private int[] pixels;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        BufferedImage source = BenchmarkImages.get(this.image);
+        ImageTypes imageType = ImageTypes.fromType(this.type);
+
+        this.processed = process(source, imageType);
+        this.layout = new CanvasLayout(this.processed);
+        this.nextLayout = new CanvasLayout(process(BenchmarkImages.get(this.image.equals("noise") ? "photo" : "noise"), imageType));
+        this.pixels = Resampler.resample(source, this.size, this.size, ResamplingMode.AREA_AVERAGE);
+    }
+
+    private Image process(BufferedImage source, ImageTypes imageType) {
+        return ImageProcessor.process(source, this.size, this.size, imageType, ResamplingMode.AREA_AVERAGE,
+                PerceptualRunLengthEncodedImage.DEFAULT_TOLERANCE, EncodingCostModel.DEFAULT_QUALITY_TARGET);
+    }
+
+    @Benchmark
+    public CanvasLayout layout() {
+        return new CanvasLayout(this.processed);
+    }
+
+    @Benchmark
+    public CanvasDelta delta() {
+        return new CanvasDelta(this.layout, this.nextLayout);
+    }
+
+    @Benchmark
+    public List<EncodingEstimate> estimate() {
+        return EncodingCostModel.estimate(this.pixels, this.size, this.size, PerceptualRunLengthEncodedImage.DEFAULT_TOLERANCE,
+                CanvasScheduler.DEFAULT_ENTITY_BUDGET);
+    }
+}
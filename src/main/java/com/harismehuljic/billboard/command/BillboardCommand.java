@@ -1,11 +1,27 @@
 package com.harismehuljic.billboard.command;
 
 import com.harismehuljic.billboard.impl.CanvasServer;
+import com.harismehuljic.billboard.preprocessing.PerceptualRunLengthEncodedImage;
+import com.harismehuljic.billboard.preprocessing.data.AnimatedImage;
+import com.harismehuljic.billboard.preprocessing.data.EncodingEstimate;
 import com.harismehuljic.billboard.preprocessing.data.ImageTypes;
+import com.harismehuljic.billboard.preprocessing.data.ResamplingMode;
+import com.harismehuljic.billboard.preprocessing.data.SourceImage;
+import com.harismehuljic.billboard.preprocessing.util.EncodingCostModel;
 import com.harismehuljic.billboard.preprocessing.util.ImageRequester;
+import com.harismehuljic.billboard.preprocessing.util.Resampler;
 import com.harismehuljic.billboard.rendering.Canvas;
+import com.harismehuljic.billboard.rendering.CanvasAnimation;
 import com.harismehuljic.billboard.rendering.CanvasBuilder;
+import com.harismehuljic.billboard.rendering.CanvasDelta;
+import com.harismehuljic.billboard.rendering.CanvasLayout;
+import com.harismehuljic.billboard.rendering.CanvasManager;
 import com.harismehuljic.billboard.rendering.CanvasPixel;
+import com.harismehuljic.billboard.rendering.CanvasScheduler;
+import com.harismehuljic.billboard.rendering.CanvasTask;
+import com.harismehuljic.billboard.rendering.CanvasViewers;
+import com.harismehuljic.billboard.util.PipelineStats;
+import com.harismehuljic.billboard.util.WorkerPool;
 import com.mojang.brigadier.CommandDispatcher;
 import com.mojang.brigadier.arguments.FloatArgumentType;
 import com.mojang.brigadier.arguments.IntegerArgumentType;
@@ -21,11 +37,20 @@ import net.minecraft.server.command.ServerCommandSource;
 import net.minecraft.server.network.ServerPlayerEntity;
 import net.minecraft.text.Text;
 import net.minecraft.util.Formatting;
+import net.minecraft.util.math.Vec3d;
 import net.minecraft.world.World;
 
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
 import java.util.Objects;
-import java.util.concurrent.CompletableFuture;
+import java.util.UUID;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
 
 import static net.minecraft.server.command.CommandManager.literal;
 
@@ -64,7 +89,7 @@ public class BillboardCommand {
                                 .then(CommandManager.argument("height", IntegerArgumentType.integer(0))
                                         .then(CommandManager.argument("scale", FloatArgumentType.floatArg(0.0000001F))
                                                 .then(CommandManager.argument("imageType", StringArgumentType.string())
-                                                        .suggests((context, builder) -> CommandSource.suggestMatching(new String[]{"rle", "raw"}, builder))
+                                                        .suggests((context, builder) -> CommandSource.suggestMatching(ImageTypes.getTypes(), builder))
                                                         .then(CommandManager.argument("url", StringArgumentType.greedyString())
                                                                 .executes(BillboardCommand::renderImage)
                                                         )
@@ -74,11 +99,73 @@ public class BillboardCommand {
                         )
                 )
 
+                .then(literal("virtualImage")
+                        .then(CommandManager.argument("width", IntegerArgumentType.integer(0))
+                                .then(CommandManager.argument("height", IntegerArgumentType.integer(0))
+                                        .then(CommandManager.argument("scale", FloatArgumentType.floatArg(0.0000001F))
+                                                .then(CommandManager.argument("imageType", StringArgumentType.string())
+                                                        .suggests((context, builder) -> CommandSource.suggestMatching(ImageTypes.getTypes(), builder))
+                                                        .then(CommandManager.argument("url", StringArgumentType.greedyString())
+                                                                .executes(BillboardCommand::renderVirtualImage)
+                                                        )
+                                                )
+                                        )
+                                )
+                        )
+                )
+
+                .then(literal("detailedImage")
+                        .then(CommandManager.argument("width", IntegerArgumentType.integer(0))
+                                .then(CommandManager.argument("height", IntegerArgumentType.integer(0))
+                                        .then(CommandManager.argument("scale", FloatArgumentType.floatArg(0.0000001F))
+                                                .then(CommandManager.argument("imageType", StringArgumentType.string())
+                                                        .suggests((context, builder) -> CommandSource.suggestMatching(ImageTypes.getTypes(), builder))
+                                                        .then(CommandManager.argument("levels", IntegerArgumentType.integer(1, Canvas.MAX_DETAIL_LEVELS))
+                                                                .then(CommandManager.argument("distance", FloatArgumentType.floatArg(1))
+                                                                        .then(CommandManager.argument("url", StringArgumentType.greedyString())
+                                                                                .executes(BillboardCommand::renderDetailedImage)
+                                                                        )
+                                                                )
+                                                        )
+                                                )
+                                        )
+                                )
+                        )
+                )
+
+                .then(literal("lossyImage")
+                        .then(CommandManager.argument("width", IntegerArgumentType.integer(0))
+                                .then(CommandManager.argument("height", IntegerArgumentType.integer(0))
+                                        .then(CommandManager.argument("scale", FloatArgumentType.floatArg(0.0000001F))
+                                                .then(CommandManager.argument("tolerance", FloatArgumentType.floatArg(0))
+                                                        .then(CommandManager.argument("url", StringArgumentType.greedyString())
+                                                                .executes(BillboardCommand::renderLossyImage)
+                                                        )
+                                                )
+                                        )
+                                )
+                        )
+                )
+
+                .then(literal("autoImage")
+                        .then(CommandManager.argument("width", IntegerArgumentType.integer(0))
+                                .then(CommandManager.argument("height", IntegerArgumentType.integer(0))
+                                        .then(CommandManager.argument("scale", FloatArgumentType.floatArg(0.0000001F))
+                                                .then(CommandManager.argument("qualityTarget", FloatArgumentType.floatArg(0))
+                                                        .then(CommandManager.argument("url", StringArgumentType.greedyString())
+                                                                .executes(BillboardCommand::renderAutoImage)
+                                                        )
+                                                )
+                                        )
+                                )
+                        )
+                )
+
                 .then(literal("resizedImage")
                         .then(CommandManager.argument("resizeFactor", FloatArgumentType.floatArg(0.001F))
                             .then(CommandManager.argument("scale", FloatArgumentType.floatArg(0.0000001F))
                                     .then(CommandManager.argument("imageType", StringArgumentType.string())
-                                            .suggests((context, builder) -> CommandSource.suggestMatching(new String[]{"rle", "raw"}, builder))
+                                            .suggests((context, builder) -> CommandSource.suggestMatching(ImageTypes.getTypes(), builder))
                                             .then(CommandManager.argument("url", StringArgumentType.greedyString())
                                                     .executes(BillboardCommand::renderResizedImage)
                                             )
@@ -87,6 +174,95 @@ public class BillboardCommand {
                         )
                 )
 
+                .then(literal("animation")
+                        .then(CommandManager.argument("width", IntegerArgumentType.integer(0))
+                                .then(CommandManager.argument("height", IntegerArgumentType.integer(0))
+                                        .then(CommandManager.argument("scale", FloatArgumentType.floatArg(0.0000001F))
+                                                .then(CommandManager.argument("imageType", StringArgumentType.string())
+                                                        .suggests((context, builder) -> CommandSource.suggestMatching(ImageTypes.getTypes(), builder))
+                                                        .then(CommandManager.argument("updatesPerTick", IntegerArgumentType.integer(1))
+                                                                .then(CommandManager.argument("url", StringArgumentType.greedyString())
+                                                                        .executes(BillboardCommand::renderAnimation)
+                                                                )
+                                                        )
+                                                )
+                                        )
+                                )
+                        )
+                )
+
+                .then(literal("estimate")
+                        .then(CommandManager.argument("width", IntegerArgumentType.integer(1))
+                                .then(CommandManager.argument("height", IntegerArgumentType.integer(1))
+                                        .then(CommandManager.argument("qualityTarget", FloatArgumentType.floatArg(0))
+                                                .then(CommandManager.argument("url", StringArgumentType.greedyString())
+                                                        .executes(BillboardCommand::estimateImage)
+                                                )
+                                        )
+                                )
+                        )
+                )
+
+                .then(literal("stop")
+                        .then(CommandManager.argument("uuid", StringArgumentType.greedyString())
+                                .suggests(CANVAS_UUID_PROVIDER)
+                                .executes(BillboardCommand::stopAnimation)
+                        )
+                )
+
+                .then(literal("update")
+                        .then(CommandManager.argument("uuid", StringArgumentType.string())
+                                .suggests(CANVAS_UUID_PROVIDER)
+                                .then(CommandManager.argument("imageType", StringArgumentType.string())
+                                        .suggests((context, builder) -> CommandSource.suggestMatching(ImageTypes.getTypes(), builder))
+                                        .then(CommandManager.argument("url", StringArgumentType.greedyString())
+                                                .executes(BillboardCommand::updateCanvas)
+                                        )
+                                )
+                        )
+                )
+
+                .then(literal("proximity")
+                        .then(CommandManager.argument("uuid", StringArgumentType.string())
+                                .suggests(CANVAS_UUID_PROVIDER)
+                                .then(CommandManager.argument("radius", FloatArgumentType.floatArg(0))
+                                        .executes(BillboardCommand::setProximity)
+                                )
+                        )
+                )
+
+                .then(literal("budget")
+                        .then(CommandManager.argument("entities", IntegerArgumentType.integer(1))
+                                .then(CommandManager.argument("milliseconds", IntegerArgumentType.integer(1, 50))
+                                        .executes(BillboardCommand::setBudget)
+                                )
+                        )
+                )
+
+                .then(literal("bundle")
+                        .then(CommandManager.argument("packets", IntegerArgumentType.integer(1, CanvasViewers.MAX_BUNDLE_SIZE))
+                                .executes(BillboardCommand::setBundleLimit)
+                        )
+                )
+
+                .then(literal("tasks")
+                        .executes(BillboardCommand::listTasks)
+                )
+
+                .then(literal("stats")
+                        .executes(BillboardCommand::showStats)
+                        .then(literal("reset")
+                                .executes(BillboardCommand::resetStats)
+                        )
+                )
+
+                .then(literal("list")
+                        .executes(context -> listCanvases(context, false))
+                        .then(literal("mine")
+                                .executes(context -> listCanvases(context, true))
+                        )
+                )
+
                 .then(literal("remove")
                         .then(CommandManager.argument("uuid", StringArgumentType.greedyString())
                                 .suggests(CANVAS_UUID_PROVIDER)
@@ -119,21 +295,56 @@ public class BillboardCommand {
         final float scale = FloatArgumentType.getFloat(context, "scale");
 
         assert player != null;
-        Canvas canvas = new CanvasBuilder()
-                .setWidth(width)
-                .setHeight(height)
-                .setPixelScale(scale)
-                .setPos(player.getPos())
-                .setWorld(world)
-                .setImage()
-                .build();
+        Canvas canvas;
+        try {
+            canvas = new CanvasBuilder()
+                    .setWidth(width)
+                    .setHeight(height)
+                    .setPixelScale(scale)
+                    .setPos(player.getPos())
+                    .setWorld(world)
+                    .setOwner(player.getUuid())
+                    .setImage()
+                    .build();
+        }
+        catch (IllegalStateException e) {
+            context.getSource().sendError(Text.literal(e.getMessage()));
+            return 0;
+        }
 
-        canvas.render();
+        reportTask(context.getSource(), canvas.render());
 
         return 0;
     }
 
     private static int renderImage(CommandContext<ServerCommandSource> context) {
+        final String imageType = StringArgumentType.getString(context, "imageType");
+        return renderImage(context, imageType, builder -> builder);
+    }
+
+    private static int renderLossyImage(CommandContext<ServerCommandSource> context) {
+        final float tolerance = FloatArgumentType.getFloat(context, "tolerance");
+        return renderImage(context, ImageTypes.LOSSY.getType(), builder -> builder.setColorTolerance(tolerance));
+    }
+
+    private static int renderAutoImage(CommandContext<ServerCommandSource> context) {
+        final float qualityTarget = FloatArgumentType.getFloat(context, "qualityTarget");
+        return renderImage(context, ImageTypes.AUTO.getType(), builder -> builder.setQualityTarget(qualityTarget));
+    }
+
+    private static int renderVirtualImage(CommandContext<ServerCommandSource> context) {
+        final String imageType = StringArgumentType.getString(context, "imageType");
+        return renderImage(context, imageType, builder -> builder.setVirtual(true));
+    }
+
+    private static int renderDetailedImage(CommandContext<ServerCommandSource> context) {
+        final String imageType = StringArgumentType.getString(context, "imageType");
+        final int levels = IntegerArgumentType.getInteger(context, "levels");
+        final float distance = FloatArgumentType.getFloat(context, "distance");
+        return renderImage(context, imageType, builder -> builder.setDetailLevels(levels, distance));
+    }
+
+    private static int renderImage(CommandContext<ServerCommandSource> context, String imageType, UnaryOperator<CanvasBuilder> options) {
         ServerCommandSource source = context.getSource();
         ServerPlayerEntity player = context.getSource().getPlayer();
         World world = Objects.requireNonNull(context.getSource().getWorld());
@@ -142,41 +353,28 @@ public class BillboardCommand {
         final int height = IntegerArgumentType.getInteger(context, "height");
         final float scale = FloatArgumentType.getFloat(context, "scale");
         final String url = StringArgumentType.getString(context, "url");
-        final String imageType = StringArgumentType.getString(context, "imageType");
 
         assert player != null;
 
-        ImageRequester.getImage(url).orTimeout(60, TimeUnit.SECONDS).handleAsync((image, ex) -> {
-            CompletableFuture.supplyAsync(() -> {
-                if (ex != null) {
-                    source.sendError(Text.literal("Failed to load image: " + ex.getMessage()));
-                    return null;
-                }
-                ImageTypes type;
-                switch (imageType.toLowerCase()) {
-                    case "rle":
-                        type = ImageTypes.RLE;
-                        break;
-                    case "raw":
-                        type = ImageTypes.RAW;
-                        break;
-                    default:
-                        source.sendError(Text.literal("Unsupported image type: " + imageType));
-                        return null;
-                }
-                Canvas canvas = new CanvasBuilder()
-                        .setWidth(width)
-                        .setHeight(height)
-                        .setPixelScale(scale)
-                        .setPos(player.getPos())
-                        .setWorld(world)
-                        .setImage(image, type)
-                        .build();
-                canvas.render();
-                return null;
-            }, source.getServer());
+        ImageTypes type;
+        try {
+            type = ImageTypes.fromType(imageType);
+        }
+        catch (IllegalArgumentException e) {
+            source.sendError(Text.literal(e.getMessage()));
             return 0;
-        }, source.getServer());
+        }
+
+        final Vec3d pos = player.getPos();
+        final UUID owner = player.getUuid();
+        buildImageCanvas(source, url, width, height, image -> options.apply(new CanvasBuilder()
+                .setWidth(width)
+                .setHeight(height)
+                .setPixelScale(scale)
+                .setPos(pos)
+                .setWorld(world)
+                .setOwner(owner))
+                .setImage(image, type));
         return 1;
     }
 
@@ -192,40 +390,424 @@ public class BillboardCommand {
 
         assert player != null;
 
-        ImageRequester.getImage(url).orTimeout(60, TimeUnit.SECONDS).handleAsync((image, ex) -> {
-            CompletableFuture.supplyAsync(() -> {
-                if (ex != null) {
-                    source.sendError(Text.literal("Failed to load image: " + ex.getMessage()));
-                    return null;
-                }
-                ImageTypes type;
-                switch (imageType.toLowerCase()) {
-                    case "rle":
-                        type = ImageTypes.RLE;
-                        break;
-                    case "raw":
-                        type = ImageTypes.RAW;
-                        break;
-                    default:
-                        source.sendError(Text.literal("Unsupported image type: " + imageType));
-                        return null;
-                }
-                Canvas canvas = new CanvasBuilder()
-                        .setPixelScale(scale)
-                        .setWidth(image.getWidth())
-                        .setHeight(image.getHeight())
-                        .setPos(player.getPos())
-                        .setWorld(world)
-                        .setImage(image, type, resizeFactor)
-                        .build();
-                canvas.render();
-                return null;
-            }, source.getServer());
+        ImageTypes type;
+        try {
+            type = ImageTypes.fromType(imageType);
+        }
+        catch (IllegalArgumentException e) {
+            source.sendError(Text.literal(e.getMessage()));
             return 0;
-        }, source.getServer());
+        }
+
+        final Vec3d pos = player.getPos();
+        final UUID owner = player.getUuid();
+        buildImageCanvas(source, url, 0, 0, image -> new CanvasBuilder()
+                .setPixelScale(scale)
+                .setWidth(image.getSourceWidth())
+                .setHeight(image.getSourceHeight())
+                .setPos(pos)
+                .setWorld(world)
+                .setOwner(owner)
+                .setImage(image, type, resizeFactor));
         return 1;
     }
 
+    /**
+     * Downloads an image and builds a canvas from it in stages. Downloading, decoding, resizing, encoding and laying out
+     * the image all happen on the {@link WorkerPool}, only building and rendering the canvas is handed to the server thread.
+     *
+     * @param source The source of the command, which receives feedback and errors.
+     * @param url The URL of the image.
+     * @param width The width of the canvas, or 0 if it depends on the image.
+     * @param height The height of the canvas, or 0 if it depends on the image.
+     * @param prepare Configures a {@link CanvasBuilder} with the downloaded image. This is called off the server thread.
+     */
+    private static void buildImageCanvas(ServerCommandSource source, String url, int width, int height, Function<SourceImage, CanvasBuilder> prepare) {
+        MinecraftServer server = source.getServer();
+
+        ImageRequester.getSourceImage(url, width, height).orTimeout(60, TimeUnit.SECONDS)
+                .thenApplyAsync(image -> {
+                    if (image == null) {
+                        throw new IllegalArgumentException("The file at " + url + " is not a supported image.");
+                    }
+                    return prepare.apply(image);
+                }, WorkerPool.getExecutor())
+                .thenApplyAsync(CanvasBuilder::build, server)
+                .whenCompleteAsync((canvas, ex) -> {
+                    if (ex != null) {
+                        Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+                        source.sendError(Text.literal("Failed to load image: " + cause.getMessage()));
+                        return;
+                    }
+                    reportTask(source, canvas.render());
+                }, server);
+    }
+
+    private static int estimateImage(CommandContext<ServerCommandSource> context) {
+        ServerCommandSource source = context.getSource();
+        MinecraftServer server = source.getServer();
+
+        final int width = IntegerArgumentType.getInteger(context, "width");
+        final int height = IntegerArgumentType.getInteger(context, "height");
+        final String url = StringArgumentType.getString(context, "url");
+        final float tolerance = PerceptualRunLengthEncodedImage.DEFAULT_TOLERANCE;
+        final float qualityTarget = FloatArgumentType.getFloat(context, "qualityTarget");
+        final int entityBudget = ((CanvasServer) server).billboard$getCanvasScheduler().getEntityBudget();
+
+        ImageRequester.getSourceImage(url, width, height).orTimeout(60, TimeUnit.SECONDS)
+                .thenApplyAsync(image -> {
+                    if (image == null) {
+                        throw new IllegalArgumentException("The file at " + url + " is not a supported image.");
+                    }
+                    int[] pixels = Resampler.resample(image.getImage(), width, height, ResamplingMode.AREA_AVERAGE);
+                    return EncodingCostModel.estimate(pixels, width, height, tolerance, entityBudget);
+                }, WorkerPool.getExecutor())
+                .whenCompleteAsync((estimates, ex) -> {
+                    if (ex != null) {
+                        Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+                        source.sendError(Text.literal("Failed to load image: " + cause.getMessage()));
+                        return;
+                    }
+
+                    EncodingEstimate selected = EncodingCostModel.select(estimates, qualityTarget);
+                    for (EncodingEstimate estimate : estimates) {
+                        Formatting formatting = estimate == selected ? Formatting.GREEN : Formatting.GRAY;
+                        source.sendFeedback(() -> Text.literal(String.format("%s: %d entities, %.1f KiB, %d ticks, mean error %.2f",
+                                estimate.getType(), estimate.getEntityCount(), estimate.getPacketBytes() / 1024.0,
+                                estimate.getBuildTicks(), estimate.getMeanError())).formatted(formatting), false);
+                    }
+                    source.sendFeedback(() -> Text.literal("The auto type would use " + selected.getType() + ".")
+                            .formatted(Formatting.GREEN), false);
+                }, server);
+        return 1;
+    }
+
+    private static int renderAnimation(CommandContext<ServerCommandSource> context) {
+        ServerCommandSource source = context.getSource();
+        MinecraftServer server = source.getServer();
+        ServerPlayerEntity player = context.getSource().getPlayer();
+        World world = Objects.requireNonNull(context.getSource().getWorld());
+
+        final int width = IntegerArgumentType.getInteger(context, "width");
+        final int height = IntegerArgumentType.getInteger(context, "height");
+        final float scale = FloatArgumentType.getFloat(context, "scale");
+        final int updatesPerTick = IntegerArgumentType.getInteger(context, "updatesPerTick");
+        final String imageType = StringArgumentType.getString(context, "imageType");
+        final String url = StringArgumentType.getString(context, "url");
+
+        assert player != null;
+
+        ImageTypes type;
+        try {
+            type = ImageTypes.fromType(imageType);
+        }
+        catch (IllegalArgumentException e) {
+            source.sendError(Text.literal(e.getMessage()));
+            return 0;
+        }
+
+        final Vec3d pos = player.getPos();
+        final UUID owner = player.getUuid();
+        ImageRequester.getAnimation(url, width, height).orTimeout(60, TimeUnit.SECONDS)
+                .thenApplyAsync(animation -> prepareAnimation(animation, type, width, height), WorkerPool.getExecutor())
+                .whenCompleteAsync((prepared, ex) -> {
+                    if (ex != null) {
+                        Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+                        source.sendError(Text.literal("Failed to load animation: " + cause.getMessage()));
+                        return;
+                    }
+
+                    Canvas canvas;
+                    try {
+                        canvas = prepared.firstFrame()
+                                .setPixelScale(scale)
+                                .setPos(pos)
+                                .setWorld(world)
+                                .setOwner(owner)
+                                .build();
+                    }
+                    catch (IllegalStateException e) {
+                        source.sendError(Text.literal("Failed to load animation: " + e.getMessage()));
+                        return;
+                    }
+                    CanvasAnimation animation = new CanvasAnimation(canvas, prepared.deltas(), prepared.delays(), updatesPerTick);
+
+                    CanvasTask<Integer> renderTask = canvas.render();
+                    reportTask(source, renderTask);
+                    renderTask.getFuture().thenAccept(task -> {
+                        if (!task.isCancelled() && animation.getFrameCount() > 1) {
+                            canvas.play(animation);
+                            source.sendFeedback(() -> Text.literal(String.format("Playing %d frames on canvas %s.",
+                                    animation.getFrameCount(), canvas.getUUID())).formatted(Formatting.GREEN), false);
+                        }
+                    });
+                }, server);
+        return 1;
+    }
+
+    /**
+     * Lays out every frame of an animation and computes the deltas between them. This is called off the server thread.
+     *
+     * @param animation The decoded animation.
+     * @param type The encoding used for each frame.
+     * @param width The width of the canvas.
+     * @param height The height of the canvas.
+     * @return The builder of the first frame, together with the deltas and delays of all frames.
+     */
+    private static PreparedAnimation prepareAnimation(AnimatedImage animation, ImageTypes type, int width, int height) {
+        List<CanvasLayout> layouts = new ArrayList<>(animation.getFrameCount());
+        int[] delays = new int[animation.getFrameCount()];
+        CanvasBuilder firstFrame = null;
+
+        for (int i = 0; i < animation.getFrameCount(); i++) {
+            CanvasBuilder builder = new CanvasBuilder()
+                    .setWidth(width)
+                    .setHeight(height)
+                    .setImage(animation.getFrames().get(i), type);
+
+            if (firstFrame == null) {
+                firstFrame = builder;
+            }
+
+            layouts.add(builder.getLayout());
+            delays[i] = animation.getDelay(i);
+        }
+
+        return new PreparedAnimation(firstFrame, CanvasAnimation.computeDeltas(layouts), delays);
+    }
+
+    private record PreparedAnimation(CanvasBuilder firstFrame, List<CanvasDelta> deltas, int[] delays) {}
+
+    private static int stopAnimation(CommandContext<ServerCommandSource> context) {
+        ServerCommandSource source = context.getSource();
+        CanvasServer canvasServer = (CanvasServer) source.getServer();
+
+        final String uuidString = StringArgumentType.getString(context, "uuid");
+
+        Canvas canvas = canvasServer.billboard$getCanvasManager().getCanvas(uuidString);
+        if (canvas == null || canvas.getAnimation() == null) {
+            source.sendError(Text.literal("No animated canvas found with UUID: " + uuidString).formatted(Formatting.RED));
+            return 0;
+        }
+
+        canvas.stopAnimation();
+        source.sendFeedback(() -> Text.literal("Stopped the animation of canvas " + uuidString + ".").formatted(Formatting.GREEN), false);
+        return 1;
+    }
+
+    private static int updateCanvas(CommandContext<ServerCommandSource> context) {
+        ServerCommandSource source = context.getSource();
+        MinecraftServer server = source.getServer();
+        CanvasServer canvasServer = (CanvasServer) server;
+
+        final String uuidString = StringArgumentType.getString(context, "uuid");
+        final String imageType = StringArgumentType.getString(context, "imageType");
+        final String url = StringArgumentType.getString(context, "url");
+
+        Canvas canvas = canvasServer.billboard$getCanvasManager().getCanvas(uuidString);
+        if (canvas == null) {
+            source.sendError(Text.literal("No canvas found with UUID: " + uuidString).formatted(Formatting.RED));
+            return 0;
+        }
+
+        ImageTypes type;
+        try {
+            type = ImageTypes.fromType(imageType);
+        }
+        catch (IllegalArgumentException e) {
+            source.sendError(Text.literal(e.getMessage()));
+            return 0;
+        }
+
+        final CanvasLayout currentLayout = canvas.getLayout();
+        final int width = canvas.getWidth();
+        final int height = canvas.getHeight();
+        final int detailLevels = canvas.getDetailLevelCount();
+        final float detailDistance = canvas.getDetailDistance();
+
+        ImageRequester.getSourceImage(url, width, height).orTimeout(60, TimeUnit.SECONDS)
+                .thenApplyAsync(image -> {
+                    if (image == null) {
+                        throw new IllegalArgumentException("The file at " + url + " is not a supported image.");
+                    }
+                    CanvasBuilder builder = new CanvasBuilder()
+                            .setWidth(width)
+                            .setHeight(height);
+
+                    if (detailLevels > 0) {
+                        builder.setDetailLevels(detailLevels, detailDistance);
+                    }
+                    builder.setImage(image, type);
+                    return new PreparedUpdate(new CanvasDelta(currentLayout, builder.getLayout()), builder.getDetailLevels());
+                }, WorkerPool.getExecutor())
+                .whenCompleteAsync((update, ex) -> {
+                    if (ex != null) {
+                        Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+                        source.sendError(Text.literal("Failed to load image: " + cause.getMessage()));
+                        return;
+                    }
+                    CanvasDelta delta = update.delta();
+                    CanvasTask<Runnable> task = delta.getFrom() == canvas.getLayout() ? canvas.applyDelta(delta) : canvas.updateLayout(delta.getTo());
+                    if (!update.detailLevels().isEmpty()) {
+                        canvas.setDetailLevels(update.detailLevels(), detailDistance);
+                    }
+                    reportTask(source, task);
+                }, server);
+        return 1;
+    }
+
+    private record PreparedUpdate(CanvasDelta delta, List<CanvasLayout> detailLevels) {}
+
+    private static int setProximity(CommandContext<ServerCommandSource> context) {
+        ServerCommandSource source = context.getSource();
+        CanvasServer canvasServer = (CanvasServer) source.getServer();
+
+        final String uuidString = StringArgumentType.getString(context, "uuid");
+        final float radius = FloatArgumentType.getFloat(context, "radius");
+
+        Canvas canvas = canvasServer.billboard$getCanvasManager().getCanvas(uuidString);
+        if (canvas == null) {
+            source.sendError(Text.literal("No canvas found with UUID: " + uuidString).formatted(Formatting.RED));
+            return 0;
+        }
+
+        canvas.setProximityRadius(radius);
+        if (radius == 0 && !canvas.isMaterialized()) {
+            reportTask(source, canvas.render());
+        }
+
+        source.sendFeedback(() -> Text.literal(radius == 0
+                ? String.format("Canvas %s is now always rendered.", uuidString)
+                : String.format("Canvas %s is now only rendered within %.1f blocks of a player.", uuidString, radius)).formatted(Formatting.GREEN), false);
+        return 1;
+    }
+
+    private static int setBudget(CommandContext<ServerCommandSource> context) {
+        ServerCommandSource source = context.getSource();
+        CanvasScheduler scheduler = ((CanvasServer) source.getServer()).billboard$getCanvasScheduler();
+
+        final int entities = IntegerArgumentType.getInteger(context, "entities");
+        final int milliseconds = IntegerArgumentType.getInteger(context, "milliseconds");
+
+        scheduler.setEntityBudget(entities);
+        scheduler.setTimeBudget(milliseconds);
+
+        source.sendFeedback(() -> Text.literal(String.format("Canvas budget set to %d entities and %d ms per tick.", entities, milliseconds)).formatted(Formatting.GREEN), false);
+        return 1;
+    }
+
+    private static int setBundleLimit(CommandContext<ServerCommandSource> context) {
+        ServerCommandSource source = context.getSource();
+
+        final int packets = IntegerArgumentType.getInteger(context, "packets");
+        CanvasViewers.setBundleLimit(packets);
+
+        source.sendFeedback(() -> Text.literal(String.format("Virtual canvases now send at most %d packets per bundle.", packets)).formatted(Formatting.GREEN), false);
+        return 1;
+    }
+
+    private static int listTasks(CommandContext<ServerCommandSource> context) {
+        ServerCommandSource source = context.getSource();
+        CanvasScheduler scheduler = ((CanvasServer) source.getServer()).billboard$getCanvasScheduler();
+        List<CanvasTask<?>> tasks = scheduler.getPendingTasks();
+        List<CanvasAnimation> animations = scheduler.getAnimations();
+
+        if (tasks.isEmpty() && animations.isEmpty()) {
+            source.sendFeedback(() -> Text.literal("No pending canvas tasks."), false);
+            return 0;
+        }
+
+        for (CanvasTask<?> task : tasks) {
+            source.sendFeedback(() -> Text.literal(String.format("%s: %d/%d (%.1f%%)",
+                    task.getDescription(), task.getProcessed(), task.getTotal(), task.getProgress() * 100)), false);
+        }
+        for (CanvasAnimation animation : animations) {
+            source.sendFeedback(() -> Text.literal(String.format("Animate canvas %s: frame %d/%d, %d updates per tick",
+                    animation.getCanvas().getUUID(), animation.getFrame() + 1, animation.getFrameCount(), animation.getUpdatesPerTick())), false);
+        }
+        return tasks.size() + animations.size();
+    }
+
+    private static int showStats(CommandContext<ServerCommandSource> context) {
+        ServerCommandSource source = context.getSource();
+        CanvasServer canvasServer = (CanvasServer) source.getServer();
+
+        for (PipelineStats.Stage stage : PipelineStats.Stage.values()) {
+            long count = PipelineStats.getCount(stage);
+            double totalMillis = PipelineStats.getTotalNanos(stage) / 1_000_000.0;
+            double maxMillis = PipelineStats.getMaxNanos(stage) / 1_000_000.0;
+
+            source.sendFeedback(() -> Text.literal(String.format("%s: %d runs, %.1f ms total, %.2f ms mean, %.2f ms max",
+                    stage, count, totalMillis, count == 0 ? 0 : totalMillis / count, maxMillis)), false);
+        }
+
+        Collection<Canvas> canvases = canvasServer.billboard$getCanvasManager().getCanvases();
+        int liveEntities = canvases.stream().mapToInt(Canvas::getLiveEntityCount).sum();
+        int pendingTasks = canvasServer.billboard$getCanvasScheduler().getPendingTasks().size();
+        source.sendFeedback(() -> Text.literal(String.format("%d canvases with %d live entities, %d pending tasks.",
+                canvases.size(), liveEntities, pendingTasks)).formatted(Formatting.GRAY), false);
+
+        canvases.stream()
+                .sorted(Comparator.comparingInt(Canvas::getLiveEntityCount).reversed())
+                .limit(STATS_TOP_CANVASES)
+                .filter(canvas -> canvas.getLiveEntityCount() > 0)
+                .forEach(canvas -> source.sendFeedback(() -> Text.literal(String.format("%s: %d live entities",
+                        canvas.getUUID(), canvas.getLiveEntityCount())).formatted(Formatting.GRAY), false));
+        return liveEntities;
+    }
+
+    private static int resetStats(CommandContext<ServerCommandSource> context) {
+        PipelineStats.reset();
+        context.getSource().sendFeedback(() -> Text.literal("Pipeline statistics have been reset.").formatted(Formatting.GREEN), false);
+        return 1;
+    }
+
+    private static int listCanvases(CommandContext<ServerCommandSource> context, boolean onlyOwn) {
+        ServerCommandSource source = context.getSource();
+        CanvasManager manager = ((CanvasServer) source.getServer()).billboard$getCanvasManager();
+        World world = Objects.requireNonNull(source.getWorld());
+        ServerPlayerEntity player = source.getPlayer();
+
+        Collection<Canvas> canvases;
+        if (onlyOwn) {
+            if (player == null) {
+                source.sendError(Text.literal("Only players own canvases.").formatted(Formatting.RED));
+                return 0;
+            }
+            canvases = manager.getCanvasesByOwner(player.getUuid());
+        }
+        else {
+            canvases = manager.getCanvases(world.getRegistryKey());
+        }
+
+        List<Canvas> sorted = canvases.stream().sorted(Comparator.comparingLong(Canvas::getCreationTime)).toList();
+        if (sorted.isEmpty()) {
+            source.sendFeedback(() -> Text.literal("No canvases found."), false);
+            return 0;
+        }
+
+        for (Canvas canvas : sorted) {
+            source.sendFeedback(() -> Text.literal(String.format("%s: %dx%d, %s, created %s",
+                    canvas.getUUID(), canvas.getWidth(), canvas.getHeight(), canvas.isVirtual() ? "virtual" : "entities",
+                    Instant.ofEpochMilli(canvas.getCreationTime()))), false);
+        }
+        return sorted.size();
+    }
+
+    private static void reportTask(ServerCommandSource source, CanvasTask<?> task) {
+        source.sendFeedback(() -> Text.literal(String.format("%s: %d pixel changes queued...", task.getDescription(), task.getTotal())).formatted(Formatting.GRAY), false);
+
+        task.getFuture().thenAccept(finishedTask -> {
+            if (finishedTask.isCancelled()) {
+                source.sendFeedback(() -> Text.literal(String.format("%s: cancelled after %d/%d pixel changes.",
+                        finishedTask.getDescription(), finishedTask.getProcessed(), finishedTask.getTotal())).formatted(Formatting.YELLOW), false);
+            }
+            else {
+                source.sendFeedback(() -> Text.literal(String.format("%s: done.", finishedTask.getDescription())).formatted(Formatting.GREEN), false);
+            }
+        });
+    }
+
     private static int removeCanvas(CommandContext<ServerCommandSource> context) {
         ServerCommandSource source = context.getSource();
         MinecraftServer server = source.getServer();
@@ -241,10 +823,21 @@ public class BillboardCommand {
         return 1;
     }
 
+    private static final int MAX_SUGGESTIONS = 100;
+    private static final int STATS_TOP_CANVASES = 5;
+
     private static final SuggestionProvider<ServerCommandSource> CANVAS_UUID_PROVIDER = (source, builder) -> {
         MinecraftServer server = source.getSource().getServer();
         CanvasServer canvasServer = (CanvasServer) server;
 
-        return CommandSource.suggestMatching(canvasServer.billboard$getCanvasManager().getCanvasUUIDs(), builder);
+        int suggestions = 0;
+        for (String uuid : canvasServer.billboard$getCanvasManager().getCanvasUUIDs(builder.getRemainingLowerCase())) {
+            if (suggestions++ >= MAX_SUGGESTIONS) {
+                break;
+            }
+            builder.suggest(uuid);
+        }
+
+        return builder.buildFuture();
     };
 }
@@ -3,11 +3,13 @@ package com.harismehuljic.billboard.impl;
 import net.minecraft.server.MinecraftServer;
 
 import com.harismehuljic.billboard.rendering.CanvasManager;
+import com.harismehuljic.billboard.rendering.CanvasScheduler;
 import com.harismehuljic.billboard.mixin.MinecraftServerMixin;
+import com.harismehuljic.billboard.util.CanvasWriter;
 
 /**
  * Interface for the {@link MinecraftServerMixin} which allows the user to cast an instance of {@link MinecraftServer}
- * to this interface to access the {@link CanvasManager}.
+ * to this interface to access the {@link CanvasManager}, the {@link CanvasScheduler} and the {@link CanvasWriter}.
  */
 public interface CanvasServer {
     /**
@@ -15,4 +17,16 @@ public interface CanvasServer {
      * @return The {@link CanvasManager} instance.
      */
     CanvasManager billboard$getCanvasManager();
+
+    /**
+     * Returns the {@link CanvasScheduler} instance associated with this server.
+     * @return The {@link CanvasScheduler} instance.
+     */
+    CanvasScheduler billboard$getCanvasScheduler();
+
+    /**
+     * Returns the {@link CanvasWriter} instance associated with this server.
+     * @return The {@link CanvasWriter} instance.
+     */
+    CanvasWriter billboard$getCanvasWriter();
 }
@@ -2,6 +2,8 @@ package com.harismehuljic.billboard.mixin;
 
 import com.harismehuljic.billboard.impl.CanvasServer;
 import com.harismehuljic.billboard.rendering.CanvasManager;
+import com.harismehuljic.billboard.rendering.CanvasScheduler;
+import com.harismehuljic.billboard.util.CanvasWriter;
 import net.minecraft.server.MinecraftServer;
 import net.minecraft.server.ServerTask;
 import net.minecraft.util.thread.ReentrantThreadExecutor;
@@ -9,12 +11,15 @@ import org.spongepowered.asm.mixin.Mixin;
 import org.spongepowered.asm.mixin.Unique;
 
 /**
- * Mixin for the {@link MinecraftServer} class to provide access to the {@link CanvasManager}.
+ * Mixin for the {@link MinecraftServer} class to provide access to the {@link CanvasManager}, {@link CanvasScheduler}
+ * and {@link CanvasWriter}.
  * This allows the server to manage canvases and their associated data.
  */
 @Mixin(MinecraftServer.class)
 public abstract class MinecraftServerMixin extends ReentrantThreadExecutor<ServerTask> implements CanvasServer {
     @Unique private final CanvasManager canvasManager = new CanvasManager();
+    @Unique private final CanvasScheduler canvasScheduler = new CanvasScheduler();
+    @Unique private final CanvasWriter canvasWriter = new CanvasWriter();
 
     public MinecraftServerMixin(String string) {
         super(string);
@@ -30,4 +35,26 @@ public abstract class MinecraftServerMixin extends ReentrantThreadExecutor<Serve
     public CanvasManager billboard$getCanvasManager() {
         return this.canvasManager;
     }
+
+    /**
+     * Returns the {@link CanvasScheduler} instance associated with this server.
+     * This method is used to spread the spawning and removal of canvases over multiple ticks.
+     *
+     * @return The {@link CanvasScheduler} instance.
+     */
+    @Unique
+    public CanvasScheduler billboard$getCanvasScheduler() {
+        return this.canvasScheduler;
+    }
+
+    /**
+     * Returns the {@link CanvasWriter} instance associated with this server.
+     * This method is used to save canvases without blocking the server thread.
+     *
+     * @return The {@link CanvasWriter} instance.
+     */
+    @Unique
+    public CanvasWriter billboard$getCanvasWriter() {
+        return this.canvasWriter;
+    }
 }
@@ -0,0 +1,32 @@
+package com.harismehuljic.billboard.preprocessing;
+
+import com.harismehuljic.billboard.preprocessing.data.PixelConnections;
+import com.harismehuljic.billboard.preprocessing.util.EncodedImageCache;
+
+/**
+ * Represents an image that has already been processed by another {@link Image} type, restored from its pixel data
+ * and connections.
+ *
+ * @implNote This is used to restore images from the {@link EncodedImageCache}, so that the image doesn't need to be
+ * resized and processed again.
+ */
+public class EncodedImage extends Image {
+    /**
+     * Constructs an EncodedImage from processed pixel data.
+     *
+     * @param width The width of the image.
+     * @param height The height of the image.
+     * @param pixelData The packed RGB value of each pixel, in row-major order.
+     * @param connectionData The {@link PixelConnections} bitmask of each pixel, in row-major order.
+     * @throws IllegalArgumentException If the length of the arrays does not match the dimensions of the image.
+     */
+    public EncodedImage(int width, int height, int[] pixelData, byte[] connectionData) throws IllegalArgumentException {
+        super(width, height, pixelData, connectionData);
+    }
+
+    /**
+     * Does nothing, since the connections were already defined when the image was first processed.
+     */
+    @Override
+    protected void processImage() {}
+}
@@ -0,0 +1,84 @@
+package com.harismehuljic.billboard.preprocessing;
+
+import com.harismehuljic.billboard.preprocessing.data.PixelConnections;
+import com.harismehuljic.billboard.preprocessing.data.ResamplingMode;
+import com.harismehuljic.billboard.rendering.Canvas;
+import com.harismehuljic.billboard.rendering.CanvasLayout;
+import com.harismehuljic.billboard.rendering.CanvasPixel;
+
+import java.awt.image.BufferedImage;
+import net.minecraft.entity.decoration.DisplayEntity;
+
+/**
+ * GlyphPackedImage is a specialized image class that packs segments of each row into a single text display, regardless
+ * of the colors of their pixels.
+ *
+ * @implNote Every row is split into segments of up to {@link CanvasPixel#MAX_GLYPHS} pixels, and the pixels of each
+ * segment are connected. Since connected pixels of different colors can't be drawn as a single stretched glyph, the
+ * {@link CanvasLayout} turns such segments into packed regions, which the {@link Canvas} renders as one
+ * {@link DisplayEntity.TextDisplayEntity} showing one colored glyph per pixel. A 128x128 image takes 512 entities this
+ * way, instead of up to 16384.
+ */
+public class GlyphPackedImage extends Image {
+    /**
+     * Constructs a GlyphPackedImage from a BufferedImage.
+     * @param image The BufferedImage to be processed.
+     */
+    public GlyphPackedImage(BufferedImage image) {
+        super(image);
+        this.processImage();
+    }
+
+    /**
+     * Constructs a GlyphPackedImage from a BufferedImage and resizes it to the specified width and height.
+     * @param image The BufferedImage to be processed.
+     * @param width The desired width of the resized image.
+     * @param height The desired height of the resized image.
+     */
+    public GlyphPackedImage(BufferedImage image, int width, int height) {
+        super(image, width, height);
+        this.processImage();
+    }
+
+    /**
+     * Constructs a GlyphPackedImage from a BufferedImage and resizes it to the specified width and height.
+     *
+     * @param image The BufferedImage to be processed.
+     * @param width The desired width of the resized image.
+     * @param height The desired height of the resized image.
+     * @param mode The filter used to resize the image.
+     */
+    public GlyphPackedImage(BufferedImage image, int width, int height, ResamplingMode mode) {
+        super(image, width, height, mode);
+        this.processImage();
+    }
+
+    /**
+     * Constructs a GlyphPackedImage from pixels that have already been resized.
+     * @param width The width of the image.
+     * @param height The height of the image.
+     * @param pixels The packed RGB value of each pixel, in row-major order. The array is used without being copied.
+     * @throws IllegalArgumentException If the amount of pixels does not match the dimensions of the image.
+     */
+    public GlyphPackedImage(int width, int height, int[] pixels) throws IllegalArgumentException {
+        super(width, height, pixels);
+        this.processImage();
+    }
+
+    /**
+     * Processes the image by connecting the pixels of every row segment.
+     *
+     * @implNote Segments start at every multiple of {@link CanvasPixel#MAX_GLYPHS}, so that a pixel keeps its segment
+     * between frames of an animation, and only the glyph colors of changed segments need to be updated.
+     */
+    @Override
+    protected void processImage() {
+        for (int y = 0; y < this.height; y++) {
+            for (int x = 1; x < this.width; x++) {
+                if (x % CanvasPixel.MAX_GLYPHS != 0) {
+                    this.connect(x, y, PixelConnections.ConnectionDirection.LEFT);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.harismehuljic.billboard.preprocessing;
+
+import com.harismehuljic.billboard.preprocessing.data.PixelConnections;
+import com.harismehuljic.billboard.preprocessing.data.ResamplingMode;
+import com.harismehuljic.billboard.rendering.Canvas;
+import com.harismehuljic.billboard.rendering.CanvasLayout;
+import com.harismehuljic.billboard.rendering.CanvasPixel;
+
+import java.awt.image.BufferedImage;
+import net.minecraft.entity.decoration.DisplayEntity;
+
+/**
+ * HalfBlockEncodedImage is a specialized image class that pairs up the rows of an image, so that every
+ * {@link CanvasPixel} shows two vertically stacked pixels.
+ *
+ * @implNote Every pixel in an even row is connected to the pixel below it, whatever their colors. The
+ * {@link CanvasLayout} turns such a pair into a half-block region, which the {@link Canvas} renders as an upper half
+ * block glyph in the color of the top pixel, over a background in the color of the bottom pixel. Neighboring pairs
+ * with the same colors in both rows are run-length encoded like in {@link RunLengthEncodedImage}. This halves the
+ * number of {@link DisplayEntity.TextDisplayEntity}s even for photographic images, where runs are rare.
+ */
+public class HalfBlockEncodedImage extends Image {
+    /**
+     * Constructs a HalfBlockEncodedImage from a BufferedImage.
+     * @param image The BufferedImage to be processed.
+     */
+    public HalfBlockEncodedImage(BufferedImage image) {
+        super(image);
+        this.processImage();
+    }
+
+    /**
+     * Constructs a HalfBlockEncodedImage from a BufferedImage and resizes it to the specified width and height.
+     * @param image The BufferedImage to be processed.
+     * @param width The desired width of the resized image.
+     * @param height The desired height of the resized image.
+     */
+    public HalfBlockEncodedImage(BufferedImage image, int width, int height) {
+        super(image, width, height);
+        this.processImage();
+    }
+
+    /**
+     * Constructs a HalfBlockEncodedImage from a BufferedImage and resizes it to the specified width and height.
+     *
+     * @param image The BufferedImage to be processed.
+     * @param width The desired width of the resized image.
+     * @param height The desired height of the resized image.
+     * @param mode The filter used to resize the image.
+     */
+    public HalfBlockEncodedImage(BufferedImage image, int width, int height, ResamplingMode mode) {
+        super(image, width, height, mode);
+        this.processImage();
+    }
+
+    /**
+     * Constructs a HalfBlockEncodedImage from pixels that have already been resized.
+     * @param width The width of the image.
+     * @param height The height of the image.
+     * @param pixels The packed RGB value of each pixel, in row-major order. The array is used without being copied.
+     * @throws IllegalArgumentException If the amount of pixels does not match the dimensions of the image.
+     */
+    public HalfBlockEncodedImage(int width, int height, int[] pixels) throws IllegalArgumentException {
+        super(width, height, pixels);
+        this.processImage();
+    }
+
+    /**
+     * Processes the image by connecting every pair of rows, and run-length encoding the pairs.
+     *
+     * @implNote Only the top row of a run is linked horizontally, and every pixel of the bottom row is linked to the
+     * pixel above it, the same way {@link RectangleEncodedImage} links its rectangles. The last row of an image with an
+     * odd height has no row to pair with, so it is only run-length encoded.
+     */
+    @Override
+    protected void processImage() {
+        for (int y = 0; y < this.height; y += 2) {
+            int rowStart = y * this.width;
+            boolean paired = y + 1 < this.height;
+
+            for (int x = 0; x < this.width; x++) {
+                if (paired) {
+                    this.connect(x, y + 1, PixelConnections.ConnectionDirection.UP);
+                }
+
+                if (x > 0 && this.pixelData[rowStart + x] == this.pixelData[rowStart + x - 1]
+                        && (!paired || this.pixelData[rowStart + this.width + x] == this.pixelData[rowStart + this.width + x - 1])) {
+                    this.connect(x, y, PixelConnections.ConnectionDirection.LEFT);
+                }
+            }
+        }
+    }
+}
@@ -1,27 +1,32 @@
 package com.harismehuljic.billboard.preprocessing;
 
-import com.harismehuljic.billboard.preprocessing.data.ImagePixel;
+import com.harismehuljic.billboard.preprocessing.data.PixelConnections;
+import com.harismehuljic.billboard.preprocessing.data.ResamplingMode;
+import com.harismehuljic.billboard.preprocessing.util.Resampler;
 
 import java.awt.image.BufferedImage;
 
 /**
  * Abstract class representing an image that can be processed to extract pixel data.
  * This class provides methods to access pixel data, dimensions, and to resize images.
+ *
+ * @implNote The pixel data is stored in flat, row-major primitive arrays: one packed RGB integer and one
+ * {@link PixelConnections} bitmask per pixel. None of the accessors allocate.
  */
 public abstract class Image {
     protected final int width;
     protected final int height;
-    protected final ImagePixel[][] pixelData;
+    protected final int[] pixelData;
+    protected final byte[] connectionData;
 
     /**
      * Constructor that initializes the image with the given BufferedImage.
      * @param image The BufferedImage to be processed.
+     *
+     * @apiNote Subclasses are responsible for calling {@link Image#processImage()} once they are fully initialized.
      */
     public Image(BufferedImage image) {
-        this.width = image.getWidth();
-        this.height = image.getHeight();
-        this.pixelData = new ImagePixel[image.getHeight()][image.getWidth()];
-        this.processImage(image);
+        this(image, image.getWidth(), image.getHeight(), ResamplingMode.NEAREST);
     }
 
     /**
@@ -29,52 +34,146 @@ public abstract class Image {
      * @param image The BufferedImage to be processed.
      * @param width The desired width of the resized image.
      * @param height The desired height of the resized image.
+     *
+     * @apiNote Subclasses are responsible for calling {@link Image#processImage()} once they are fully initialized.
      */
     public Image(BufferedImage image, int width, int height) {
-        BufferedImage resizedImage = resizeImage(image, width, height);
-
-        this.width = resizedImage.getWidth();
-        this.height = resizedImage.getHeight();
-        this.pixelData = new ImagePixel[resizedImage.getHeight()][resizedImage.getWidth()];
-        this.processImage(resizedImage);
+        this(image, width, height, ResamplingMode.AREA_AVERAGE);
     }
 
     /**
-     * Abstract method to process the image and extract pixel data.
+     * Constructor that initializes the image with the given BufferedImage and resizes it to the specified width and
+     * height, using the specified resampling mode.
      * @param image The BufferedImage to be processed.
+     * @param width The desired width of the resized image.
+     * @param height The desired height of the resized image.
+     * @param mode The filter used to resize the image.
+     * @throws IllegalArgumentException If the width or height is less than or equal to 0.
+     *
+     * @apiNote Subclasses are responsible for calling {@link Image#processImage()} once they are fully initialized.
+     *
+     * @see Resampler
+     */
+    public Image(BufferedImage image, int width, int height, ResamplingMode mode) throws IllegalArgumentException {
+        this.width = width;
+        this.height = height;
+        this.pixelData = Resampler.resample(image, width, height, mode);
+        this.connectionData = new byte[this.width * this.height];
+    }
+
+    /**
+     * Constructor that initializes the image with pixels that have already been resized.
+     * @param width The width of the image.
+     * @param height The height of the image.
+     * @param pixelData The packed RGB value of each pixel, in row-major order.
+     * @throws IllegalArgumentException If the width or height is less than or equal to 0, or the amount of pixels does
+     * not match the dimensions of the image.
+     *
+     * @apiNote The array is used as it is, without being copied. Subclasses are responsible for calling
+     * {@link Image#processImage()} once they are fully initialized.
+     */
+    protected Image(int width, int height, int[] pixelData) throws IllegalArgumentException {
+        this(width, height, pixelData, new byte[pixelData.length]);
+    }
+
+    /**
+     * Constructor that initializes the image with pixel data that has already been processed.
+     * @param width The width of the image.
+     * @param height The height of the image.
+     * @param pixelData The packed RGB value of each pixel, in row-major order.
+     * @param connectionData The {@link PixelConnections} bitmask of each pixel, in row-major order.
+     * @throws IllegalArgumentException If the width or height is less than or equal to 0, or the length of the arrays
+     * does not match the dimensions of the image.
+     *
+     * @apiNote The arrays are used as they are, without being copied.
+     */
+    protected Image(int width, int height, int[] pixelData, byte[] connectionData) throws IllegalArgumentException {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("Width and height must be greater than 0.");
+        }
+        else if (pixelData.length != width * height || connectionData.length != width * height) {
+            throw new IllegalArgumentException(String.format("Expected %d pixels, but got %d colors and %d connections.",
+                    width * height, pixelData.length, connectionData.length));
+        }
+
+        this.width = width;
+        this.height = height;
+        this.pixelData = pixelData;
+        this.connectionData = connectionData;
+    }
+
+    /**
+     * Abstract method to process the extracted pixel data, defining the connections between pixels.
      */
-    public abstract void processImage(BufferedImage image);
+    protected abstract void processImage();
 
     /**
-     * Returns the pixel data of the image at the specified coordinates.
+     * Returns the color of the pixel at the specified coordinates.
      * @param x The x-coordinate of the pixel. Must be within the bounds of the image width.
      * @param y The y-coordinate of the pixel. Must be within the bounds of the image height.
-     * @return A 2D array of ImagePixel objects representing the pixel data.
+     * @return The RGB value of the pixel as an integer.
      * @throws IllegalArgumentException if the specified coordinates are out of bounds.
      */
-    public ImagePixel getPixel(int x, int y) throws IllegalArgumentException {
-        if (x < 0 || x > this.width) {
-            throw new IllegalArgumentException(String.format("Specified x (%s) is out of bounds. Bounds are: %s < x <= %s.", x, 0, this.width));
-        }
-        else if (y < 0 || y > this.height) {
-            throw new IllegalArgumentException(String.format("Specified y (%s) is out of bounds. Bounds are: %s < y <= %s.", y, 0, this.width));
-        }
+    public int getRGB(int x, int y) throws IllegalArgumentException {
+        return this.pixelData[this.getIndex(x, y)];
+    }
+
+    /**
+     * Returns the connections of the pixel at the specified coordinates.
+     * @param x The x-coordinate of the pixel. Must be within the bounds of the image width.
+     * @param y The y-coordinate of the pixel. Must be within the bounds of the image height.
+     * @return The connection bitmask of the pixel.
+     * @throws IllegalArgumentException if the specified coordinates are out of bounds.
+     *
+     * @see PixelConnections
+     */
+    public byte getConnections(int x, int y) throws IllegalArgumentException {
+        return this.connectionData[this.getIndex(x, y)];
+    }
+
+    /**
+     * Checks if the pixel at the specified coordinates is connected in the specified direction.
+     * @param x The x-coordinate of the pixel. Must be within the bounds of the image width.
+     * @param y The y-coordinate of the pixel. Must be within the bounds of the image height.
+     * @param direction The direction to check.
+     * @return true if connected in the specified direction, false otherwise.
+     * @throws IllegalArgumentException if the specified coordinates are out of bounds.
+     */
+    public boolean isConnected(int x, int y, PixelConnections.ConnectionDirection direction) throws IllegalArgumentException {
+        return PixelConnections.isConnected(this.getConnections(x, y), direction);
+    }
+
+    /**
+     * Connects the pixel at the specified coordinates with its neighbor in the specified direction.
+     * The neighbor is connected back in the opposite direction.
+     * @param x The x-coordinate of the pixel.
+     * @param y The y-coordinate of the pixel.
+     * @param direction The direction of the neighbor to connect to.
+     */
+    protected void connect(int x, int y, PixelConnections.ConnectionDirection direction) {
+        int index = this.getIndex(x, y);
+        int neighborIndex = this.getIndex(x + direction.getOffsetX(), y + direction.getOffsetY());
 
-        return this.pixelData[y][x];
+        this.connectionData[index] = PixelConnections.connect(this.connectionData[index], direction);
+        this.connectionData[neighborIndex] = PixelConnections.connect(this.connectionData[neighborIndex], direction.getOpposite());
     }
 
     /**
-     * Returns the amount of pixels in the specified row of the image.
-     * @param y The y-coordinate of the row. Must be within the bounds of the image height.
-     * @return The number of pixels in the specified row.
-     * @throws IllegalArgumentException if the specified y-coordinate is out of bounds.
+     * Returns the index of the specified coordinates in the pixel arrays.
+     * @param x The x-coordinate of the pixel. Must be within the bounds of the image width.
+     * @param y The y-coordinate of the pixel. Must be within the bounds of the image height.
+     * @return The row-major index of the pixel.
+     * @throws IllegalArgumentException if the specified coordinates are out of bounds.
      */
-    public int getRowPixelCount(int y) throws IllegalArgumentException {
-        if (y < 0 || y > this.height) {
-            throw new IllegalArgumentException(String.format("Specified y (%s) is out of bounds. Bounds are: %s < y <= %s.", y, 0, this.width));
+    protected int getIndex(int x, int y) throws IllegalArgumentException {
+        if (x < 0 || x >= this.width) {
+            throw new IllegalArgumentException(String.format("Specified x (%s) is out of bounds. Bounds are: %s <= x < %s.", x, 0, this.width));
+        }
+        else if (y < 0 || y >= this.height) {
+            throw new IllegalArgumentException(String.format("Specified y (%s) is out of bounds. Bounds are: %s <= y < %s.", y, 0, this.height));
         }
 
-        return this.pixelData[y].length;
+        return y * this.width + x;
     }
 
     /**
@@ -92,18 +191,4 @@ public abstract class Image {
     public int getHeight() {
         return this.height;
     }
-
-    /**
-     * Resizes the given image to the specified width and height.
-     * @param image The image to resize, provided as a BufferedImage.
-     * @param width The desired width of the resized image.
-     * @param height The desired height of the resized image.
-     * @return A new BufferedImage instance containing the resized image.
-     */
-    private static BufferedImage resizeImage(BufferedImage image, int width, int height) {
-        java.awt.Image resultingImage = image.getScaledInstance(width, height, java.awt.Image.SCALE_DEFAULT);
-        BufferedImage outputImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
-        outputImage.getGraphics().drawImage(resultingImage, 0, 0, null);
-        return outputImage;
-    }
 }
@@ -0,0 +1,178 @@
+package com.harismehuljic.billboard.preprocessing;
+
+import com.harismehuljic.billboard.preprocessing.data.PixelConnections;
+import com.harismehuljic.billboard.preprocessing.data.ResamplingMode;
+import com.harismehuljic.billboard.preprocessing.util.PerceptualColor;
+import com.harismehuljic.billboard.rendering.Canvas;
+import com.harismehuljic.billboard.rendering.CanvasPixel;
+
+import java.awt.image.BufferedImage;
+import net.minecraft.entity.decoration.DisplayEntity;
+
+/**
+ * PerceptualRunLengthEncodedImage is a lossy variant of the {@link RunLengthEncodedImage}, which merges adjacent pixels
+ * in each row whose colors look alike, rather than only pixels whose colors are exactly equal.
+ *
+ * @implNote Every run is drawn in a single representative color, which allows the {@link Canvas} to render noisy
+ * images, such as JPEG photos, with far fewer {@link CanvasPixel}s and therefore fewer
+ * {@link DisplayEntity.TextDisplayEntity}s, at the cost of some fidelity.
+ *
+ * @see PerceptualColor
+ */
+public class PerceptualRunLengthEncodedImage extends Image {
+    /**
+     * The tolerance used when none is specified, which keeps merged runs close to indistinguishable from the source.
+     */
+    public static final float DEFAULT_TOLERANCE = 4.0F;
+
+    private final float tolerance;
+
+    /**
+     * Constructs a PerceptualRunLengthEncodedImage from a BufferedImage.
+     * @param image The BufferedImage to be processed.
+     * @param tolerance The maximum perceptual distance between a pixel and the color of the run it is merged into.
+     * @throws IllegalArgumentException If the tolerance is negative.
+     */
+    public PerceptualRunLengthEncodedImage(BufferedImage image, float tolerance) throws IllegalArgumentException {
+        super(image);
+        this.tolerance = validateTolerance(tolerance);
+        this.processImage();
+    }
+
+    /**
+     * Constructs a PerceptualRunLengthEncodedImage from a BufferedImage and resizes it to the specified width and height.
+     * @param image The BufferedImage to be processed.
+     * @param width The desired width of the resized image.
+     * @param height The desired height of the resized image.
+     * @param tolerance The maximum perceptual distance between a pixel and the color of the run it is merged into.
+     * @throws IllegalArgumentException If the tolerance is negative.
+     */
+    public PerceptualRunLengthEncodedImage(BufferedImage image, int width, int height, float tolerance) throws IllegalArgumentException {
+        super(image, width, height);
+        this.tolerance = validateTolerance(tolerance);
+        this.processImage();
+    }
+
+    /**
+     * Constructs a PerceptualRunLengthEncodedImage from a BufferedImage and resizes it to the specified width and height.
+     * @param image The BufferedImage to be processed.
+     * @param width The desired width of the resized image.
+     * @param height The desired height of the resized image.
+     * @param mode The filter used to resize the image.
+     * @param tolerance The maximum perceptual distance between a pixel and the color of the run it is merged into.
+     * @throws IllegalArgumentException If the tolerance is negative.
+     */
+    public PerceptualRunLengthEncodedImage(BufferedImage image, int width, int height, ResamplingMode mode, float tolerance) throws IllegalArgumentException {
+        super(image, width, height, mode);
+        this.tolerance = validateTolerance(tolerance);
+        this.processImage();
+    }
+
+    /**
+     * Constructs a PerceptualRunLengthEncodedImage from pixels that have already been resized.
+     * @param width The width of the image.
+     * @param height The height of the image.
+     * @param pixels The packed RGB value of each pixel, in row-major order. The array is used without being copied.
+     * @param tolerance The maximum perceptual distance between a pixel and the color of the run it is merged into.
+     * @throws IllegalArgumentException If the amount of pixels does not match the dimensions of the image, or the
+     * tolerance is negative.
+     */
+    public PerceptualRunLengthEncodedImage(int width, int height, int[] pixels, float tolerance) throws IllegalArgumentException {
+        super(width, height, pixels);
+        this.tolerance = validateTolerance(tolerance);
+        this.processImage();
+    }
+
+    /**
+     * Processes the image by merging pixels in each row into runs of perceptually similar colors.
+     *
+     * @implNote A pixel joins the current run if its distance to the mean color of the run, measured in OKLab, is within
+     * the tolerance. Because the mean follows the run, slow gradients stay bounded as well: the run ends once the
+     * gradient has drifted too far from its mean. Each finished run is recolored with its mean color.
+     */
+    @Override
+    protected void processImage() {
+        float[] lab = new float[this.width * 3];
+        float[] runMean = new float[3];
+
+        for (int y = 0; y < this.height; y++) {
+            int rowStart = y * this.width;
+
+            for (int x = 0; x < this.width; x++) {
+                PerceptualColor.toOklab(this.pixelData[rowStart + x], lab, x * 3);
+            }
+
+            int runStart = 0;
+            float sumL = lab[0], sumA = lab[1], sumB = lab[2];
+
+            for (int x = 1; x <= this.width; x++) {
+                int runLength = x - runStart;
+                runMean[0] = sumL / runLength;
+                runMean[1] = sumA / runLength;
+                runMean[2] = sumB / runLength;
+
+                if (x < this.width && PerceptualColor.distance(lab, x * 3, runMean, 0) <= this.tolerance) {
+                    sumL += lab[x * 3];
+                    sumA += lab[x * 3 + 1];
+                    sumB += lab[x * 3 + 2];
+                    continue;
+                }
+
+                this.finishRun(y, runStart, x, runMean);
+
+                if (x < this.width) {
+                    runStart = x;
+                    sumL = lab[x * 3];
+                    sumA = lab[x * 3 + 1];
+                    sumB = lab[x * 3 + 2];
+                }
+            }
+        }
+    }
+
+    /**
+     * Recolors and connects all pixels of a finished run.
+     * @param y The row of the run.
+     * @param start The first column of the run.
+     * @param end The column after the last pixel of the run.
+     * @param runMean The mean color of the run in OKLab.
+     */
+    private void finishRun(int y, int start, int end, float[] runMean) {
+        int rowStart = y * this.width;
+
+        if (end - start == 1) {
+            return;
+        }
+
+        int representativeColor = PerceptualColor.toRGB(runMean[0], runMean[1], runMean[2]);
+        for (int x = start; x < end; x++) {
+            this.pixelData[rowStart + x] = representativeColor;
+
+            if (x > start) {
+                this.connect(x, y, PixelConnections.ConnectionDirection.LEFT);
+            }
+        }
+    }
+
+    /**
+     * Returns the maximum perceptual distance used when merging pixels.
+     * @return The tolerance of this image.
+     */
+    public float getTolerance() {
+        return this.tolerance;
+    }
+
+    /**
+     * Validates the given tolerance.
+     * @param tolerance The tolerance to validate.
+     * @return The tolerance, if it is valid.
+     * @throws IllegalArgumentException If the tolerance is negative.
+     */
+    private static float validateTolerance(float tolerance) throws IllegalArgumentException {
+        if (tolerance < 0) {
+            throw new IllegalArgumentException("Color tolerance must be greater than or equal to 0.");
+        }
+
+        return tolerance;
+    }
+}
@@ -1,6 +1,6 @@
 package com.harismehuljic.billboard.preprocessing;
 
-import com.harismehuljic.billboard.preprocessing.data.ImagePixel;
+import com.harismehuljic.billboard.preprocessing.data.ResamplingMode;
 import com.harismehuljic.billboard.rendering.Canvas;
 
 import java.awt.image.BufferedImage;
@@ -21,6 +21,7 @@ public class RawImage extends Image {
      */
     public RawImage(BufferedImage image) {
         super(image);
+        this.processImage();
     }
 
     /**
@@ -32,22 +33,41 @@ public class RawImage extends Image {
      */
     public RawImage(BufferedImage image, int width, int height) {
         super(image, width, height);
+        this.processImage();
     }
 
     /**
-     * Processes the image by copying pixel data from the BufferedImage.
+     * Constructs a RawImage from a BufferedImage and resizes it to the specified width and height.
      *
      * @param image The BufferedImage to be processed.
+     * @param width The desired width of the resized image.
+     * @param height The desired height of the resized image.
+     * @param mode The filter used to resize the image.
+     */
+    public RawImage(BufferedImage image, int width, int height, ResamplingMode mode) {
+        super(image, width, height, mode);
+        this.processImage();
+    }
+
+    /**
+     * Constructs a RawImage from pixels that have already been resized.
      *
-     * @implNote This method iterates through each pixel of the image and creates an {@link ImagePixel} object
+     * @param width The width of the image.
+     * @param height The height of the image.
+     * @param pixels The packed RGB value of each pixel, in row-major order. The array is used without being copied.
+     * @throws IllegalArgumentException If the amount of pixels does not match the dimensions of the image.
      */
-    @Override
-    public void processImage(BufferedImage image) {
-        for (int y = 0; y < image.getHeight(); y++) {
-            for (int x = 0; x < image.getWidth(); x++) {
-                int rgb = image.getRGB(x, y);
-                pixelData[y][x] = new ImagePixel(rgb);
-            }
-        }
+    public RawImage(int width, int height, int[] pixels) throws IllegalArgumentException {
+        super(width, height, pixels);
+        this.processImage();
     }
+
+    /**
+     * Processes the image without defining any connections.
+     *
+     * @implNote The pixel data is already extracted from the {@link BufferedImage} by {@link Image}, so every pixel
+     * is left unconnected and will be rendered on its own.
+     */
+    @Override
+    protected void processImage() {}
 }
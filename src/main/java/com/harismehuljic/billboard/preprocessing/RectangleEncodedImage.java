@@ -0,0 +1,146 @@
+package com.harismehuljic.billboard.preprocessing;
+
+import com.harismehuljic.billboard.preprocessing.data.PixelConnections;
+import com.harismehuljic.billboard.preprocessing.data.ResamplingMode;
+import com.harismehuljic.billboard.rendering.Canvas;
+import com.harismehuljic.billboard.rendering.CanvasPixel;
+
+import java.awt.image.BufferedImage;
+import net.minecraft.entity.decoration.DisplayEntity;
+
+/**
+ * RectangleEncodedImage is a specialized image class that merges adjacent pixels of the same color into rectangles.
+ *
+ * @implNote This is the two-dimensional counterpart of {@link RunLengthEncodedImage}. Each rectangle is linked
+ * horizontally along its top row and vertically along every column below it, which allows the {@link Canvas} to render
+ * the whole rectangle as a single {@link CanvasPixel}, stretched on both axes. This greatly decreases the number of
+ * {@link DisplayEntity.TextDisplayEntity}s spawned for images with large flat-colored areas.
+ */
+public class RectangleEncodedImage extends Image {
+    /**
+     * Constructs a RectangleEncodedImage from a BufferedImage.
+     * @param image The BufferedImage to be processed.
+     */
+    public RectangleEncodedImage(BufferedImage image) {
+        super(image);
+        this.processImage();
+    }
+
+    /**
+     * Constructs a RectangleEncodedImage from a BufferedImage and resizes it to the specified width and height.
+     * @param image The BufferedImage to be processed.
+     * @param width The desired width of the resized image.
+     * @param height The desired height of the resized image.
+     */
+    public RectangleEncodedImage(BufferedImage image, int width, int height) {
+        super(image, width, height);
+        this.processImage();
+    }
+
+    /**
+     * Constructs a RectangleEncodedImage from a BufferedImage and resizes it to the specified width and height.
+     *
+     * @param image The BufferedImage to be processed.
+     * @param width The desired width of the resized image.
+     * @param height The desired height of the resized image.
+     * @param mode The filter used to resize the image.
+     */
+    public RectangleEncodedImage(BufferedImage image, int width, int height, ResamplingMode mode) {
+        super(image, width, height, mode);
+        this.processImage();
+    }
+
+    /**
+     * Constructs a RectangleEncodedImage from pixels that have already been resized.
+     * @param width The width of the image.
+     * @param height The height of the image.
+     * @param pixels The packed RGB value of each pixel, in row-major order. The array is used without being copied.
+     * @throws IllegalArgumentException If the amount of pixels does not match the dimensions of the image.
+     */
+    public RectangleEncodedImage(int width, int height, int[] pixels) throws IllegalArgumentException {
+        super(width, height, pixels);
+        this.processImage();
+    }
+
+    /**
+     * Processes the image by greedily merging pixels of the same color into maximal rectangles.
+     *
+     * @implNote Pixels are visited in row-major order. Every pixel that isn't already part of a rectangle starts a new
+     * one, which is first extended to the right as far as the color matches, and then extended downwards for as long
+     * as the entire row below matches as well.
+     */
+    @Override
+    protected void processImage() {
+        boolean[] merged = new boolean[this.pixelData.length];
+
+        for (int y = 0; y < this.height; y++) {
+            for (int x = 0; x < this.width; x++) {
+                int index = y * this.width + x;
+                if (merged[index]) {
+                    continue;
+                }
+
+                int rgb = this.pixelData[index];
+
+                int right = x;
+                while (right + 1 < this.width && !merged[index + right + 1 - x] && this.pixelData[index + right + 1 - x] == rgb) {
+                    right++;
+                }
+
+                int bottom = y;
+                while (bottom + 1 < this.height && this.canExtendDown(bottom + 1, x, right, rgb, merged)) {
+                    bottom++;
+                }
+
+                this.mergeRectangle(x, y, right, bottom, merged);
+            }
+        }
+    }
+
+    /**
+     * Checks whether the given row segment can be merged into the rectangle above it.
+     * @param y The row to check.
+     * @param left The left-most column of the rectangle.
+     * @param right The right-most column of the rectangle.
+     * @param rgb The color of the rectangle.
+     * @param merged Marks which pixels already belong to a rectangle.
+     * @return true if every pixel in the segment has the given color and is not yet part of a rectangle.
+     */
+    private boolean canExtendDown(int y, int left, int right, int rgb, boolean[] merged) {
+        int rowStart = y * this.width;
+
+        for (int x = left; x <= right; x++) {
+            if (merged[rowStart + x] || this.pixelData[rowStart + x] != rgb) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Links all pixels inside the given bounds into a single rectangle.
+     * @param left The left-most column of the rectangle.
+     * @param top The top-most row of the rectangle.
+     * @param right The right-most column of the rectangle.
+     * @param bottom The bottom-most row of the rectangle.
+     * @param merged Marks which pixels already belong to a rectangle.
+     *
+     * @implNote Only the top row is linked horizontally. Every row below it is linked vertically to the row above, so
+     * that each pixel has exactly one connection pointing back towards the top-left corner of the rectangle.
+     */
+    private void mergeRectangle(int left, int top, int right, int bottom, boolean[] merged) {
+        for (int y = top; y <= bottom; y++) {
+            for (int x = left; x <= right; x++) {
+                merged[y * this.width + x] = true;
+
+                if (y > top) {
+                    this.connect(x, y, PixelConnections.ConnectionDirection.UP);
+                }
+                else if (x > left) {
+                    this.connect(x, y, PixelConnections.ConnectionDirection.LEFT);
+                }
+            }
+        }
+    }
+}
@@ -1,7 +1,7 @@
 package com.harismehuljic.billboard.preprocessing;
 
-import com.harismehuljic.billboard.preprocessing.data.ImagePixel;
 import com.harismehuljic.billboard.preprocessing.data.PixelConnections;
+import com.harismehuljic.billboard.preprocessing.data.ResamplingMode;
 import com.harismehuljic.billboard.rendering.Canvas;
 import com.harismehuljic.billboard.rendering.CanvasPixel;
 
@@ -22,6 +22,7 @@ public class RunLengthEncodedImage extends Image {
      */
     public RunLengthEncodedImage(BufferedImage image) {
         super(image);
+        this.processImage();
     }
 
     /**
@@ -32,34 +33,49 @@ public class RunLengthEncodedImage extends Image {
      */
     public RunLengthEncodedImage(BufferedImage image, int width, int height) {
         super(image, width, height);
+        this.processImage();
     }
 
     /**
-     * Processes the image by applying run-length encoding to the pixel data.
+     * Constructs a RunLengthEncodedImage from a BufferedImage and resizes it to the specified width and height.
+     *
      * @param image The BufferedImage to be processed.
+     * @param width The desired width of the resized image.
+     * @param height The desired height of the resized image.
+     * @param mode The filter used to resize the image.
+     */
+    public RunLengthEncodedImage(BufferedImage image, int width, int height, ResamplingMode mode) {
+        super(image, width, height, mode);
+        this.processImage();
+    }
+
+    /**
+     * Constructs a RunLengthEncodedImage from pixels that have already been resized.
+     * @param width The width of the image.
+     * @param height The height of the image.
+     * @param pixels The packed RGB value of each pixel, in row-major order. The array is used without being copied.
+     * @throws IllegalArgumentException If the amount of pixels does not match the dimensions of the image.
+     */
+    public RunLengthEncodedImage(int width, int height, int[] pixels) throws IllegalArgumentException {
+        super(width, height, pixels);
+        this.processImage();
+    }
+
+    /**
+     * Processes the image by applying run-length encoding to the pixel data.
      *
      * @implNote This method saves the pixel data in a way that adjacent pixels of the same color in each row
      * can be easily identified.
      */
     @Override
-    public void processImage(BufferedImage image) {
+    protected void processImage() {
         for (int y = 0; y < this.height; y++) {
-            ImagePixel lastPixel = new ImagePixel(image.getRGB(0, y));
-
-            for (int x = 0; x < this.width; x++) {
-                int pixelColor = image.getRGB(x, y);
-                ImagePixel currentPixel = new ImagePixel(pixelColor);
+            int rowStart = y * this.width;
 
-                if (x > 0 && pixelColor == lastPixel.getRGB()) {
-                    PixelConnections lastPixelConnections = lastPixel.getPixelConnections();
-                    PixelConnections currentPixelConnections = currentPixel.getPixelConnections();
-
-                    lastPixelConnections.setPixel(PixelConnections.ConnectionDirection.RIGHT, currentPixel);
-                    currentPixelConnections.setPixel(PixelConnections.ConnectionDirection.LEFT, lastPixel);
+            for (int x = 1; x < this.width; x++) {
+                if (this.pixelData[rowStart + x] == this.pixelData[rowStart + x - 1]) {
+                    this.connect(x, y, PixelConnections.ConnectionDirection.LEFT);
                 }
-
-                this.pixelData[y][x] = currentPixel.copy();
-                lastPixel = currentPixel;
             }
         }
     }
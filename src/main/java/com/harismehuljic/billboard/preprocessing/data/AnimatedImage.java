@@ -0,0 +1,77 @@
+package com.harismehuljic.billboard.preprocessing.data;
+
+import java.awt.image.BufferedImage;
+import java.util.List;
+
+/**
+ * Represents a decoded animation, consisting of fully composited frames and how long each of them is shown.
+ */
+public class AnimatedImage {
+    private final List<BufferedImage> frames;
+    private final int[] delays;
+
+    /**
+     * Constructs an AnimatedImage.
+     *
+     * @param frames The frames of the animation, each the size of the whole animation.
+     * @param delays How long each frame is shown, in milliseconds.
+     * @throws IllegalArgumentException If there are no frames, or the amount of frames and delays do not match.
+     */
+    public AnimatedImage(List<BufferedImage> frames, int[] delays) throws IllegalArgumentException {
+        if (frames.isEmpty()) {
+            throw new IllegalArgumentException("An animation must have at least one frame.");
+        }
+        else if (frames.size() != delays.length) {
+            throw new IllegalArgumentException(String.format("Expected %d frame delays, but got %d.", frames.size(), delays.length));
+        }
+
+        this.frames = List.copyOf(frames);
+        this.delays = delays.clone();
+    }
+
+    /**
+     * Returns the frames of the animation.
+     *
+     * @return An unmodifiable list of the frames, in playback order.
+     */
+    public List<BufferedImage> getFrames() {
+        return this.frames;
+    }
+
+    /**
+     * Returns how long the specified frame is shown.
+     *
+     * @param frame The index of the frame.
+     * @return The delay of the frame in milliseconds.
+     */
+    public int getDelay(int frame) {
+        return this.delays[frame];
+    }
+
+    /**
+     * Returns the amount of frames of the animation.
+     *
+     * @return The number of frames.
+     */
+    public int getFrameCount() {
+        return this.frames.size();
+    }
+
+    /**
+     * Returns the width of the animation.
+     *
+     * @return The width of the animation in pixels.
+     */
+    public int getWidth() {
+        return this.frames.get(0).getWidth();
+    }
+
+    /**
+     * Returns the height of the animation.
+     *
+     * @return The height of the animation in pixels.
+     */
+    public int getHeight() {
+        return this.frames.get(0).getHeight();
+    }
+}
@@ -0,0 +1,76 @@
+package com.harismehuljic.billboard.preprocessing.data;
+
+/**
+ * Represents the estimated cost of rendering an image with one of the {@link ImageTypes}.
+ *
+ * @see com.harismehuljic.billboard.preprocessing.util.EncodingCostModel
+ */
+public class EncodingEstimate {
+    private final ImageTypes type;
+    private final int entityCount;
+    private final long packetBytes;
+    private final int buildTicks;
+    private final float meanError;
+
+    /**
+     * Constructs an EncodingEstimate.
+     *
+     * @param type The type the estimate is for.
+     * @param entityCount The amount of entities the image would be rendered with.
+     * @param packetBytes The amount of bytes sent to each player to spawn those entities.
+     * @param buildTicks The amount of server ticks it would take to spawn those entities.
+     * @param meanError The mean perceptual distance between the original and the rendered color of each pixel.
+     */
+    public EncodingEstimate(ImageTypes type, int entityCount, long packetBytes, int buildTicks, float meanError) {
+        this.type = type;
+        this.entityCount = entityCount;
+        this.packetBytes = packetBytes;
+        this.buildTicks = buildTicks;
+        this.meanError = meanError;
+    }
+
+    /**
+     * Returns the type the estimate is for.
+     *
+     * @return The image type.
+     */
+    public ImageTypes getType() {
+        return this.type;
+    }
+
+    /**
+     * Returns the amount of entities the image would be rendered with.
+     *
+     * @return The estimated entity count.
+     */
+    public int getEntityCount() {
+        return this.entityCount;
+    }
+
+    /**
+     * Returns the amount of bytes sent to each player to spawn the entities of the image.
+     *
+     * @return The estimated size of the spawn and tracked data packets, in bytes.
+     */
+    public long getPacketBytes() {
+        return this.packetBytes;
+    }
+
+    /**
+     * Returns the amount of server ticks it would take to spawn the entities of the image.
+     *
+     * @return The estimated build time in ticks.
+     */
+    public int getBuildTicks() {
+        return this.buildTicks;
+    }
+
+    /**
+     * Returns the mean perceptual distance between the original and the rendered color of each pixel.
+     *
+     * @return The estimated mean error, which is 0 for lossless types.
+     */
+    public float getMeanError() {
+        return this.meanError;
+    }
+}
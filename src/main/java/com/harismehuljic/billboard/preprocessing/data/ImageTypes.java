@@ -6,7 +6,26 @@ package com.harismehuljic.billboard.preprocessing.data;
  */
 public enum ImageTypes {
     RAW("raw"),
-    RLE("rle");
+    RLE("rle"),
+    RECT("rect"),
+    LOSSY("lossy"),
+    /**
+     * Packs segments of each row into a single entity showing one glyph per pixel.
+     *
+     * @implNote The font leaves a gap of one text pixel after every glyph, which shows the gap color of the segment.
+     * Between glyphs of different colors this shows as faint vertical stripes, so the type is not lossless, and "auto"
+     * only picks it when the quality target allows its mean error.
+     */
+    GLYPH("glyph"),
+    /**
+     * Pairs up rows, showing the upper pixel of each pair as an upper half block over the color of the lower pixel.
+     *
+     * @implNote The gap of one text pixel after the half block shows the color of the lower pixel in the upper half, so
+     * pairs of different colors get a faint stripe. The type is not lossless, and "auto" only picks it when the quality
+     * target allows its mean error.
+     */
+    HALF("half"),
+    AUTO("auto");
 
     private final String type;
 
@@ -15,7 +34,8 @@ public enum ImageTypes {
      *
      * @param type The string representation of the image type.
      *
-     * @apiNote Accepted string representations are "raw" and "rle".
+     * @apiNote Accepted string representations are "raw", "rle", "rect", "lossy", "glyph", "half" and "auto".
+     * The "auto" type picks the cheapest of the other types for each image that meets its quality target.
      */
     ImageTypes(String type) {
         this.type = type;
@@ -30,6 +50,39 @@ public enum ImageTypes {
         return this.type;
     }
 
+    /**
+     * Returns the image type matching the given string representation.
+     *
+     * @param type The string representation of the image type, ignoring case.
+     * @return The matching image type.
+     * @throws IllegalArgumentException If no image type matches the given string.
+     */
+    public static ImageTypes fromType(String type) throws IllegalArgumentException {
+        for (ImageTypes imageType : ImageTypes.values()) {
+            if (imageType.type.equalsIgnoreCase(type)) {
+                return imageType;
+            }
+        }
+
+        throw new IllegalArgumentException("Unsupported image type: " + type);
+    }
+
+    /**
+     * Returns the string representations of all image types.
+     *
+     * @return An array containing the type of every image type.
+     */
+    public static String[] getTypes() {
+        ImageTypes[] imageTypes = ImageTypes.values();
+        String[] types = new String[imageTypes.length];
+
+        for (int i = 0; i < imageTypes.length; i++) {
+            types[i] = imageTypes[i].type;
+        }
+
+        return types;
+    }
+
     /**
      * Converts the image type to its string representation.
      *
@@ -1,98 +1,110 @@
 package com.harismehuljic.billboard.preprocessing.data;
 
 /**
- * Represents connections between pixels in a grid.
+ * Utility class for working with the connections between pixels in a grid.
+ * The connections of a pixel are stored as a bitmask in a single byte, where each {@link ConnectionDirection}
+ * occupies one bit.
  */
-public class PixelConnections {
-    ImagePixel up, down, left, right;
-
+public final class PixelConnections {
     /**
-     * Default constructor for PixelConnections.
+     * Bitmask value of a pixel that isn't connected in any direction.
      */
-    public PixelConnections() {}
+    public static final byte NONE = 0;
 
-    /**
-     * Constructs a PixelConnections object with specified connections.
-     *
-     * @param up    The pixel connected above.
-     * @param down  The pixel connected below.
-     * @param left  The pixel connected to the left.
-     * @param right The pixel connected to the right.
-     */
-    public PixelConnections(ImagePixel up, ImagePixel down, ImagePixel left, ImagePixel right) {
-        this.setPixel(ConnectionDirection.UP, up);
-        this.setPixel(ConnectionDirection.DOWN, down);
-        this.setPixel(ConnectionDirection.LEFT, left);
-        this.setPixel(ConnectionDirection.RIGHT, right);
-    }
+    private PixelConnections() {}
 
     /**
-     * Returns the pixel connected in the specified direction.
+     * Checks if the given connections contain a connection in any direction.
      *
-     * @param direction The direction of the connection (UP, DOWN, LEFT, RIGHT).
-     * @return The pixel connected in the specified direction.
-     *
-     * @see ConnectionDirection
+     * @param connections The connection bitmask of a pixel.
+     * @return true if connected in any direction, false otherwise.
      */
-    public ImagePixel getPixel(ConnectionDirection direction) {
-        return switch (direction) {
-            case UP -> up;
-            case DOWN -> down;
-            case LEFT -> left;
-            case RIGHT -> right;
-        };
+    public static boolean isConnected(byte connections) {
+        return connections != NONE;
     }
 
     /**
-     * Sets the pixel connection in the specified direction.
+     * Checks if the given connections contain a connection in the specified direction.
      *
-     * @param direction The direction of the connection (UP, DOWN, LEFT, RIGHT).
-     * @param pixel The pixel to set in the specified direction.
+     * @param connections The connection bitmask of a pixel.
+     * @param direction The direction to check (UP, DOWN, LEFT, RIGHT).
+     * @return true if connected in the specified direction, false otherwise.
      *
      * @see ConnectionDirection
      */
-    public void setPixel(ConnectionDirection direction, ImagePixel pixel) {
-        switch (direction) {
-            case UP -> up = pixel;
-            case DOWN -> down = pixel;
-            case LEFT -> left = pixel;
-            case RIGHT -> right = pixel;
-        }
+    public static boolean isConnected(byte connections, ConnectionDirection direction) {
+        return (connections & direction.getMask()) != 0;
     }
 
     /**
-     * Checks if the pixel is connected in any direction.
+     * Adds a connection in the specified direction to the given connections.
      *
-     * @return true if connected in any direction, false otherwise.
-     */
-    public boolean isConnected() {
-        return up != null || down != null || left != null || right != null;
-    }
-
-    /**
-     * Checks if the pixel is connected in the specified direction.
-     *
-     * @param direction The direction to check (UP, DOWN, LEFT, RIGHT).
-     * @return true if connected in the specified direction, false otherwise.
+     * @param connections The connection bitmask of a pixel.
+     * @param direction The direction of the connection (UP, DOWN, LEFT, RIGHT).
+     * @return The updated connection bitmask.
      *
      * @see ConnectionDirection
      */
-    public boolean isConnected(ConnectionDirection direction) {
-        return switch (direction) {
-            case UP -> up != null;
-            case DOWN -> down != null;
-            case LEFT -> left != null;
-            case RIGHT -> right != null;
-        };
+    public static byte connect(byte connections, ConnectionDirection direction) {
+        return (byte) (connections | direction.getMask());
     }
 
     /**
      * Enum representing the possible directions of pixel connections.
      */
     public enum ConnectionDirection {
-        UP,
-        DOWN,
-        LEFT,
-        RIGHT
+        UP(0, -1),
+        DOWN(0, 1),
+        LEFT(-1, 0),
+        RIGHT(1, 0);
+
+        private final int offsetX;
+        private final int offsetY;
+
+        ConnectionDirection(int offsetX, int offsetY) {
+            this.offsetX = offsetX;
+            this.offsetY = offsetY;
+        }
+
+        /**
+         * Returns the bit used to store this direction in a connection bitmask.
+         *
+         * @return The bitmask of this direction.
+         */
+        public byte getMask() {
+            return (byte) (1 << this.ordinal());
+        }
+
+        /**
+         * Returns the horizontal offset of the neighboring pixel in this direction.
+         *
+         * @return -1, 0 or 1.
+         */
+        public int getOffsetX() {
+            return this.offsetX;
+        }
+
+        /**
+         * Returns the vertical offset of the neighboring pixel in this direction.
+         *
+         * @return -1, 0 or 1.
+         */
+        public int getOffsetY() {
+            return this.offsetY;
+        }
+
+        /**
+         * Returns the direction pointing back from the neighboring pixel.
+         *
+         * @return The opposite direction.
+         */
+        public ConnectionDirection getOpposite() {
+            return switch (this) {
+                case UP -> DOWN;
+                case DOWN -> UP;
+                case LEFT -> RIGHT;
+                case RIGHT -> LEFT;
+            };
+        }
     }
 }
@@ -0,0 +1,71 @@
+package com.harismehuljic.billboard.preprocessing.data;
+
+/**
+ * Enum representing the resampling filters that can be used when resizing an image.
+ */
+public enum ResamplingMode {
+    /**
+     * Picks the source pixel closest to the center of each resized pixel. This is the fastest mode and keeps hard
+     * edges, but aliases heavily when shrinking photos.
+     */
+    NEAREST("nearest"),
+    /**
+     * Blends the four source pixels surrounding the center of each resized pixel. This is best suited for enlarging
+     * images or shrinking them only slightly.
+     */
+    BILINEAR("bilinear"),
+    /**
+     * Averages all source pixels covered by each resized pixel, weighted by how much of them is covered. This gives
+     * the best results when shrinking images.
+     */
+    AREA_AVERAGE("area");
+
+    private final String type;
+
+    /**
+     * Constructor for the ResamplingMode enum.
+     *
+     * @param type The string representation of the resampling mode.
+     *
+     * @apiNote Accepted string representations are "nearest", "bilinear" and "area".
+     */
+    ResamplingMode(String type) {
+        this.type = type;
+    }
+
+    /**
+     * Returns the string representation of the resampling mode.
+     *
+     * @return the type as a string
+     */
+    public String getType() {
+        return this.type;
+    }
+
+    /**
+     * Returns the resampling mode matching the given string representation.
+     *
+     * @param type The string representation of the resampling mode, ignoring case.
+     * @return The matching resampling mode.
+     * @throws IllegalArgumentException If no resampling mode matches the given string.
+     */
+    public static ResamplingMode fromType(String type) throws IllegalArgumentException {
+        for (ResamplingMode mode : ResamplingMode.values()) {
+            if (mode.type.equalsIgnoreCase(type)) {
+                return mode;
+            }
+        }
+
+        throw new IllegalArgumentException("Unsupported resampling mode: " + type);
+    }
+
+    /**
+     * Converts the resampling mode to its string representation.
+     *
+     * @return the type as a string
+     */
+    @Override
+    public String toString() {
+        return this.type;
+    }
+}
@@ -0,0 +1,77 @@
+package com.harismehuljic.billboard.preprocessing.data;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * Represents a downloaded image together with the hash of the bytes it was decoded from, which identifies the image
+ * independently of the URL it came from.
+ *
+ * @apiNote The same instance may be handed to multiple callers, so the image must be treated as read-only.
+ */
+public class SourceImage {
+    private final String hash;
+    private final BufferedImage image;
+    private final int sourceWidth;
+    private final int sourceHeight;
+
+    /**
+     * Constructs a SourceImage that was decoded at its full size.
+     *
+     * @param hash The hex encoded SHA-256 hash of the encoded image.
+     * @param image The decoded image.
+     */
+    public SourceImage(String hash, BufferedImage image) {
+        this(hash, image, image.getWidth(), image.getHeight());
+    }
+
+    /**
+     * Constructs a SourceImage that may have been subsampled while it was decoded.
+     *
+     * @param hash The hex encoded SHA-256 hash of the encoded image.
+     * @param image The decoded image.
+     * @param sourceWidth The width of the encoded image.
+     * @param sourceHeight The height of the encoded image.
+     */
+    public SourceImage(String hash, BufferedImage image, int sourceWidth, int sourceHeight) {
+        this.hash = hash;
+        this.image = image;
+        this.sourceWidth = sourceWidth;
+        this.sourceHeight = sourceHeight;
+    }
+
+    /**
+     * Returns the hash of the encoded image.
+     *
+     * @return The hex encoded SHA-256 hash of the bytes the image was decoded from.
+     */
+    public String getHash() {
+        return this.hash;
+    }
+
+    /**
+     * Returns the decoded image.
+     *
+     * @return The image, which must not be modified.
+     */
+    public BufferedImage getImage() {
+        return this.image;
+    }
+
+    /**
+     * Returns the width of the encoded image, which is larger than the width of the decoded image if it was subsampled.
+     *
+     * @return The width of the encoded image.
+     */
+    public int getSourceWidth() {
+        return this.sourceWidth;
+    }
+
+    /**
+     * Returns the height of the encoded image, which is larger than the height of the decoded image if it was subsampled.
+     *
+     * @return The height of the encoded image.
+     */
+    public int getSourceHeight() {
+        return this.sourceHeight;
+    }
+}
@@ -0,0 +1,293 @@
+package com.harismehuljic.billboard.preprocessing.util;
+
+import com.harismehuljic.billboard.preprocessing.data.AnimatedImage;
+import com.harismehuljic.billboard.preprocessing.data.ResamplingMode;
+import com.harismehuljic.billboard.util.PipelineStats;
+import org.w3c.dom.Node;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.AlphaComposite;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Utility class for decoding every frame of an animated image.
+ *
+ * @implNote {@link ImageIO#read(InputStream)} only returns the first frame of an animated GIF, and every following
+ * frame may only cover part of the animation. This class composites each frame onto the previous ones according to its
+ * position and disposal method, so that every returned frame is complete. Any other format is decoded as a single frame.
+ */
+public abstract class AnimationDecoder {
+    /**
+     * The maximum amount of frames that are decoded. Any further frames are dropped.
+     */
+    public static final int MAX_FRAMES = 512;
+
+    /**
+     * The delay used for frames that don't define one, or define one too short to be honored, in milliseconds.
+     */
+    public static final int DEFAULT_DELAY = 100;
+
+    /**
+     * The maximum total amount of pixels of all decoded frames. Any further frames are dropped.
+     */
+    public static final long MAX_ANIMATION_PIXELS = 64L * 1024 * 1024;
+
+    private static final String GIF_IMAGE_METADATA = "javax_imageio_gif_image_1.0";
+    private static final String GIF_STREAM_METADATA = "javax_imageio_gif_stream_1.0";
+
+    /**
+     * Decodes all frames of the image in the given stream for a canvas of the given size.
+     *
+     * @param input The stream containing the encoded image.
+     * @param width The width of the canvas the animation is decoded for.
+     * @param height The height of the canvas the animation is decoded for.
+     * @return The decoded animation, whose frames are at most {@link ImageDecoder#OVERSAMPLING} times larger than the
+     * canvas.
+     * @throws IOException If the stream can't be read, doesn't contain a supported image, or the image has too many pixels.
+     *
+     * @see ImageDecoder#MAX_SOURCE_PIXELS
+     *
+     * @implNote Images other than GIFs are subsampled while they are decoded, like by {@link ImageDecoder}. GIF frames
+     * have to be composited at their full size, so each composited frame is shrunk before it is kept instead, and GIFs
+     * with more than {@link ImageDecoder#MAX_DECODED_PIXELS} pixels are rejected.
+     */
+    public static AnimatedImage decode(InputStream input, int width, int height) throws IOException {
+        try (PipelineStats.Timer timer = PipelineStats.time(PipelineStats.Stage.DECODE);
+             ImageInputStream stream = ImageIO.createImageInputStream(input)) {
+            if (stream == null) {
+                throw new IOException("The image stream could not be opened.");
+            }
+
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(stream);
+            if (!readers.hasNext()) {
+                throw new IOException("Unsupported image format.");
+            }
+
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(stream, false, false);
+
+                if (!"gif".equalsIgnoreCase(reader.getFormatName())) {
+                    return new AnimatedImage(List.of(reader.read(0, ImageDecoder.getReadParam(reader, width, height))), new int[]{ DEFAULT_DELAY });
+                }
+
+                return decodeGif(reader, width, height);
+            }
+            finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Decodes and composites the frames of a GIF, shrinking every composited frame for a canvas of the given size.
+     *
+     * @param reader The reader, with its input set to the GIF.
+     * @param width The width of the canvas the animation is decoded for.
+     * @param height The height of the canvas the animation is decoded for.
+     * @return The decoded animation.
+     * @throws IOException If the GIF can't be read, or is too large to be composited.
+     *
+     * @implNote Frames are dropped once the kept frames reach {@link AnimationDecoder#MAX_ANIMATION_PIXELS} pixels. The
+     * logical screen and the size and position of every frame are checked against
+     * {@link ImageDecoder#MAX_DECODED_PIXELS} before the frame is decoded, since the reader always decodes frames at
+     * their full size.
+     */
+    private static AnimatedImage decodeGif(ImageReader reader, int width, int height) throws IOException {
+        List<BufferedImage> frames = new ArrayList<>();
+        List<Integer> delays = new ArrayList<>();
+
+        int[] screen = getLogicalScreenSize(reader);
+        checkDecodedSize(screen[0], screen[1]);
+
+        BufferedImage composite = null;
+        Graphics2D graphics = null;
+        int frameWidth = 0;
+        int frameHeight = 0;
+        long keptPixels = 0;
+
+        try {
+            for (int i = 0; i < MAX_FRAMES; i++) {
+                int sourceWidth;
+                int sourceHeight;
+                try {
+                    sourceWidth = reader.getWidth(i);
+                    sourceHeight = reader.getHeight(i);
+                }
+                catch (IndexOutOfBoundsException e) {
+                    break;
+                }
+
+                Node frameMetadata = reader.getImageMetadata(i).getAsTree(GIF_IMAGE_METADATA);
+                int left = getIntAttribute(frameMetadata, "ImageDescriptor", "imageLeftPosition", 0);
+                int top = getIntAttribute(frameMetadata, "ImageDescriptor", "imageTopPosition", 0);
+                int delay = getIntAttribute(frameMetadata, "GraphicControlExtension", "delayTime", 0) * 10;
+                String disposal = getAttribute(frameMetadata, "GraphicControlExtension", "disposalMethod");
+
+                checkDecodedSize(sourceWidth, sourceHeight);
+                checkDecodedSize(left + sourceWidth, top + sourceHeight);
+                if (composite == null) {
+                    screen[0] = Math.max(screen[0], left + sourceWidth);
+                    screen[1] = Math.max(screen[1], top + sourceHeight);
+                    checkDecodedSize(screen[0], screen[1]);
+                }
+
+                BufferedImage frame = reader.read(i);
+
+                if (composite == null) {
+                    composite = new BufferedImage(screen[0], screen[1], BufferedImage.TYPE_INT_ARGB);
+                    graphics = composite.createGraphics();
+
+                    int subsampling = ImageDecoder.getSubsampling(composite.getWidth(), composite.getHeight(), width, height);
+                    frameWidth = ImageDecoder.getSubsampledSize(composite.getWidth(), subsampling);
+                    frameHeight = ImageDecoder.getSubsampledSize(composite.getHeight(), subsampling);
+                }
+
+                keptPixels += (long) frameWidth * frameHeight;
+                if (!frames.isEmpty() && keptPixels > MAX_ANIMATION_PIXELS) {
+                    break;
+                }
+
+                BufferedImage previous = "restoreToPrevious".equals(disposal) ? copy(composite) : null;
+
+                graphics.drawImage(frame, left, top, null);
+                frames.add(shrink(composite, frameWidth, frameHeight));
+                delays.add(delay <= 10 ? DEFAULT_DELAY : delay);
+
+                if ("restoreToBackgroundColor".equals(disposal)) {
+                    graphics.setComposite(AlphaComposite.Clear);
+                    graphics.fillRect(left, top, frame.getWidth(), frame.getHeight());
+                    graphics.setComposite(AlphaComposite.SrcOver);
+                }
+                else if (previous != null) {
+                    graphics.setComposite(AlphaComposite.Src);
+                    graphics.drawImage(previous, 0, 0, null);
+                    graphics.setComposite(AlphaComposite.SrcOver);
+                }
+            }
+        }
+        finally {
+            if (graphics != null) {
+                graphics.dispose();
+            }
+        }
+
+        if (frames.isEmpty()) {
+            throw new IOException("The GIF doesn't contain any frames.");
+        }
+
+        return new AnimatedImage(frames, delays.stream().mapToInt(Integer::intValue).toArray());
+    }
+
+    /**
+     * Returns the size of the logical screen of a GIF, which every frame is composited onto.
+     *
+     * @param reader The reader, with its input set to the GIF.
+     * @return The width and height of the logical screen, or 0 if the GIF doesn't define them.
+     * @throws IOException If the metadata of the GIF can't be read.
+     */
+    private static int[] getLogicalScreenSize(ImageReader reader) throws IOException {
+        IIOMetadata streamMetadata = reader.getStreamMetadata();
+        if (streamMetadata == null) {
+            return new int[]{ 0, 0 };
+        }
+
+        Node root = streamMetadata.getAsTree(GIF_STREAM_METADATA);
+        return new int[]{
+                getIntAttribute(root, "LogicalScreenDescriptor", "logicalScreenWidth", 0),
+                getIntAttribute(root, "LogicalScreenDescriptor", "logicalScreenHeight", 0)
+        };
+    }
+
+    /**
+     * Checks that an area of a GIF is small enough to be decoded at its full size.
+     *
+     * @param width The width of the area.
+     * @param height The height of the area.
+     * @throws IOException If the area has more than {@link ImageDecoder#MAX_DECODED_PIXELS} pixels.
+     */
+    private static void checkDecodedSize(int width, int height) throws IOException {
+        if ((long) width * height > ImageDecoder.MAX_DECODED_PIXELS) {
+            throw new IOException(String.format("The GIF is too large to be decoded: %dx%d pixels, at most %d allowed.",
+                    width, height, ImageDecoder.MAX_DECODED_PIXELS));
+        }
+    }
+
+    /**
+     * Creates a copy of a composited frame, shrunk to the given size.
+     *
+     * @param composite The composited frame.
+     * @param width The width of the copy.
+     * @param height The height of the copy.
+     * @return A new image with the pixels of the frame, which is opaque if it was shrunk.
+     */
+    private static BufferedImage shrink(BufferedImage composite, int width, int height) {
+        if (composite.getWidth() == width && composite.getHeight() == height) {
+            return copy(composite);
+        }
+
+        BufferedImage frame = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        frame.setRGB(0, 0, width, height, Resampler.resample(composite, width, height, ResamplingMode.AREA_AVERAGE), 0, width);
+        return frame;
+    }
+
+    /**
+     * Creates a copy of the given image.
+     *
+     * @param image The image to copy.
+     * @return A new image with the same pixels.
+     */
+    private static BufferedImage copy(BufferedImage image) {
+        BufferedImage copy = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_ARGB);
+        image.copyData(copy.getRaster());
+        return copy;
+    }
+
+    /**
+     * Returns the value of an attribute of a child of the given metadata node.
+     *
+     * @param root The metadata node.
+     * @param nodeName The name of the child node.
+     * @param attributeName The name of the attribute.
+     * @return The value of the attribute, or null if it doesn't exist.
+     */
+    private static String getAttribute(Node root, String nodeName, String attributeName) {
+        for (Node node = root.getFirstChild(); node != null; node = node.getNextSibling()) {
+            if (nodeName.equals(node.getNodeName()) && node.getAttributes() != null) {
+                Node attribute = node.getAttributes().getNamedItem(attributeName);
+                return attribute == null ? null : attribute.getNodeValue();
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Returns the integer value of an attribute of a child of the given metadata node.
+     *
+     * @param root The metadata node.
+     * @param nodeName The name of the child node.
+     * @param attributeName The name of the attribute.
+     * @param defaultValue The value returned if the attribute doesn't exist or isn't an integer.
+     * @return The value of the attribute.
+     */
+    private static int getIntAttribute(Node root, String nodeName, String attributeName, int defaultValue) {
+        String value = getAttribute(root, nodeName, attributeName);
+
+        try {
+            return value == null ? defaultValue : Integer.parseInt(value);
+        }
+        catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+}
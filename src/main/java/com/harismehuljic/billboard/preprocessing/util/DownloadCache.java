@@ -0,0 +1,293 @@
+package com.harismehuljic.billboard.preprocessing.util;
+
+import com.harismehuljic.billboard.Billboard;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+
+/**
+ * A content-addressed cache of downloaded files on disk.
+ * <p>
+ * Every file is stored under the SHA-256 hash of its contents, so identical files downloaded from different URLs are
+ * only stored once. An index maps each URL to the hash of the file it last returned, together with when it was
+ * downloaded, so that a URL is downloaded again once its entry is older than the maximum age.
+ *
+ * @implNote The cache is bounded in size. Reading a file marks it as recently used by updating its modification time, and
+ * once the cache grows beyond its maximum size, the least recently used files are deleted first. All methods are
+ * thread safe.
+ */
+public class DownloadCache {
+    /**
+     * The default maximum size of the cache, in bytes.
+     */
+    public static final long DEFAULT_MAX_SIZE = 256L * 1024 * 1024;
+
+    /**
+     * The default amount of time after which a URL is downloaded again, in milliseconds.
+     */
+    public static final long DEFAULT_MAX_AGE = 24L * 60 * 60 * 1000;
+
+    private static final String FILE_EXTENSION = ".bin";
+    private static final String INDEX_FILE = "index.properties";
+
+    private final Path directory;
+    private final long maxSize;
+    private final long maxAge;
+    private final Properties index = new Properties();
+
+    /**
+     * Creates a new DownloadCache, loading the index if the directory already contains one.
+     *
+     * @param directory The directory the cached files are stored in.
+     * @param maxSize The maximum total size of the cached files, in bytes.
+     * @param maxAge The amount of time after which a URL is downloaded again, in milliseconds.
+     * @throws IOException If the directory can't be created or the index can't be read.
+     * @throws IllegalArgumentException If the maximum size or age is less than or equal to 0.
+     */
+    public DownloadCache(Path directory, long maxSize, long maxAge) throws IOException, IllegalArgumentException {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("Maximum cache size must be greater than 0.");
+        }
+        else if (maxAge <= 0) {
+            throw new IllegalArgumentException("Maximum cache age must be greater than 0.");
+        }
+
+        this.directory = directory;
+        this.maxSize = maxSize;
+        this.maxAge = maxAge;
+
+        Files.createDirectories(directory);
+
+        Path indexPath = directory.resolve(INDEX_FILE);
+        if (Files.exists(indexPath)) {
+            try (InputStream stream = Files.newInputStream(indexPath)) {
+                this.index.load(stream);
+            }
+        }
+    }
+
+    /**
+     * Returns the hash of the file last downloaded from the given URL.
+     *
+     * @param url The URL of the file.
+     * @return The hex encoded SHA-256 hash of the file, or null if the URL isn't cached or its entry has expired.
+     */
+    public synchronized String getHash(String url) {
+        String entry = this.index.getProperty(url);
+        if (entry == null) {
+            return null;
+        }
+
+        int separator = entry.indexOf(' ');
+        if (separator < 0) {
+            return null;
+        }
+
+        try {
+            long downloaded = Long.parseLong(entry.substring(separator + 1));
+            if (System.currentTimeMillis() - downloaded > this.maxAge) {
+                return null;
+            }
+        }
+        catch (NumberFormatException e) {
+            return null;
+        }
+
+        return entry.substring(0, separator);
+    }
+
+    /**
+     * Reads the cached file with the given hash, and marks it as recently used.
+     *
+     * @param hash The hex encoded SHA-256 hash of the file.
+     * @return The contents of the file, or null if it isn't cached.
+     */
+    public byte[] read(String hash) {
+        Path path = this.getPath(hash);
+
+        try {
+            byte[] data = Files.readAllBytes(path);
+            Files.setLastModifiedTime(path, FileTime.fromMillis(System.currentTimeMillis()));
+            return data;
+        }
+        catch (NoSuchFileException e) {
+            return null;
+        }
+        catch (IOException e) {
+            Billboard.LOGGER.warn("Failed to read cached download {}: {}", hash, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Stores a file downloaded from the given URL, evicting the least recently used files if the cache grows too large.
+     *
+     * @param url The URL the file was downloaded from.
+     * @param data The contents of the file.
+     * @return The hex encoded SHA-256 hash of the file.
+     * @throws IOException If the file or the index can't be written.
+     */
+    public synchronized String put(String url, byte[] data) throws IOException {
+        String hash = hash(data);
+        Path path = this.getPath(hash);
+
+        if (Files.exists(path)) {
+            Files.setLastModifiedTime(path, FileTime.fromMillis(System.currentTimeMillis()));
+        }
+        else {
+            Path temporary = Files.createTempFile(this.directory, hash, ".tmp");
+            Files.write(temporary, data);
+            move(temporary, path);
+        }
+
+        this.index.setProperty(url, hash + " " + System.currentTimeMillis());
+        this.evict();
+        this.saveIndex();
+        return hash;
+    }
+
+    /**
+     * Deletes the least recently used files until the cache is within its maximum size, and removes the index entries
+     * pointing to them.
+     *
+     * @throws IOException If the directory can't be listed.
+     */
+    private void evict() throws IOException {
+        Set<String> evicted = evictLeastRecentlyUsed(this.directory, FILE_EXTENSION, this.maxSize);
+
+        if (!evicted.isEmpty()) {
+            this.index.entrySet().removeIf(entry -> evicted.contains(entry.getValue().toString().split(" ")[0]));
+        }
+    }
+
+    /**
+     * Deletes the least recently modified files with the given extension in a directory, until the total size of those
+     * files is within the given maximum size.
+     *
+     * @param directory The directory containing the files.
+     * @param extension The extension of the files, including the dot.
+     * @param maxSize The maximum total size of the files, in bytes.
+     * @return The names of the deleted files, without their extension.
+     * @throws IOException If the directory can't be listed.
+     */
+    static Set<String> evictLeastRecentlyUsed(Path directory, String extension, long maxSize) throws IOException {
+        List<Path> files = new ArrayList<>();
+        long size = 0;
+
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + extension)) {
+            for (Path file : stream) {
+                files.add(file);
+                size += Files.size(file);
+            }
+        }
+
+        Set<String> evicted = new HashSet<>();
+        if (size <= maxSize) {
+            return evicted;
+        }
+
+        files.sort(Comparator.comparing(DownloadCache::getLastModified));
+
+        for (Path file : files) {
+            if (size <= maxSize) {
+                break;
+            }
+
+            size -= Files.size(file);
+            Files.deleteIfExists(file);
+
+            String fileName = file.getFileName().toString();
+            evicted.add(fileName.substring(0, fileName.length() - extension.length()));
+        }
+
+        return evicted;
+    }
+
+    /**
+     * Writes the index to disk, replacing the previous index atomically.
+     *
+     * @throws IOException If the index can't be written.
+     */
+    private void saveIndex() throws IOException {
+        Path temporary = Files.createTempFile(this.directory, "index", ".tmp");
+
+        try (OutputStream stream = Files.newOutputStream(temporary)) {
+            this.index.store(stream, "Billboard download cache index: url = hash downloadTime");
+        }
+
+        move(temporary, this.directory.resolve(INDEX_FILE));
+    }
+
+    /**
+     * Returns the path of the cached file with the given hash.
+     *
+     * @param hash The hex encoded SHA-256 hash of the file.
+     * @return The path of the file, which might not exist.
+     */
+    private Path getPath(String hash) {
+        return this.directory.resolve(hash + FILE_EXTENSION);
+    }
+
+    /**
+     * Computes the SHA-256 hash of the given data.
+     *
+     * @param data The data to hash.
+     * @return The hex encoded hash.
+     */
+    public static String hash(byte[] data) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(data));
+        }
+        catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported by this JVM.", e);
+        }
+    }
+
+    /**
+     * Moves a file, replacing the target atomically if the file system supports it.
+     *
+     * @param source The file to move.
+     * @param target The path to move the file to.
+     * @throws IOException If the file can't be moved.
+     */
+    static void move(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        }
+        catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Returns when the given file was last modified, treating files that can't be read as the oldest.
+     *
+     * @param file The file.
+     * @return The modification time of the file.
+     */
+    private static FileTime getLastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file);
+        }
+        catch (IOException e) {
+            return FileTime.fromMillis(0);
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package com.harismehuljic.billboard.preprocessing.util;
+
+import com.harismehuljic.billboard.Billboard;
+import com.harismehuljic.billboard.preprocessing.EncodedImage;
+import com.harismehuljic.billboard.preprocessing.Image;
+import com.harismehuljic.billboard.preprocessing.data.ImageTypes;
+import com.harismehuljic.billboard.preprocessing.data.ResamplingMode;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+
+/**
+ * A cache of processed images on disk, so that an image that was already resized and processed with the same
+ * parameters can skip straight to its layout.
+ * <p>
+ * Each entry is keyed by the hash of the source image, the dimensions it was resized to, the {@link ImageTypes} it was
+ * processed with and the parameters of that type. Entries are stored in a compact binary format: a header of four
+ * integers (magic, version, width and height), followed by the packed RGB value and then the connection bitmask of every
+ * pixel, in row-major order.
+ *
+ * @implNote Entries are read by memory-mapping the file, and written to a temporary file that atomically replaces the
+ * entry, so concurrent readers never observe a partially written entry. Like the {@link DownloadCache}, the cache is
+ * bounded in size and evicts the least recently used entries first.
+ */
+public class EncodedImageCache {
+    /**
+     * The default maximum size of the cache, in bytes.
+     */
+    public static final long DEFAULT_MAX_SIZE = 256L * 1024 * 1024;
+
+    private static final int MAGIC = 0x4242494D; // "BBIM"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 4 * Integer.BYTES;
+    private static final String FILE_EXTENSION = ".img";
+
+    private final Path directory;
+    private final long maxSize;
+
+    /**
+     * Creates a new EncodedImageCache.
+     *
+     * @param directory The directory the entries are stored in.
+     * @param maxSize The maximum total size of the entries, in bytes.
+     * @throws IOException If the directory can't be created.
+     * @throws IllegalArgumentException If the maximum size is less than or equal to 0.
+     */
+    public EncodedImageCache(Path directory, long maxSize) throws IOException, IllegalArgumentException {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("Maximum cache size must be greater than 0.");
+        }
+
+        this.directory = directory;
+        this.maxSize = maxSize;
+
+        Files.createDirectories(directory);
+    }
+
+    /**
+     * Returns a cached processed image, and marks it as recently used.
+     *
+     * @param hash The hash of the source image.
+     * @param width The width the image was resized to.
+     * @param height The height the image was resized to.
+     * @param type The type the image was processed with.
+     * @param mode The filter the image was resized with.
+     * @param colorTolerance The color tolerance the image was processed with. Only used by {@link ImageTypes#LOSSY} and
+     *                       {@link ImageTypes#AUTO}.
+     * @param qualityTarget The quality target the image was processed with. Only used by {@link ImageTypes#AUTO}.
+     * @return The processed image, or null if it isn't cached.
+     */
+    public Image get(String hash, int width, int height, ImageTypes type, ResamplingMode mode, float colorTolerance, float qualityTarget) {
+        Path path = this.getPath(hash, width, height, type, mode, colorTolerance, qualityTarget);
+        int pixels = width * height;
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() != HEADER_SIZE + (long) pixels * (Integer.BYTES + Byte.BYTES)) {
+                return null;
+            }
+
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION || buffer.getInt() != width || buffer.getInt() != height) {
+                return null;
+            }
+
+            int[] pixelData = new int[pixels];
+            byte[] connectionData = new byte[pixels];
+
+            buffer.asIntBuffer().get(pixelData);
+            buffer.position(HEADER_SIZE + pixels * Integer.BYTES);
+            buffer.get(connectionData);
+
+            Files.setLastModifiedTime(path, FileTime.fromMillis(System.currentTimeMillis()));
+            return new EncodedImage(width, height, pixelData, connectionData);
+        }
+        catch (NoSuchFileException e) {
+            return null;
+        }
+        catch (IOException e) {
+            Billboard.LOGGER.warn("Failed to read cached image {}: {}", path.getFileName(), e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Stores a processed image, evicting the least recently used entries if the cache grows too large.
+     *
+     * @param hash The hash of the source image.
+     * @param type The type the image was processed with.
+     * @param mode The filter the image was resized with.
+     * @param colorTolerance The color tolerance the image was processed with. Only used by {@link ImageTypes#LOSSY} and
+     *                       {@link ImageTypes#AUTO}.
+     * @param qualityTarget The quality target the image was processed with. Only used by {@link ImageTypes#AUTO}.
+     * @param image The processed image.
+     * @throws IOException If the entry can't be written.
+     */
+    public void put(String hash, ImageTypes type, ResamplingMode mode, float colorTolerance, float qualityTarget, Image image) throws IOException {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + width * height * (Integer.BYTES + Byte.BYTES));
+
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(width).putInt(height);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                buffer.putInt(image.getRGB(x, y));
+            }
+        }
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                buffer.put(image.getConnections(x, y));
+            }
+        }
+        buffer.flip();
+
+        Path temporary = Files.createTempFile(this.directory, hash, ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+
+        DownloadCache.move(temporary, this.getPath(hash, width, height, type, mode, colorTolerance, qualityTarget));
+
+        synchronized (this) {
+            DownloadCache.evictLeastRecentlyUsed(this.directory, FILE_EXTENSION, this.maxSize);
+        }
+    }
+
+    /**
+     * Returns the path of the entry with the given key.
+     *
+     * @param hash The hash of the source image.
+     * @param width The width the image was resized to.
+     * @param height The height the image was resized to.
+     * @param type The type the image was processed with.
+     * @param mode The filter the image was resized with.
+     * @param colorTolerance The color tolerance the image was processed with. Only used by {@link ImageTypes#LOSSY} and
+     *                       {@link ImageTypes#AUTO}.
+     * @param qualityTarget The quality target the image was processed with. Only used by {@link ImageTypes#AUTO}.
+     * @return The path of the entry, which might not exist.
+     */
+    private Path getPath(String hash, int width, int height, ImageTypes type, ResamplingMode mode, float colorTolerance, float qualityTarget) {
+        String key = String.format("%s_%dx%d_%s_%s", hash, width, height, type.getType(), mode.getType());
+
+        if (type == ImageTypes.LOSSY || type == ImageTypes.AUTO) {
+            key += "_" + Integer.toHexString(Float.floatToIntBits(colorTolerance));
+        }
+        if (type == ImageTypes.AUTO) {
+            key += "_" + Integer.toHexString(Float.floatToIntBits(qualityTarget));
+        }
+
+        return this.directory.resolve(key + FILE_EXTENSION);
+    }
+}
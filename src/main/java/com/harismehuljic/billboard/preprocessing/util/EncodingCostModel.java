@@ -0,0 +1,334 @@
+package com.harismehuljic.billboard.preprocessing.util;
+
+import com.harismehuljic.billboard.preprocessing.data.EncodingEstimate;
+import com.harismehuljic.billboard.preprocessing.data.ImageTypes;
+import com.harismehuljic.billboard.rendering.CanvasPixel;
+import com.harismehuljic.billboard.rendering.CanvasScheduler;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Utility class for estimating what it costs to render an image with each of the {@link ImageTypes}, and picking the
+ * cheapest one.
+ * <p>
+ * The estimates are computed in a single pass over the resized pixels, without processing the image with every type.
+ * The entity counts of {@link ImageTypes#RAW}, {@link ImageTypes#RLE}, {@link ImageTypes#GLYPH},
+ * {@link ImageTypes#HALF} and {@link ImageTypes#LOSSY} are exact. {@link ImageTypes#RECT} is estimated by merging
+ * runs with the identical run directly above them, which is close to what the greedy rectangle search finds.
+ * <p>
+ * Besides {@link ImageTypes#LOSSY}, {@link ImageTypes#GLYPH} and {@link ImageTypes#HALF} have a mean error, since the
+ * gap the font leaves after every glyph shows the background of the pixel. Packed pixels show their gap color between
+ * glyphs of different colors, and half-block pixels show the color of their lower pixel in their upper half. Their error
+ * is the distance of every pixel from the color shown in its gap, weighted by the share of the pixel the gap covers.
+ *
+ * @implNote Packet sizes are approximations of the spawn packet, the tracked data of a canvas pixel, and the size of
+ * every styled text component it shows.
+ */
+public abstract class EncodingCostModel {
+    /**
+     * The approximate size of the packet spawning an entity, in bytes.
+     */
+    public static final int SPAWN_PACKET_BYTES = 56;
+
+    /**
+     * The approximate size of the tracked data of a canvas pixel without its text, in bytes.
+     */
+    public static final int TRACKED_DATA_BYTES = 48;
+
+    /**
+     * The approximate size of a colored text component, in bytes.
+     */
+    public static final int TEXT_RUN_BYTES = 28;
+
+    /**
+     * The quality target used when none is specified, which only allows lossless image types.
+     */
+    public static final float DEFAULT_QUALITY_TARGET = 0.0F;
+
+    /**
+     * Estimates the cost of rendering an image with every image type.
+     *
+     * @param pixels The packed RGB values of the resized image, in row-major order.
+     * @param width The width of the resized image.
+     * @param height The height of the resized image.
+     * @param colorTolerance The color tolerance used by {@link ImageTypes#LOSSY}.
+     * @param entityBudget The amount of entities spawned per tick.
+     * @return The estimate of every image type except {@link ImageTypes#AUTO}, in the order of the types.
+     * @throws IllegalArgumentException If the amount of pixels does not match the dimensions.
+     */
+    public static List<EncodingEstimate> estimate(int[] pixels, int width, int height, float colorTolerance, int entityBudget) throws IllegalArgumentException {
+        if (pixels.length != width * height) {
+            throw new IllegalArgumentException(String.format("Expected %d pixels, but got %d.", width * height, pixels.length));
+        }
+
+        int runs = 0;
+        int rectangles = 0;
+        int glyphRuns = 0;
+        int halfBlocks = 0;
+        int lossyRuns = 0;
+        double lossyError = 0;
+        double glyphError = 0;
+        double halfError = 0;
+
+        int[] runEnds = new int[width];
+        int[] runEndsAbove = new int[width];
+        float[] lab = new float[width * 3];
+        float[] runMean = new float[3];
+
+        for (int y = 0; y < height; y++) {
+            int rowStart = y * width;
+            int runStart = 0;
+
+            for (int x = 1; x <= width; x++) {
+                if (x < width && pixels[rowStart + x] == pixels[rowStart + x - 1]) {
+                    if (x % CanvasPixel.MAX_GLYPHS == 0) {
+                        glyphRuns++;
+                    }
+                    continue;
+                }
+
+                runs++;
+                glyphRuns++;
+                runEnds[runStart] = x;
+                if (!continuesRunAbove(pixels, rowStart, width, runStart, x, runEndsAbove)) {
+                    rectangles++;
+                }
+                runStart = x;
+            }
+
+            if (y % 2 == 0 && y + 1 < height) {
+                halfBlocks += countPairRuns(pixels, rowStart, width);
+                halfError += getPairGapError(pixels, rowStart, width);
+            }
+            else if (y % 2 == 0) {
+                halfBlocks += countRuns(pixels, rowStart, width);
+            }
+
+            for (int x = 0; x < width; x++) {
+                PerceptualColor.toOklab(pixels[rowStart + x], lab, x * 3);
+            }
+
+            for (int segmentStart = 0; segmentStart < width; segmentStart += CanvasPixel.MAX_GLYPHS) {
+                int segmentEnd = Math.min(segmentStart + CanvasPixel.MAX_GLYPHS, width);
+                PerceptualColor.toOklab(CanvasPixel.getGapColor(pixels, rowStart + segmentStart, rowStart + segmentEnd), runMean, 0);
+                for (int x = segmentStart; x < segmentEnd; x++) {
+                    glyphError += PerceptualColor.distance(lab, x * 3, runMean, 0) / CanvasPixel.PIXEL_TEXT_WIDTH;
+                }
+            }
+
+            runStart = 0;
+            float sumL = lab[0], sumA = lab[1], sumB = lab[2];
+            for (int x = 1; x <= width; x++) {
+                int runLength = x - runStart;
+                runMean[0] = sumL / runLength;
+                runMean[1] = sumA / runLength;
+                runMean[2] = sumB / runLength;
+
+                if (x < width && PerceptualColor.distance(lab, x * 3, runMean, 0) <= colorTolerance) {
+                    sumL += lab[x * 3];
+                    sumA += lab[x * 3 + 1];
+                    sumB += lab[x * 3 + 2];
+                    continue;
+                }
+
+                lossyRuns++;
+                if (runLength > 1) {
+                    for (int i = runStart; i < x; i++) {
+                        lossyError += PerceptualColor.distance(lab, i * 3, runMean, 0);
+                    }
+                }
+
+                if (x < width) {
+                    runStart = x;
+                    sumL = lab[x * 3];
+                    sumA = lab[x * 3 + 1];
+                    sumB = lab[x * 3 + 2];
+                }
+            }
+
+            int[] swap = runEndsAbove;
+            runEndsAbove = runEnds;
+            runEnds = swap;
+        }
+
+        int pixelCount = width * height;
+        int segments = height * ((width + CanvasPixel.MAX_GLYPHS - 1) / CanvasPixel.MAX_GLYPHS);
+
+        List<EncodingEstimate> estimates = new ArrayList<>();
+        for (ImageTypes type : ImageTypes.values()) {
+            EncodingEstimate estimate = switch (type) {
+                case RAW -> createEstimate(type, pixelCount, pixelCount, 0, entityBudget);
+                case RLE -> createEstimate(type, runs, runs, 0, entityBudget);
+                case RECT -> createEstimate(type, rectangles, rectangles, 0, entityBudget);
+                case LOSSY -> createEstimate(type, lossyRuns, lossyRuns, (float) (lossyError / pixelCount), entityBudget);
+                case GLYPH -> createEstimate(type, segments, glyphRuns, (float) (glyphError / pixelCount), entityBudget);
+                case HALF -> createEstimate(type, halfBlocks, halfBlocks, (float) (halfError / pixelCount), entityBudget);
+                case AUTO -> null;
+            };
+
+            if (estimate != null) {
+                estimates.add(estimate);
+            }
+        }
+
+        return estimates;
+    }
+
+    /**
+     * Picks the cheapest estimate that meets a quality target. Estimates are compared by entity count first, then by
+     * mean error, and by packet size if both are equal.
+     *
+     * @param estimates The estimates to pick from.
+     * @param maxError The highest mean error an estimate may have.
+     * @return The cheapest estimate meeting the quality target.
+     * @throws IllegalArgumentException If no estimate meets the quality target.
+     */
+    public static EncodingEstimate select(List<EncodingEstimate> estimates, float maxError) throws IllegalArgumentException {
+        EncodingEstimate cheapest = null;
+
+        for (EncodingEstimate estimate : estimates) {
+            if (estimate.getMeanError() > maxError) {
+                continue;
+            }
+
+            if (cheapest == null || estimate.getEntityCount() < cheapest.getEntityCount()
+                    || (estimate.getEntityCount() == cheapest.getEntityCount() && estimate.getMeanError() < cheapest.getMeanError())
+                    || (estimate.getEntityCount() == cheapest.getEntityCount() && estimate.getMeanError() == cheapest.getMeanError()
+                        && estimate.getPacketBytes() < cheapest.getPacketBytes())) {
+                cheapest = estimate;
+            }
+        }
+
+        if (cheapest == null) {
+            throw new IllegalArgumentException("No image type meets a mean error of " + maxError + ".");
+        }
+
+        return cheapest;
+    }
+
+    /**
+     * Picks the cheapest image type for an image that meets a quality target.
+     *
+     * @param pixels The packed RGB values of the resized image, in row-major order.
+     * @param width The width of the resized image.
+     * @param height The height of the resized image.
+     * @param colorTolerance The color tolerance used by {@link ImageTypes#LOSSY}.
+     * @param qualityTarget The highest mean error the picked type may have. A target of 0 only allows lossless types.
+     * @return The cheapest image type meeting the quality target.
+     * @throws IllegalArgumentException If the quality target is negative.
+     *
+     * @implNote The color tolerance only changes what {@link ImageTypes#LOSSY} costs, not whether it may be picked.
+     * {@link ImageTypes#RAW} is always lossless, so some type always meets a valid quality target.
+     */
+    public static ImageTypes select(int[] pixels, int width, int height, float colorTolerance, float qualityTarget) throws IllegalArgumentException {
+        if (qualityTarget < 0) {
+            throw new IllegalArgumentException("Quality target must be greater than or equal to 0.");
+        }
+
+        List<EncodingEstimate> estimates = estimate(pixels, width, height, colorTolerance, CanvasScheduler.DEFAULT_ENTITY_BUDGET);
+        return select(estimates, qualityTarget).getType();
+    }
+
+    /**
+     * Checks whether a run has the same position, length and color as a run in the row above it.
+     *
+     * @param pixels The pixels of the image.
+     * @param rowStart The index of the first pixel of the row of the run.
+     * @param width The width of the image.
+     * @param start The first column of the run.
+     * @param end The column after the last pixel of the run.
+     * @param runEndsAbove The end of every run in the row above, indexed by the first column of the run.
+     * @return true if the run would be merged into a rectangle started above it.
+     */
+    private static boolean continuesRunAbove(int[] pixels, int rowStart, int width, int start, int end, int[] runEndsAbove) {
+        if (rowStart == 0) {
+            return false;
+        }
+
+        int aboveStart = rowStart - width;
+        return pixels[aboveStart + start] == pixels[rowStart + start]
+                && (start == 0 || pixels[aboveStart + start - 1] != pixels[aboveStart + start])
+                && runEndsAbove[start] == end;
+    }
+
+    /**
+     * Counts the runs of equal colors in a row.
+     *
+     * @param pixels The pixels of the image.
+     * @param rowStart The index of the first pixel of the row.
+     * @param width The width of the image.
+     * @return The amount of runs.
+     */
+    private static int countRuns(int[] pixels, int rowStart, int width) {
+        int runs = 1;
+        for (int x = 1; x < width; x++) {
+            if (pixels[rowStart + x] != pixels[rowStart + x - 1]) {
+                runs++;
+            }
+        }
+        return runs;
+    }
+
+    /**
+     * Counts the runs of equal color pairs in a row and the row below it.
+     *
+     * @param pixels The pixels of the image.
+     * @param rowStart The index of the first pixel of the upper row.
+     * @param width The width of the image.
+     * @return The amount of runs.
+     */
+    private static int countPairRuns(int[] pixels, int rowStart, int width) {
+        int runs = 1;
+        for (int x = 1; x < width; x++) {
+            if (pixels[rowStart + x] != pixels[rowStart + x - 1] || pixels[rowStart + width + x] != pixels[rowStart + width + x - 1]) {
+                runs++;
+            }
+        }
+        return runs;
+    }
+
+    /**
+     * Returns the error caused by the gaps of the half-block pixels of a row and the row below it.
+     *
+     * @param pixels The pixels of the image.
+     * @param rowStart The index of the first pixel of the upper row.
+     * @param width The width of the image.
+     * @return The summed error of the upper pixels, which show the color of the lower pixel in their gap.
+     */
+    private static double getPairGapError(int[] pixels, int rowStart, int width) {
+        float[] upper = new float[3];
+        float[] lower = new float[3];
+        double error = 0;
+
+        for (int x = 0; x < width; x++) {
+            int upperColor = pixels[rowStart + x];
+            int lowerColor = pixels[rowStart + width + x];
+            if (upperColor == lowerColor) {
+                continue;
+            }
+
+            PerceptualColor.toOklab(upperColor, upper, 0);
+            PerceptualColor.toOklab(lowerColor, lower, 0);
+            error += PerceptualColor.distance(upper, 0, lower, 0) / CanvasPixel.PIXEL_TEXT_WIDTH;
+        }
+
+        return error;
+    }
+
+    /**
+     * Creates the estimate of an image type.
+     *
+     * @param type The image type.
+     * @param entityCount The amount of entities.
+     * @param textRuns The amount of colored text components shown by all entities together.
+     * @param meanError The mean perceptual error of each pixel.
+     * @param entityBudget The amount of entities spawned per tick.
+     * @return The estimate.
+     */
+    private static EncodingEstimate createEstimate(ImageTypes type, int entityCount, int textRuns, float meanError, int entityBudget) {
+        long packetBytes = (long) entityCount * (SPAWN_PACKET_BYTES + TRACKED_DATA_BYTES) + (long) textRuns * TEXT_RUN_BYTES;
+        int buildTicks = (entityCount + entityBudget - 1) / entityBudget;
+        return new EncodingEstimate(type, entityCount, packetBytes, buildTicks, meanError);
+    }
+}
@@ -0,0 +1,152 @@
+package com.harismehuljic.billboard.preprocessing.util;
+
+import com.harismehuljic.billboard.preprocessing.data.SourceImage;
+import com.harismehuljic.billboard.util.PipelineStats;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Iterator;
+
+/**
+ * Utility class for decoding images no larger than the canvas they are shown on needs.
+ * <p>
+ * The dimensions of an image are read from its header before any pixels are decoded. Images with more than
+ * {@link ImageDecoder#MAX_SOURCE_PIXELS} pixels are rejected, and larger images are decoded with source subsampling, so
+ * that only every n-th pixel of every n-th row is kept. The subsampling is chosen so that the decoded image is still at
+ * least {@link ImageDecoder#OVERSAMPLING} times the size of the canvas, which leaves the {@link Resampler} enough pixels
+ * to filter.
+ *
+ * @implNote The standard readers decode subsampled images row by row into an image of the subsampled size, so the
+ * memory needed depends on the size of the canvas, not on the size of the source image.
+ */
+public abstract class ImageDecoder {
+    /**
+     * The maximum amount of pixels of a source image. Larger images are rejected without being decoded.
+     */
+    public static final long MAX_SOURCE_PIXELS = 16384L * 16384;
+
+    /**
+     * The maximum amount of pixels of a decoded image. Larger images are subsampled until they fit.
+     */
+    public static final long MAX_DECODED_PIXELS = 4096L * 4096;
+
+    /**
+     * How many times larger than the canvas a subsampled image is kept in each direction.
+     */
+    public static final int OVERSAMPLING = 2;
+
+    /**
+     * Decodes a downloaded image, subsampling it for a canvas of the given size.
+     *
+     * @param data The contents of the downloaded file.
+     * @param width The width of the canvas the image is decoded for, or 0 if it isn't known.
+     * @param height The height of the canvas the image is decoded for, or 0 if it isn't known.
+     * @return The decoded image together with the dimensions of the source image, or null if the file isn't an image in
+     * a supported format.
+     * @throws IOException If the file can't be read, or the image has too many pixels.
+     *
+     * @see ImageDecoder#getSubsampling(int, int, int, int)
+     */
+    public static SourceImage decode(byte[] data, int width, int height) throws IOException {
+        try (PipelineStats.Timer timer = PipelineStats.time(PipelineStats.Stage.DECODE);
+             ImageInputStream stream = ImageIO.createImageInputStream(new ByteArrayInputStream(data))) {
+            if (stream == null) {
+                return null;
+            }
+
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(stream);
+            if (!readers.hasNext()) {
+                return null;
+            }
+
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(stream, true, true);
+
+                BufferedImage image = reader.read(0, getReadParam(reader, width, height));
+                return new SourceImage(DownloadCache.hash(data), image, reader.getWidth(0), reader.getHeight(0));
+            }
+            finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Returns the parameters for reading the first image of a reader for a canvas of the given size.
+     *
+     * @param reader The reader, with its input set to the image.
+     * @param width The width of the canvas the image is decoded for, or 0 if it isn't known.
+     * @param height The height of the canvas the image is decoded for, or 0 if it isn't known.
+     * @return The parameters, subsampling the image if it is much larger than the canvas.
+     * @throws IOException If the header of the image can't be read, or the image has too many pixels.
+     */
+    static ImageReadParam getReadParam(ImageReader reader, int width, int height) throws IOException {
+        int sourceWidth = reader.getWidth(0);
+        int sourceHeight = reader.getHeight(0);
+        checkSourceSize(sourceWidth, sourceHeight);
+
+        ImageReadParam param = reader.getDefaultReadParam();
+        int subsampling = getSubsampling(sourceWidth, sourceHeight, width, height);
+        if (subsampling > 1) {
+            param.setSourceSubsampling(subsampling, subsampling, subsampling / 2, subsampling / 2);
+        }
+
+        return param;
+    }
+
+    /**
+     * Returns the subsampling used to decode an image for a canvas.
+     *
+     * @param sourceWidth The width of the source image.
+     * @param sourceHeight The height of the source image.
+     * @param width The width of the canvas, or 0 if it isn't known.
+     * @param height The height of the canvas, or 0 if it isn't known.
+     * @return The subsampling in both directions, where 1 decodes every pixel.
+     *
+     * @implNote The same subsampling is used in both directions, so the aspect ratio of the decoded image matches the
+     * source image. Each kept pixel is taken from the center of the block of pixels it replaces.
+     */
+    public static int getSubsampling(int sourceWidth, int sourceHeight, int width, int height) {
+        int subsampling = 1;
+        if (width > 0 && height > 0) {
+            subsampling = Math.max(1, Math.min(sourceWidth / (width * OVERSAMPLING), sourceHeight / (height * OVERSAMPLING)));
+        }
+
+        while ((long) getSubsampledSize(sourceWidth, subsampling) * getSubsampledSize(sourceHeight, subsampling) > MAX_DECODED_PIXELS) {
+            subsampling++;
+        }
+
+        return subsampling;
+    }
+
+    /**
+     * Checks that a source image doesn't have too many pixels to be decoded.
+     *
+     * @param width The width of the source image.
+     * @param height The height of the source image.
+     * @throws IOException If the image has more than {@link ImageDecoder#MAX_SOURCE_PIXELS} pixels.
+     */
+    static void checkSourceSize(int width, int height) throws IOException {
+        if (width <= 0 || height <= 0 || (long) width * height > MAX_SOURCE_PIXELS) {
+            throw new IOException(String.format("The image is too large to be decoded: %dx%d pixels, at most %d allowed.",
+                    width, height, MAX_SOURCE_PIXELS));
+        }
+    }
+
+    /**
+     * Returns the length of a dimension of a subsampled image.
+     *
+     * @param length The length of the dimension in the source image.
+     * @param subsampling The subsampling of the dimension.
+     * @return The amount of pixels kept in the dimension.
+     */
+    static int getSubsampledSize(int length, int subsampling) {
+        return (length - subsampling / 2 + subsampling - 1) / subsampling;
+    }
+}
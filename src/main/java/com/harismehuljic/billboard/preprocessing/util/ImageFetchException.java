@@ -0,0 +1,94 @@
+package com.harismehuljic.billboard.preprocessing.util;
+
+import java.io.IOException;
+
+/**
+ * Signals that an image couldn't be downloaded by the {@link ImageFetcher}, together with the reason why.
+ */
+public class ImageFetchException extends IOException {
+    private final Reason reason;
+    private final int statusCode;
+
+    /**
+     * Constructs an ImageFetchException.
+     *
+     * @param reason Why the download failed.
+     * @param message The detail message.
+     */
+    public ImageFetchException(Reason reason, String message) {
+        this(reason, message, null);
+    }
+
+    /**
+     * Constructs an ImageFetchException caused by another exception.
+     *
+     * @param reason Why the download failed.
+     * @param message The detail message.
+     * @param cause The exception that made the download fail, or null if there is none.
+     */
+    public ImageFetchException(Reason reason, String message, Throwable cause) {
+        super(message, cause);
+        this.reason = reason;
+        this.statusCode = 0;
+    }
+
+    /**
+     * Constructs an ImageFetchException for a response with an unsuccessful status code.
+     *
+     * @param url The URL that was requested.
+     * @param statusCode The HTTP status code of the response.
+     */
+    public ImageFetchException(String url, int statusCode) {
+        super(String.format("The server responded with status %d for %s", statusCode, url));
+        this.reason = Reason.HTTP_STATUS;
+        this.statusCode = statusCode;
+    }
+
+    /**
+     * Returns why the download failed.
+     *
+     * @return The reason of the failure.
+     */
+    public Reason getReason() {
+        return this.reason;
+    }
+
+    /**
+     * Returns the HTTP status code of the response.
+     *
+     * @return The status code, or 0 if the download didn't fail because of the status code.
+     */
+    public int getStatusCode() {
+        return this.statusCode;
+    }
+
+    /**
+     * The reasons a download can fail.
+     */
+    public enum Reason {
+        /**
+         * The URL is malformed, or doesn't use HTTP or HTTPS.
+         */
+        INVALID_URL,
+        /**
+         * The server responded with a status code other than 2xx.
+         */
+        HTTP_STATUS,
+        /**
+         * The response is larger than {@link ImageFetcher#MAX_DOWNLOAD_BYTES}.
+         */
+        TOO_LARGE,
+        /**
+         * Connecting, waiting for a free download slot or downloading took too long.
+         */
+        TIMEOUT,
+        /**
+         * The connection failed or was closed.
+         */
+        NETWORK,
+        /**
+         * The download was interrupted.
+         */
+        INTERRUPTED
+    }
+}
@@ -0,0 +1,255 @@
+package com.harismehuljic.billboard.preprocessing.util;
+
+import java.io.ByteArrayOutputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Utility class for downloading images over HTTP.
+ * <p>
+ * Downloads share a single {@link HttpClient}, which keeps connections to each host open for reuse. At most
+ * {@link ImageFetcher#MAX_CONCURRENT_DOWNLOADS} downloads run at once, every download is limited to
+ * {@link ImageFetcher#MAX_DOWNLOAD_BYTES} bytes and must finish within {@link ImageFetcher#REQUEST_TIMEOUT}, and every
+ * failure is reported as an {@link ImageFetchException}.
+ *
+ * @implNote Downloads block, so they are meant to run on the virtual threads of {@link ImageFetcher#getExecutor()}. A
+ * slow or stalled server then only holds a cheap virtual thread, never a thread of the {@link com.harismehuljic.billboard.util.WorkerPool}.
+ * Responses are counted while they are received and cancelled as soon as they exceed the limit, so a huge response
+ * never has to fit into memory.
+ */
+public abstract class ImageFetcher {
+    /**
+     * The maximum amount of downloads that run at the same time. Further downloads wait for a free slot.
+     */
+    public static final int MAX_CONCURRENT_DOWNLOADS = 8;
+
+    /**
+     * The maximum size of a downloaded file, in bytes.
+     */
+    public static final long MAX_DOWNLOAD_BYTES = 32L * 1024 * 1024;
+
+    /**
+     * The maximum time spent connecting to a server.
+     */
+    public static final Duration CONNECT_TIMEOUT = Duration.ofSeconds(10);
+
+    /**
+     * The maximum time spent waiting for a free download slot, and the maximum time a download may take once it started.
+     */
+    public static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+
+    private static final String USER_AGENT = "Map";
+
+    private static final ExecutorService EXECUTOR = Executors.newThreadPerTaskExecutor(Thread.ofVirtual()
+            .name("Billboard Download #", 1)
+            .factory());
+    private static final Semaphore DOWNLOADS = new Semaphore(MAX_CONCURRENT_DOWNLOADS, true);
+    private static final HttpClient CLIENT = HttpClient.newBuilder()
+            .executor(EXECUTOR)
+            .connectTimeout(CONNECT_TIMEOUT)
+            .followRedirects(HttpClient.Redirect.NORMAL)
+            .build();
+
+    /**
+     * Returns the executor downloads are meant to run on.
+     *
+     * @return An executor starting a new virtual thread for every task.
+     */
+    public static ExecutorService getExecutor() {
+        return EXECUTOR;
+    }
+
+    /**
+     * Downloads the contents of the given URL, blocking until the download is done.
+     *
+     * @param url The URL to download, which must use HTTP or HTTPS.
+     * @return The contents of the URL.
+     * @throws ImageFetchException If the URL is invalid, or the download fails, takes too long or is too large.
+     *
+     * @implNote The request is sent asynchronously and waited for with a timeout, since the timeout of the request
+     * itself only covers receiving the response headers, not the body.
+     */
+    public static byte[] fetch(String url) throws ImageFetchException {
+        HttpRequest request = HttpRequest.newBuilder(toURI(url))
+                .timeout(REQUEST_TIMEOUT)
+                .header("User-Agent", USER_AGENT)
+                .GET()
+                .build();
+
+        try {
+            if (!DOWNLOADS.tryAcquire(REQUEST_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS)) {
+                throw new ImageFetchException(ImageFetchException.Reason.TIMEOUT, "Too many downloads are in progress, try again later.");
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ImageFetchException(ImageFetchException.Reason.INTERRUPTED, "The download of " + url + " was interrupted.", e);
+        }
+
+        CompletableFuture<HttpResponse<byte[]>> response = CLIENT.sendAsync(request, info -> new LimitedBodySubscriber(url, info));
+        try {
+            return response.get(REQUEST_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS).body();
+        }
+        catch (TimeoutException e) {
+            throw new ImageFetchException(ImageFetchException.Reason.TIMEOUT,
+                    String.format("Downloading %s took longer than %d seconds.", url, REQUEST_TIMEOUT.toSeconds()), e);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ImageFetchException(ImageFetchException.Reason.INTERRUPTED, "The download of " + url + " was interrupted.", e);
+        }
+        catch (ExecutionException e) {
+            throw toFetchException(url, e.getCause());
+        }
+        finally {
+            response.cancel(true);
+            DOWNLOADS.release();
+        }
+    }
+
+    /**
+     * Parses a URL, checking that it can be downloaded.
+     *
+     * @param url The URL to parse.
+     * @return The URI of the URL.
+     * @throws ImageFetchException If the URL is malformed or doesn't use HTTP or HTTPS.
+     */
+    private static URI toURI(String url) throws ImageFetchException {
+        URI uri;
+        try {
+            uri = new URI(url);
+        }
+        catch (URISyntaxException e) {
+            throw new ImageFetchException(ImageFetchException.Reason.INVALID_URL, "Invalid URL: " + url, e);
+        }
+
+        if ((!"http".equalsIgnoreCase(uri.getScheme()) && !"https".equalsIgnoreCase(uri.getScheme())) || uri.getHost() == null) {
+            throw new ImageFetchException(ImageFetchException.Reason.INVALID_URL, "Only HTTP and HTTPS URLs can be downloaded: " + url);
+        }
+
+        return uri;
+    }
+
+    /**
+     * Converts the exception a download failed with into an ImageFetchException.
+     *
+     * @param url The URL that was downloaded.
+     * @param cause The exception the download failed with.
+     * @return The ImageFetchException in the causes of the exception, or a new one wrapping it.
+     */
+    private static ImageFetchException toFetchException(String url, Throwable cause) {
+        for (Throwable t = cause; t != null; t = t.getCause()) {
+            if (t instanceof ImageFetchException fetchException) {
+                return fetchException;
+            }
+            else if (t instanceof HttpTimeoutException) {
+                return new ImageFetchException(ImageFetchException.Reason.TIMEOUT, "Timed out downloading " + url, cause);
+            }
+        }
+
+        return new ImageFetchException(ImageFetchException.Reason.NETWORK, String.format("Failed to download %s: %s", url, cause), cause);
+    }
+
+    /**
+     * Collects the body of a response, failing as soon as it exceeds {@link ImageFetcher#MAX_DOWNLOAD_BYTES}, or right
+     * away if the response was unsuccessful or announces a larger body.
+     */
+    private static class LimitedBodySubscriber implements HttpResponse.BodySubscriber<byte[]> {
+        private final CompletableFuture<byte[]> body = new CompletableFuture<>();
+        private final String url;
+        private final ByteArrayOutputStream buffer;
+        private Flow.Subscription subscription;
+
+        /**
+         * Creates a new LimitedBodySubscriber for a response.
+         *
+         * @param url The URL that was requested.
+         * @param info The status code and headers of the response.
+         */
+        LimitedBodySubscriber(String url, HttpResponse.ResponseInfo info) {
+            this.url = url;
+
+            long length = info.headers().firstValueAsLong("Content-Length").orElse(-1);
+            if (info.statusCode() / 100 != 2) {
+                this.body.completeExceptionally(new ImageFetchException(url, info.statusCode()));
+            }
+            else if (length > MAX_DOWNLOAD_BYTES) {
+                this.body.completeExceptionally(this.tooLarge());
+            }
+
+            this.buffer = new ByteArrayOutputStream(length > 0 && length <= MAX_DOWNLOAD_BYTES ? (int) length : 8192);
+        }
+
+        @Override
+        public CompletionStage<byte[]> getBody() {
+            return this.body;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+
+            if (this.body.isDone()) {
+                subscription.cancel();
+            }
+            else {
+                subscription.request(Long.MAX_VALUE);
+            }
+        }
+
+        @Override
+        public void onNext(List<ByteBuffer> items) {
+            if (this.body.isDone()) {
+                return;
+            }
+
+            for (ByteBuffer item : items) {
+                if (this.buffer.size() + (long) item.remaining() > MAX_DOWNLOAD_BYTES) {
+                    this.body.completeExceptionally(this.tooLarge());
+                    this.subscription.cancel();
+                    return;
+                }
+
+                byte[] chunk = new byte[item.remaining()];
+                item.get(chunk);
+                this.buffer.write(chunk, 0, chunk.length);
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            this.body.completeExceptionally(toFetchException(this.url, throwable));
+        }
+
+        @Override
+        public void onComplete() {
+            this.body.complete(this.buffer.toByteArray());
+        }
+
+        /**
+         * Creates the exception for a response that is too large.
+         *
+         * @return The exception.
+         */
+        private ImageFetchException tooLarge() {
+            return new ImageFetchException(ImageFetchException.Reason.TOO_LARGE,
+                    String.format("%s is larger than %d MiB.", this.url, MAX_DOWNLOAD_BYTES / (1024 * 1024)));
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.harismehuljic.billboard.preprocessing.util;
+
+import com.harismehuljic.billboard.Billboard;
+import com.harismehuljic.billboard.preprocessing.GlyphPackedImage;
+import com.harismehuljic.billboard.preprocessing.HalfBlockEncodedImage;
+import com.harismehuljic.billboard.preprocessing.Image;
+import com.harismehuljic.billboard.preprocessing.PerceptualRunLengthEncodedImage;
+import com.harismehuljic.billboard.preprocessing.RawImage;
+import com.harismehuljic.billboard.preprocessing.RectangleEncodedImage;
+import com.harismehuljic.billboard.preprocessing.RunLengthEncodedImage;
+import com.harismehuljic.billboard.preprocessing.data.ImageTypes;
+import com.harismehuljic.billboard.preprocessing.data.ResamplingMode;
+import com.harismehuljic.billboard.preprocessing.data.SourceImage;
+import com.harismehuljic.billboard.util.PipelineStats;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+
+/**
+ * Utility class for resizing and processing images into one of the {@link ImageTypes}.
+ *
+ * @implNote Images with a known source hash are looked up in the {@link EncodedImageCache} first, if one is set, and
+ * stored in it after processing.
+ */
+public abstract class ImageProcessor {
+    private static volatile EncodedImageCache encodedImageCache;
+
+    /**
+     * Resizes and processes an image.
+     *
+     * @param image The image to process.
+     * @param width The width to resize the image to.
+     * @param height The height to resize the image to.
+     * @param type The type of processing to apply.
+     * @param mode The filter used to resize the image.
+     * @param colorTolerance The color tolerance used by {@link ImageTypes#LOSSY}.
+     * @param qualityTarget The highest mean error the type picked by {@link ImageTypes#AUTO} may have.
+     * @return The processed image.
+     */
+    public static Image process(BufferedImage image, int width, int height, ImageTypes type, ResamplingMode mode, float colorTolerance, float qualityTarget) {
+        return encode(Resampler.resample(image, width, height, mode), width, height, type, colorTolerance, qualityTarget);
+    }
+
+    /**
+     * Processes resized pixels.
+     *
+     * @param pixels The packed RGB values of the resized image, in row-major order. The array is used without being
+     *               copied.
+     * @param width The width of the resized image.
+     * @param height The height of the resized image.
+     * @param type The type of processing to apply.
+     * @param colorTolerance The color tolerance used by {@link ImageTypes#LOSSY}.
+     * @param qualityTarget The highest mean error the type picked by {@link ImageTypes#AUTO} may have.
+     * @return The processed image.
+     *
+     * @implNote {@link ImageTypes#AUTO} processes the pixels with the type the {@link EncodingCostModel} estimates to be
+     * the cheapest, so the image is still only resized once.
+     */
+    private static Image encode(int[] pixels, int width, int height, ImageTypes type, float colorTolerance, float qualityTarget) {
+        try (PipelineStats.Timer timer = PipelineStats.time(PipelineStats.Stage.ENCODE)) {
+            ImageTypes encodedType = type == ImageTypes.AUTO
+                    ? EncodingCostModel.select(pixels, width, height, colorTolerance, qualityTarget)
+                    : type;
+
+            return switch (encodedType) {
+                case RLE -> new RunLengthEncodedImage(width, height, pixels);
+                case RAW -> new RawImage(width, height, pixels);
+                case RECT -> new RectangleEncodedImage(width, height, pixels);
+                case LOSSY -> new PerceptualRunLengthEncodedImage(width, height, pixels, colorTolerance);
+                case GLYPH -> new GlyphPackedImage(width, height, pixels);
+                case HALF -> new HalfBlockEncodedImage(width, height, pixels);
+                case AUTO -> throw new IllegalStateException("The cost model picked the auto type.");
+            };
+        }
+    }
+
+    /**
+     * Resizes and processes a downloaded image, reusing a cached result if the same image was already processed with
+     * the same parameters.
+     *
+     * @param source The image to process.
+     * @param width The width to resize the image to.
+     * @param height The height to resize the image to.
+     * @param type The type of processing to apply.
+     * @param mode The filter used to resize the image.
+     * @param colorTolerance The color tolerance used by {@link ImageTypes#LOSSY}.
+     * @param qualityTarget The highest mean error the type picked by {@link ImageTypes#AUTO} may have.
+     * @return The processed image.
+     */
+    public static Image process(SourceImage source, int width, int height, ImageTypes type, ResamplingMode mode, float colorTolerance, float qualityTarget) {
+        EncodedImageCache cache = encodedImageCache;
+        if (cache == null) {
+            return process(source.getImage(), width, height, type, mode, colorTolerance, qualityTarget);
+        }
+
+        Image cached = cache.get(source.getHash(), width, height, type, mode, colorTolerance, qualityTarget);
+        if (cached != null) {
+            return cached;
+        }
+
+        Image processed = process(source.getImage(), width, height, type, mode, colorTolerance, qualityTarget);
+        try {
+            cache.put(source.getHash(), type, mode, colorTolerance, qualityTarget, processed);
+        }
+        catch (IOException e) {
+            Billboard.LOGGER.warn("Failed to cache processed image {}: {}", source.getHash(), e.getMessage());
+        }
+
+        return processed;
+    }
+
+    /**
+     * Sets the cache processed images are stored in.
+     *
+     * @param cache The processed image cache, or null to always process images.
+     *
+     * @implNote This is set once the server has started, since the cache is stored in the world folder.
+     */
+    public static void setEncodedImageCache(EncodedImageCache cache) {
+        encodedImageCache = cache;
+    }
+}
@@ -1,53 +1,305 @@
 package com.harismehuljic.billboard.preprocessing.util;
 
-import javax.imageio.ImageIO;
+import com.harismehuljic.billboard.Billboard;
+import com.harismehuljic.billboard.preprocessing.data.AnimatedImage;
+import com.harismehuljic.billboard.preprocessing.data.SourceImage;
+import com.harismehuljic.billboard.util.PipelineStats;
+import com.harismehuljic.billboard.util.WorkerPool;
+
 import java.awt.image.BufferedImage;
-import java.net.URL;
-import java.net.URLConnection;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Utility class for fetching images from a URL asynchronously.
  * It checks if the input is a valid URL and retrieves the image.
+ *
+ * @implNote Downloads run on the virtual threads of the {@link ImageFetcher}, and decoding happens on the
+ * {@link WorkerPool}, never on the server thread. Downloads are stored
+ * in the {@link DownloadCache}, if one is set, so repeated requests for the same URL skip the network. Recently decoded
+ * images are additionally kept in memory. Concurrent requests for the same URL share a single download, even for
+ * canvases of different sizes, and concurrent requests for the same URL and size also share the decoding. Images
+ * requested for a canvas of a known size are decoded by the {@link ImageDecoder}, so huge images are subsampled while
+ * they are decoded instead of afterwards.
  */
 public abstract class ImageRequester {
+    /**
+     * The maximum total amount of pixels of the decoded images kept in memory.
+     */
+    public static final long MAX_DECODED_PIXELS = 16L * 1024 * 1024;
+
+    private static final Map<String, CompletableFuture<SourceImage>> IN_FLIGHT = new ConcurrentHashMap<>();
+    private static final Map<String, CompletableFuture<byte[]>> IN_FLIGHT_DOWNLOADS = new ConcurrentHashMap<>();
+    private static final LinkedHashMap<String, SourceImage> DECODED = new LinkedHashMap<>(16, 0.75F, true);
+    private static long decodedPixels = 0;
+
+    private static volatile DownloadCache downloadCache;
+
     /**
      * Asynchronously fetches an image from the given URL.
      *
      * @param input The URL of the image as a String.
-     * @return A CompletableFuture that resolves to a BufferedImage or null if the URL is invalid or an error occurs.
+     * @return A CompletableFuture that resolves to a BufferedImage, or null if the downloaded file isn't an image. The
+     * image may be shared with other callers, so it must not be modified.
+     *
+     * @see ImageRequester#getSourceImage(String, int, int)
      */
     public static CompletableFuture<BufferedImage> getImage(String input) {
-        return CompletableFuture.supplyAsync(() -> {
-            try {
-                if (validURL(input)) {
-                    URL url = new URL(input);
-                    URLConnection connection = url.openConnection();
-                    connection.setRequestProperty("User-Agent", "Map");
-                    connection.connect();
-                    return ImageIO.read(connection.getInputStream());
-                }
+        return getSourceImage(input).thenApply(source -> source == null ? null : source.getImage());
+    }
+
+    /**
+     * Asynchronously fetches an image from the given URL, together with the hash of its contents.
+     *
+     * @param input The URL of the image as a String.
+     * @return A CompletableFuture that resolves to a SourceImage, or null if the downloaded file isn't an image.
+     *
+     * @see ImageRequester#getSourceImage(String, int, int)
+     */
+    public static CompletableFuture<SourceImage> getSourceImage(String input) {
+        return getSourceImage(input, 0, 0);
+    }
 
-                return null;
+    /**
+     * Asynchronously fetches an image from the given URL for a canvas of the given size, together with the hash of its
+     * contents. Images much larger than the canvas are subsampled while they are decoded.
+     *
+     * @param input The URL of the image as a String.
+     * @param width The width of the canvas the image is shown on, or 0 if it isn't known.
+     * @param height The height of the canvas the image is shown on, or 0 if it isn't known.
+     * @return A CompletableFuture that resolves to a SourceImage, or null if the downloaded file isn't an image. It
+     * completes exceptionally with an {@link ImageFetchException} if the image can't be downloaded, or with an
+     * {@link IOException} if it has too many pixels.
+     *
+     * @implNote If the same URL is already being fetched for the same size, the returned future depends on that request
+     * instead of starting a new one. A request for another size only shares the download. Each caller gets its own
+     * copy, so completing or timing out one of them doesn't affect the others.
+     *
+     * @see ImageDecoder
+     */
+    public static CompletableFuture<SourceImage> getSourceImage(String input, int width, int height) {
+        String key = getKey(input, width, height);
+        CompletableFuture<SourceImage> future = IN_FLIGHT.computeIfAbsent(key, k -> loadImage(input, width, height));
+        future.whenComplete((source, ex) -> IN_FLIGHT.remove(key, future));
+        return future.copy();
+    }
+
+    /**
+     * Asynchronously fetches an image from the given URL for a canvas of the given size, decoding every frame if it is
+     * animated. Frames much larger than the canvas are shrunk while they are decoded.
+     *
+     * @param input The URL of the image as a String.
+     * @param width The width of the canvas the animation is shown on.
+     * @param height The height of the canvas the animation is shown on.
+     * @return A CompletableFuture that resolves to an AnimatedImage. Images that aren't animated resolve to a single
+     * frame. It completes exceptionally with an {@link ImageFetchException} if the image can't be downloaded, or with
+     * an {@link IOException} if it can't be decoded.
+     *
+     * @implNote The download is shared with concurrent requests for the same URL, but every request decodes the frames
+     * on its own, since animations aren't kept in memory.
+     *
+     * @see AnimationDecoder
+     */
+    public static CompletableFuture<AnimatedImage> getAnimation(String input, int width, int height) {
+        return loadBytes(input).thenApplyAsync(data -> {
+            try {
+                return AnimationDecoder.decode(new ByteArrayInputStream(data), width, height);
             }
-            catch (Exception e) {
-                return null;
+            catch (IOException e) {
+                throw new CompletionException(e);
             }
-        });
+        }, WorkerPool.getExecutor());
+    }
+
+    /**
+     * Sets the cache downloads are stored in.
+     *
+     * @param cache The download cache, or null to always download images.
+     *
+     * @implNote This is set once the server has started, since the cache is stored in the world folder.
+     */
+    public static void setDownloadCache(DownloadCache cache) {
+        downloadCache = cache;
+    }
+
+    /**
+     * Clears the images kept in memory.
+     */
+    public static void clearDecodedImages() {
+        synchronized (DECODED) {
+            DECODED.clear();
+            decodedPixels = 0;
+        }
+    }
+
+    /**
+     * Fetches and decodes an image, using the in-memory and on-disk caches where possible.
+     *
+     * @param input The URL of the image.
+     * @param width The width of the canvas the image is decoded for, or 0 if it isn't known.
+     * @param height The height of the canvas the image is decoded for, or 0 if it isn't known.
+     * @return A CompletableFuture that resolves to the decoded image, or null if the downloaded file isn't an image.
+     */
+    private static CompletableFuture<SourceImage> loadImage(String input, int width, int height) {
+        return CompletableFuture.supplyAsync(() -> getCachedImage(input, width, height), ImageFetcher.getExecutor())
+                .thenCompose(cached -> cached != null ? CompletableFuture.completedFuture(cached)
+                        : loadBytes(input).thenApplyAsync(data -> decodeImage(data, width, height), WorkerPool.getExecutor()));
+    }
+
+    /**
+     * Returns an image kept in memory, if the download cache knows which file the URL returned last.
+     *
+     * @param input The URL of the image.
+     * @param width The width of the canvas the image was decoded for, or 0 if it isn't known.
+     * @param height The height of the canvas the image was decoded for, or 0 if it isn't known.
+     * @return The decoded image, or null if it isn't kept in memory.
+     */
+    private static SourceImage getCachedImage(String input, int width, int height) {
+        DownloadCache cache = downloadCache;
+        String cachedHash = cache == null ? null : cache.getHash(input);
+        return cachedHash == null ? null : getDecoded(getKey(cachedHash, width, height));
     }
 
     /**
-     * Validates if the provided string is a well-formed URL.
+     * Decodes a downloaded image and keeps it in memory.
      *
-     * @param url The URL string to validate.
-     * @return true if the URL is valid, false otherwise.
+     * @param data The contents of the downloaded file.
+     * @param width The width of the canvas the image is decoded for, or 0 if it isn't known.
+     * @param height The height of the canvas the image is decoded for, or 0 if it isn't known.
+     * @return The decoded image, or null if the file isn't an image.
+     * @throws CompletionException If the image has too many pixels or can't be read.
      */
-    private static boolean validURL(String url) {
+    private static SourceImage decodeImage(byte[] data, int width, int height) throws CompletionException {
+        SourceImage source;
         try {
-            new URL(url).toURI();
-            return true;
-        } catch (Exception e) {
-            return false;
+            source = ImageDecoder.decode(data, width, height);
+        }
+        catch (IOException e) {
+            throw new CompletionException(e);
+        }
+
+        if (source != null) {
+            putDecoded(getKey(source.getHash(), width, height), source);
+        }
+        return source;
+    }
+
+    /**
+     * Asynchronously returns the contents of the given URL, reading them from the download cache if they are cached,
+     * or downloading and caching them otherwise.
+     *
+     * @param input The URL to fetch.
+     * @return A CompletableFuture that resolves to the contents of the URL, or completes exceptionally with an
+     * {@link ImageFetchException} if the URL can't be downloaded. The contents may be shared with other callers, so
+     * they must not be modified.
+     *
+     * @implNote If the same URL is already being fetched, the returned future depends on that download instead of
+     * starting a new one.
+     */
+    private static CompletableFuture<byte[]> loadBytes(String input) {
+        CompletableFuture<byte[]> future = IN_FLIGHT_DOWNLOADS.computeIfAbsent(input, k -> CompletableFuture.supplyAsync(() -> {
+            try (PipelineStats.Timer timer = PipelineStats.time(PipelineStats.Stage.FETCH)) {
+                return fetchBytes(input);
+            }
+            catch (ImageFetchException e) {
+                throw new CompletionException(e);
+            }
+        }, ImageFetcher.getExecutor()));
+        future.whenComplete((data, ex) -> IN_FLIGHT_DOWNLOADS.remove(input, future));
+        return future.copy();
+    }
+
+    /**
+     * Returns the contents of the given URL, blocking until they are read or downloaded.
+     *
+     * @param input The URL to fetch.
+     * @return The contents of the URL.
+     * @throws ImageFetchException If the URL can't be downloaded.
+     */
+    private static byte[] fetchBytes(String input) throws ImageFetchException {
+        DownloadCache cache = downloadCache;
+
+        if (cache != null) {
+            String hash = cache.getHash(input);
+            byte[] data = hash == null ? null : cache.read(hash);
+            if (data != null) {
+                return data;
+            }
+        }
+
+        byte[] data = ImageFetcher.fetch(input);
+
+        if (cache != null) {
+            try {
+                cache.put(input, data);
+            }
+            catch (IOException e) {
+                Billboard.LOGGER.warn("Failed to cache download of {}: {}", input, e.getMessage());
+            }
+        }
+
+        return data;
+    }
+
+    /**
+     * Returns the key of an image decoded for a canvas of the given size.
+     *
+     * @param image The URL or hash of the image.
+     * @param width The width of the canvas, or 0 if it isn't known.
+     * @param height The height of the canvas, or 0 if it isn't known.
+     * @return The key, which differs for every canvas size since images may be subsampled differently.
+     */
+    private static String getKey(String image, int width, int height) {
+        return width > 0 && height > 0 ? image + "@" + width + "x" + height : image;
+    }
+
+    /**
+     * Returns a decoded image kept in memory, and marks it as recently used.
+     *
+     * @param key The key of the image.
+     * @return The decoded image, or null if it isn't kept in memory.
+     *
+     * @see ImageRequester#getKey(String, int, int)
+     */
+    private static SourceImage getDecoded(String key) {
+        synchronized (DECODED) {
+            return DECODED.get(key);
+        }
+    }
+
+    /**
+     * Keeps a decoded image in memory, evicting the least recently used images if too many pixels are kept.
+     *
+     * @param key The key of the image.
+     * @param source The decoded image.
+     *
+     * @see ImageRequester#getKey(String, int, int)
+     */
+    private static void putDecoded(String key, SourceImage source) {
+        long pixels = (long) source.getImage().getWidth() * source.getImage().getHeight();
+        if (pixels > MAX_DECODED_PIXELS) {
+            return;
+        }
+
+        synchronized (DECODED) {
+            SourceImage previous = DECODED.put(key, source);
+            if (previous != null) {
+                decodedPixels -= (long) previous.getImage().getWidth() * previous.getImage().getHeight();
+            }
+            decodedPixels += pixels;
+
+            Iterator<SourceImage> iterator = DECODED.values().iterator();
+            while (decodedPixels > MAX_DECODED_PIXELS && iterator.hasNext()) {
+                SourceImage evicted = iterator.next();
+                decodedPixels -= (long) evicted.getImage().getWidth() * evicted.getImage().getHeight();
+                iterator.remove();
+            }
         }
     }
 }
@@ -0,0 +1,94 @@
+package com.harismehuljic.billboard.preprocessing.util;
+
+/**
+ * Utility class for converting colors between sRGB and the perceptual OKLab color space.
+ * Distances in OKLab closely match how different two colors look to the human eye, which makes it suitable for
+ * deciding whether two pixels can be merged without a visible difference.
+ *
+ * @implNote Distances are scaled by 100, so that a distance of roughly 1-2 corresponds to a just noticeable
+ * difference, similar to the CIELAB delta E scale.
+ */
+public abstract class PerceptualColor {
+    private static final float DISTANCE_SCALE = 100.0F;
+    private static final float[] SRGB_TO_LINEAR = new float[256];
+
+    static {
+        for (int i = 0; i < 256; i++) {
+            double channel = i / 255.0;
+            SRGB_TO_LINEAR[i] = (float) (channel <= 0.04045 ? channel / 12.92 : Math.pow((channel + 0.055) / 1.055, 2.4));
+        }
+    }
+
+    /**
+     * Converts a packed RGB color to OKLab and writes the three components into the given array.
+     *
+     * @param rgb The RGB value of the color. The alpha channel is ignored.
+     * @param lab The array the L, a and b components are written to.
+     * @param offset The index of the L component in the array.
+     */
+    public static void toOklab(int rgb, float[] lab, int offset) {
+        float r = SRGB_TO_LINEAR[(rgb >> 16) & 0xFF];
+        float g = SRGB_TO_LINEAR[(rgb >> 8) & 0xFF];
+        float b = SRGB_TO_LINEAR[rgb & 0xFF];
+
+        float l = (float) Math.cbrt(0.4122214708F * r + 0.5363325363F * g + 0.0514459929F * b);
+        float m = (float) Math.cbrt(0.2119034982F * r + 0.6806995451F * g + 0.1073969566F * b);
+        float s = (float) Math.cbrt(0.0883024619F * r + 0.2817188376F * g + 0.6299787005F * b);
+
+        lab[offset] = 0.2104542553F * l + 0.7936177850F * m - 0.0040720468F * s;
+        lab[offset + 1] = 1.9779984951F * l - 2.4285922050F * m + 0.4505937099F * s;
+        lab[offset + 2] = 0.0259040371F * l + 0.7827717662F * m - 0.8086757660F * s;
+    }
+
+    /**
+     * Converts an OKLab color back to a packed RGB color.
+     *
+     * @param lightness The L component of the color.
+     * @param a The a component of the color.
+     * @param b The b component of the color.
+     * @return The RGB value of the color, with a fully opaque alpha channel.
+     */
+    public static int toRGB(float lightness, float a, float b) {
+        float l = lightness + 0.3963377774F * a + 0.2158037573F * b;
+        float m = lightness - 0.1055613458F * a - 0.0638541728F * b;
+        float s = lightness - 0.0894841775F * a - 1.2914855480F * b;
+
+        l = l * l * l;
+        m = m * m * m;
+        s = s * s * s;
+
+        int red = toSrgbChannel(4.0767416621F * l - 3.3077115913F * m + 0.2309699292F * s);
+        int green = toSrgbChannel(-1.2684380046F * l + 2.6097574011F * m - 0.3413193965F * s);
+        int blue = toSrgbChannel(-0.0041960863F * l - 0.7034186147F * m + 1.7076147010F * s);
+
+        return 0xFF000000 | (red << 16) | (green << 8) | blue;
+    }
+
+    /**
+     * Returns the perceptual distance between two OKLab colors.
+     *
+     * @param lab1 The array containing the first color.
+     * @param offset1 The index of the L component of the first color.
+     * @param lab2 The array containing the second color.
+     * @param offset2 The index of the L component of the second color.
+     * @return The scaled euclidean distance between both colors.
+     */
+    public static float distance(float[] lab1, int offset1, float[] lab2, int offset2) {
+        float dl = lab1[offset1] - lab2[offset2];
+        float da = lab1[offset1 + 1] - lab2[offset2 + 1];
+        float db = lab1[offset1 + 2] - lab2[offset2 + 2];
+
+        return (float) Math.sqrt(dl * dl + da * da + db * db) * DISTANCE_SCALE;
+    }
+
+    /**
+     * Converts a linear color channel to an 8-bit sRGB channel.
+     *
+     * @param linear The linear channel value.
+     * @return The sRGB channel value (0-255).
+     */
+    private static int toSrgbChannel(float linear) {
+        double channel = linear <= 0.0031308 ? 12.92 * linear : 1.055 * Math.pow(linear, 1 / 2.4) - 0.055;
+        return (int) Math.max(0, Math.min(255, Math.round(channel * 255.0)));
+    }
+}
@@ -0,0 +1,265 @@
+package com.harismehuljic.billboard.preprocessing.util;
+
+import com.harismehuljic.billboard.preprocessing.data.ResamplingMode;
+import com.harismehuljic.billboard.util.PipelineStats;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.awt.image.Raster;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.util.Arrays;
+
+/**
+ * Utility class for resizing images and extracting their pixels in a single pass.
+ *
+ * @implNote Resizing is done with separable filters that read the source pixels straight from the backing
+ * {@link DataBufferInt} of the image whenever possible. Transparent pixels are blended onto black, and every returned
+ * pixel is fully opaque.
+ *
+ * @see ResamplingMode
+ */
+public abstract class Resampler {
+    /**
+     * Resizes the given image and returns its pixels.
+     *
+     * @param image The image to resize.
+     * @param width The desired width of the resized image.
+     * @param height The desired height of the resized image.
+     * @param mode The filter used to compute each resized pixel.
+     * @return The packed RGB values of the resized image, in row-major order.
+     * @throws IllegalArgumentException If the width or height is less than or equal to 0.
+     */
+    public static int[] resample(BufferedImage image, int width, int height, ResamplingMode mode) throws IllegalArgumentException {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException(String.format("Resized image dimensions must be greater than 0, but got: %dx%d", width, height));
+        }
+
+        try (PipelineStats.Timer timer = PipelineStats.time(PipelineStats.Stage.RESIZE)) {
+            SourcePixels source = SourcePixels.of(image);
+            int[] output = new int[width * height];
+
+            if (source.width == width && source.height == height) {
+                for (int y = 0; y < height; y++) {
+                    for (int x = 0; x < width; x++) {
+                        output[y * width + x] = source.getOpaqueRGB(x, y);
+                    }
+                }
+                return output;
+            }
+
+            Filter horizontalFilter = Filter.create(mode, source.width, width);
+            Filter verticalFilter = Filter.create(mode, source.height, height);
+
+            float[] filteredRow = new float[width * 3];
+            float[] accumulatedRow = new float[width * 3];
+
+            for (int y = 0; y < height; y++) {
+                Arrays.fill(accumulatedRow, 0.0F);
+
+                for (int tap = 0; tap < verticalFilter.counts[y]; tap++) {
+                    float weight = verticalFilter.getWeight(y, tap);
+                    filterRow(source, verticalFilter.starts[y] + tap, horizontalFilter, filteredRow);
+
+                    for (int i = 0; i < accumulatedRow.length; i++) {
+                        accumulatedRow[i] += filteredRow[i] * weight;
+                    }
+                }
+
+                int rowStart = y * width;
+                for (int x = 0; x < width; x++) {
+                    int red = clampChannel(accumulatedRow[x * 3]);
+                    int green = clampChannel(accumulatedRow[x * 3 + 1]);
+                    int blue = clampChannel(accumulatedRow[x * 3 + 2]);
+                    output[rowStart + x] = 0xFF000000 | (red << 16) | (green << 8) | blue;
+                }
+            }
+
+            return output;
+        }
+    }
+
+    /**
+     * Applies the horizontal filter to a single row of the source image.
+     *
+     * @param source The pixels of the source image.
+     * @param sourceY The row of the source image to filter.
+     * @param filter The horizontal filter.
+     * @param output The array the red, green and blue channels of each resized pixel are written to.
+     */
+    private static void filterRow(SourcePixels source, int sourceY, Filter filter, float[] output) {
+        for (int x = 0; x < filter.counts.length; x++) {
+            float red = 0, green = 0, blue = 0;
+
+            for (int tap = 0; tap < filter.counts[x]; tap++) {
+                int rgb = source.getOpaqueRGB(filter.starts[x] + tap, sourceY);
+                float weight = filter.getWeight(x, tap);
+
+                red += ((rgb >> 16) & 0xFF) * weight;
+                green += ((rgb >> 8) & 0xFF) * weight;
+                blue += (rgb & 0xFF) * weight;
+            }
+
+            output[x * 3] = red;
+            output[x * 3 + 1] = green;
+            output[x * 3 + 2] = blue;
+        }
+    }
+
+    /**
+     * Rounds a filtered channel value and clamps it to the valid range.
+     *
+     * @param value The filtered channel value.
+     * @return The channel value (0-255).
+     */
+    private static int clampChannel(float value) {
+        return Math.max(0, Math.min(255, Math.round(value)));
+    }
+
+    /**
+     * Precomputed one-dimensional filter, describing which source pixels contribute to each resized pixel and by how much.
+     */
+    private static class Filter {
+        private final int[] starts;
+        private final int[] counts;
+        private final float[] weights;
+        private final int maxTaps;
+
+        private Filter(int size, int maxTaps) {
+            this.starts = new int[size];
+            this.counts = new int[size];
+            this.weights = new float[size * maxTaps];
+            this.maxTaps = maxTaps;
+        }
+
+        private float getWeight(int index, int tap) {
+            return this.weights[index * this.maxTaps + tap];
+        }
+
+        /**
+         * Creates the filter of the given mode.
+         *
+         * @param mode The resampling mode.
+         * @param sourceSize The size of the source image along this axis.
+         * @param targetSize The size of the resized image along this axis.
+         * @return The precomputed filter.
+         */
+        private static Filter create(ResamplingMode mode, int sourceSize, int targetSize) {
+            double scale = (double) sourceSize / targetSize;
+
+            return switch (mode) {
+                case NEAREST -> {
+                    Filter filter = new Filter(targetSize, 1);
+                    for (int i = 0; i < targetSize; i++) {
+                        filter.starts[i] = Math.min(sourceSize - 1, (int) ((i + 0.5) * scale));
+                        filter.counts[i] = 1;
+                        filter.weights[i] = 1.0F;
+                    }
+                    yield filter;
+                }
+                case BILINEAR -> {
+                    Filter filter = new Filter(targetSize, 2);
+                    for (int i = 0; i < targetSize; i++) {
+                        double center = Math.max(0, Math.min(sourceSize - 1, (i + 0.5) * scale - 0.5));
+                        int start = Math.min(sourceSize - 2, (int) center);
+
+                        if (start < 0) {
+                            filter.starts[i] = 0;
+                            filter.counts[i] = 1;
+                            filter.weights[i * 2] = 1.0F;
+                            continue;
+                        }
+
+                        float fraction = (float) (center - start);
+                        filter.starts[i] = start;
+                        filter.counts[i] = 2;
+                        filter.weights[i * 2] = 1.0F - fraction;
+                        filter.weights[i * 2 + 1] = fraction;
+                    }
+                    yield filter;
+                }
+                case AREA_AVERAGE -> {
+                    Filter filter = new Filter(targetSize, (int) Math.ceil(scale) + 1);
+                    for (int i = 0; i < targetSize; i++) {
+                        double low = i * scale;
+                        double high = Math.min(sourceSize, (i + 1) * scale);
+                        int start = (int) low;
+                        int end = Math.min(sourceSize, (int) Math.ceil(high));
+
+                        filter.starts[i] = start;
+                        filter.counts[i] = end - start;
+                        for (int j = start; j < end; j++) {
+                            double coverage = Math.min(high, j + 1) - Math.max(low, j);
+                            filter.weights[i * filter.maxTaps + j - start] = (float) (coverage / (high - low));
+                        }
+                    }
+                    yield filter;
+                }
+            };
+        }
+    }
+
+    /**
+     * Direct access to the pixels of a source image.
+     *
+     * @implNote Images backed by a packed integer raster are read in place. Any other image is converted to packed
+     * ARGB values once, in a single bulk read.
+     */
+    private static class SourcePixels {
+        private final int[] data;
+        private final int offset;
+        private final int stride;
+        private final int width;
+        private final int height;
+        private final boolean hasAlpha;
+
+        private SourcePixels(int[] data, int offset, int stride, int width, int height, boolean hasAlpha) {
+            this.data = data;
+            this.offset = offset;
+            this.stride = stride;
+            this.width = width;
+            this.height = height;
+            this.hasAlpha = hasAlpha;
+        }
+
+        private static SourcePixels of(BufferedImage image) {
+            int width = image.getWidth();
+            int height = image.getHeight();
+            int type = image.getType();
+            Raster raster = image.getRaster();
+
+            if ((type == BufferedImage.TYPE_INT_RGB || type == BufferedImage.TYPE_INT_ARGB)
+                    && raster.getDataBuffer() instanceof DataBufferInt dataBuffer
+                    && raster.getSampleModel() instanceof SinglePixelPackedSampleModel sampleModel) {
+                int offset = dataBuffer.getOffset()
+                        - raster.getSampleModelTranslateY() * sampleModel.getScanlineStride()
+                        - raster.getSampleModelTranslateX();
+
+                return new SourcePixels(dataBuffer.getData(), offset, sampleModel.getScanlineStride(), width, height,
+                        type == BufferedImage.TYPE_INT_ARGB);
+            }
+
+            int[] data = image.getRGB(0, 0, width, height, null, 0, width);
+            return new SourcePixels(data, 0, width, width, height, image.getColorModel().hasAlpha());
+        }
+
+        /**
+         * Returns the color of a source pixel, blended onto black if it is transparent.
+         */
+        private int getOpaqueRGB(int x, int y) {
+            int argb = this.data[this.offset + y * this.stride + x];
+            if (!this.hasAlpha) {
+                return 0xFF000000 | argb;
+            }
+
+            int alpha = argb >>> 24;
+            if (alpha == 0xFF) {
+                return argb;
+            }
+
+            int red = ((argb >> 16) & 0xFF) * alpha / 255;
+            int green = ((argb >> 8) & 0xFF) * alpha / 255;
+            int blue = (argb & 0xFF) * alpha / 255;
+            return 0xFF000000 | (red << 16) | (green << 8) | blue;
+        }
+    }
+}
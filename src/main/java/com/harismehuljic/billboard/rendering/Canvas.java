@@ -1,29 +1,90 @@
 package com.harismehuljic.billboard.rendering;
 
 import com.harismehuljic.billboard.preprocessing.Image;
-import com.harismehuljic.billboard.preprocessing.data.ImagePixel;
 import com.harismehuljic.billboard.impl.CanvasServer;
-import com.harismehuljic.billboard.preprocessing.data.PixelConnections;
+import com.harismehuljic.billboard.util.CanvasFormat;
+import com.harismehuljic.billboard.util.CanvasWriter;
+import com.harismehuljic.billboard.util.PipelineStats;
 import com.harismehuljic.billboard.util.Serializer;
+import net.minecraft.entity.decoration.DisplayEntity;
+import net.minecraft.entity.player.PlayerEntity;
+import net.minecraft.network.listener.ClientPlayPacketListener;
+import net.minecraft.network.packet.Packet;
+import net.minecraft.network.packet.s2c.play.EntitiesDestroyS2CPacket;
 import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.network.ServerPlayerEntity;
+import net.minecraft.util.math.Box;
 import net.minecraft.util.math.Vec3d;
 import net.minecraft.world.World;
 
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.UUID;
 
 public class Canvas {
-    private final String canvasUUID = UUID.randomUUID().toString();
+    /**
+     * How many blocks beyond its proximity radius every player has to be before a canvas is collapsed.
+     */
+    public static final float PROXIMITY_MARGIN = 8.0F;
+
+    /**
+     * The maximum amount of coarser detail levels a canvas can have besides its full resolution.
+     */
+    public static final int MAX_DETAIL_LEVELS = 3;
+
+    /**
+     * How many blocks beyond or within the distance of a detail level the nearest player has to be before the canvas
+     * switches to it.
+     */
+    public static final float DETAIL_MARGIN = 4.0F;
+
+    /**
+     * How many blocks from the edge of a virtual canvas a player has to be to start viewing it. This matches the
+     * tracking range of display entities.
+     */
+    public static final float VIEW_DISTANCE = 160.0F;
+
+    /**
+     * The thickness of the bounds of a canvas in blocks. Canvases closer together than this along their depth are
+     * considered overlapping, since their pixels would fight over which one is drawn in front.
+     */
+    public static final double BOUNDS_DEPTH = 0.1;
+
+    private final UUID uuid;
+    private final String canvasUUID;
     private final int height;
     private final int width;
     private final float pixelScale;
 
-    transient private final Vec3d pos;
-    transient final World world;
+    private final Vec3d pos;
+    private final Box bounds;
+    final World world;
+
+    private CanvasLayout layout;
+    private CanvasPixel[] canvasPixels;
+    private int nextPixelSerial = 1;
+    private final HashMap<UUID, CanvasPixel> pixelsByUUID = new HashMap<>();
+
+    private CanvasTask<Integer> renderTask;
+    private CanvasAnimation animation;
+    private boolean destroyed = false;
+    private volatile int liveEntities = 0;
+
+    private float proximityRadius = 0;
+    private boolean materialized = false;
 
-    transient private final CanvasPixel[][] worldImageCanvasPixels;
-    private final ArrayList<String> pixelUUIDs = new ArrayList<>();
+    private List<CanvasLayout> detailLevels = List.of();
+    private int detailLevel = 0;
+    private float detailDistance = 0;
+
+    private final CanvasViewers viewers;
+
+    private final long creationTime;
+    private UUID owner;
 
     /**
      * Creates a new Canvas instance.
@@ -32,17 +93,65 @@ public class Canvas {
      * @param pos The position of the top-left corner of the canvas in the world.
      * @param pixelScale The scale of each canvasPixel in the canvas, determining how large each canvasPixel appears in the world.
      * @param world The Minecraft world where the canvas will be rendered.
+     * @param image The image to be rendered on the canvas.
      */
     public Canvas(int width, int height, Vec3d pos, float pixelScale, World world, Image image) throws IllegalArgumentException {
+        this(width, height, pos, pixelScale, world, new CanvasLayout(image));
+    }
+
+    /**
+     * Creates a new Canvas instance from a precomputed layout.
+     * @param width The width of the canvas in terms of pixels.
+     * @param height The height of the canvas in terms of pixels.
+     * @param pos The position of the top-left corner of the canvas in the world.
+     * @param pixelScale The scale of each canvasPixel in the canvas, determining how large each canvasPixel appears in the world.
+     * @param world The Minecraft world where the canvas will be rendered.
+     * @param layout The layout of the image to be rendered on the canvas.
+     * @throws IllegalArgumentException If the dimensions of the layout do not match the dimensions of the canvas.
+     *
+     * @implNote This must be called on the server thread. The {@link CanvasPixel}s themselves are only created once
+     * the canvas is rendered.
+     */
+    public Canvas(int width, int height, Vec3d pos, float pixelScale, World world, CanvasLayout layout) throws IllegalArgumentException {
+        this(width, height, pos, pixelScale, world, layout, false);
+    }
+
+    /**
+     * Creates a new Canvas instance from a precomputed layout, which can be virtual.
+     * @param width The width of the canvas in terms of pixels.
+     * @param height The height of the canvas in terms of pixels.
+     * @param pos The position of the top-left corner of the canvas in the world.
+     * @param pixelScale The scale of each canvasPixel in the canvas, determining how large each canvasPixel appears in the world.
+     * @param world The Minecraft world where the canvas will be rendered.
+     * @param layout The layout of the image to be rendered on the canvas.
+     * @param virtual Whether the canvas is virtual. The canvas pixels of a virtual canvas don't exist as entities on the
+     *                server, they are only sent as packets to the players viewing the canvas.
+     * @throws IllegalArgumentException If the dimensions of the layout do not match the dimensions of the canvas.
+     *
+     * @implNote This must be called on the server thread. The {@link CanvasPixel}s themselves are only created once
+     * the canvas is rendered.
+     *
+     * @see CanvasViewers
+     */
+    public Canvas(int width, int height, Vec3d pos, float pixelScale, World world, CanvasLayout layout, boolean virtual) throws IllegalArgumentException {
+        if (layout.getWidth() != width || layout.getHeight() != height) {
+            throw new IllegalArgumentException(String.format("Layout dimensions do not match canvas dimensions. Expected: %dx%d, but got: %dx%d",
+                    width, height, layout.getWidth(), layout.getHeight()));
+        }
+
+        this.uuid = UUID.randomUUID();
+        this.canvasUUID = this.uuid.toString();
         this.width = width;
         this.height = height;
         this.pos = pos;
         this.pixelScale = pixelScale;
+        this.bounds = Canvas.getBounds(pos, width, height, pixelScale);
         this.world = world;
 
-        this.worldImageCanvasPixels = new CanvasPixel[this.height][this.width];
-
-        this.definePixels(image);
+        this.layout = layout;
+        this.canvasPixels = new CanvasPixel[layout.getRegions().size()];
+        this.viewers = virtual ? new CanvasViewers() : null;
+        this.creationTime = System.currentTimeMillis();
 
         MinecraftServer server = this.world.getServer();
         assert server != null;
@@ -50,74 +159,1010 @@ public class Canvas {
         CanvasServer canvasServer = (CanvasServer) server;
         canvasServer.billboard$getCanvasManager().addCanvas(this.canvasUUID, this);
 
-        Path savePath = Serializer.getSavePath(server).resolve("canvas");
-        Serializer.serialize(this, savePath, this.canvasUUID);
+        this.save();
     }
 
     /**
-     * Defines the pixels of the canvas based on the provided image.
-     * @param image The image to be rendered on the canvas.
+     * Restores a saved canvas. The pixel entities of the canvas are not spawned again, since they still exist in the
+     * world. Instead, each of them is attached to its canvas pixel once its chunk is loaded. The canvas pixels of a
+     * virtual canvas are sent to its viewers again once they come near it.
+     * @param snapshot The saved state of the canvas.
+     * @param world The world the canvas is in.
+     *
+     * @implNote This must be called on the server thread.
+     *
+     * @see Canvas#attachPixel(DisplayEntity.TextDisplayEntity)
      */
-    private void definePixels(Image image) {
-        Vec3d pos = new Vec3d(this.pos.getX(), this.pos.getY(), this.pos.getZ());
-        float coordStep = CanvasPixel.getPixelBlocks(this.pixelScale);
+    Canvas(CanvasSnapshot snapshot, World world) {
+        this.uuid = snapshot.getUUID();
+        this.canvasUUID = this.uuid.toString();
+        this.width = snapshot.getWidth();
+        this.height = snapshot.getHeight();
+        this.pos = snapshot.getPos();
+        this.pixelScale = snapshot.getPixelScale();
+        this.bounds = Canvas.getBounds(this.pos, this.width, this.height, this.pixelScale);
+        this.world = world;
 
-        for (int y = 0; y < this.height; y++) {
-            for (int x = 0; x < image.getRowPixelCount(y); x++) {
-                ImagePixel imagePixel = image.getPixel(x, y);
-                int rgb = imagePixel.getRGB();
+        this.layout = snapshot.getLayout();
+        this.detailLevels = snapshot.getDetailLevels();
+        this.detailLevel = snapshot.getDetailLevel();
+        this.detailDistance = snapshot.getDetailDistance();
+        this.nextPixelSerial = snapshot.getNextPixelSerial();
+        this.proximityRadius = snapshot.getProximityRadius();
+        this.viewers = snapshot.isVirtual() ? new CanvasViewers() : null;
+        this.creationTime = snapshot.getCreationTime();
+        this.owner = snapshot.getOwner();
 
-                if (imagePixel.getPixelConnections().isConnected(PixelConnections.ConnectionDirection.LEFT)) {
-                    this.handleConnectedPixels(imagePixel, x, y);
-                }
-                else {
-                    CanvasPixel canvasPixel = new CanvasPixel(pos, this.world, this.pixelScale, rgb);
-                    this.worldImageCanvasPixels[y][x] = canvasPixel;
-                    this.pixelUUIDs.add(canvasPixel.getUUID());
-                }
+        CanvasLayout displayedLayout = this.getDisplayedLayout();
+        this.canvasPixels = new CanvasPixel[displayedLayout.getRegions().size()];
 
-                pos = pos.add(coordStep, 0, 0);
+        for (int i = 0; i < this.canvasPixels.length; i++) {
+            int serial = snapshot.getPixelSerial(i);
+            if (serial != 0) {
+                this.canvasPixels[i] = this.createPixel(displayedLayout.getRegions().get(i), serial);
+                this.canvasPixels[i].restore();
+                this.liveEntities++;
+                this.materialized = true;
             }
-            pos = new Vec3d(this.pos.getX(), pos.getY() - coordStep, pos.getZ());
         }
+
+        MinecraftServer server = this.world.getServer();
+        assert server != null;
+
+        CanvasServer canvasServer = (CanvasServer) server;
+        canvasServer.billboard$getCanvasManager().addCanvas(this.canvasUUID, this);
+    }
+
+    /**
+     * Attaches a pixel entity that was loaded from the world to the canvas pixel it belongs to.
+     * @param entity The loaded entity, whose UUID was derived from the UUID of this canvas.
+     * @return true if the entity belongs to a canvas pixel of this canvas, false if it is left over from a canvas pixel
+     * that has since been removed.
+     *
+     * @implNote This is also called for entities the canvas spawns itself, which are already attached.
+     */
+    boolean attachPixel(DisplayEntity.TextDisplayEntity entity) {
+        CanvasPixel canvasPixel = this.pixelsByUUID.get(entity.getUuid());
+        if (canvasPixel == null) {
+            return false;
+        }
+        else if (canvasPixel.isAttachedTo(entity)) {
+            return true;
+        }
+        else if (!canvasPixel.isRendered()) {
+            return false;
+        }
+
+        canvasPixel.attach(entity);
+        return true;
+    }
+
+    /**
+     * Creates the canvas pixel of the given region, if needed, and spawns it into the world.
+     * @param regionIndex The index of the region in the displayed layout of this canvas.
+     */
+    private void spawnPixel(int regionIndex) {
+        if (this.canvasPixels[regionIndex] != null) {
+            return;
+        }
+
+        CanvasPixel canvasPixel = this.createPixel(this.getDisplayedLayout().getRegions().get(regionIndex));
+        this.renderPixel(canvasPixel);
+
+        this.canvasPixels[regionIndex] = canvasPixel;
+    }
+
+    /**
+     * Creates the canvas pixel of the given region, without spawning it.
+     * @param region The region the canvas pixel will cover.
+     * @return The new canvas pixel, positioned and sized to cover the region.
+     */
+    private CanvasPixel createPixel(PixelRegion region) {
+        return this.createPixel(region, this.nextPixelSerial++);
     }
 
-    private void handleConnectedPixels(ImagePixel imagePixel, int x, int y) {
-        //TODO: Handle different types of connections other than LEFT
-        CanvasPixel canvasPixel = this.worldImageCanvasPixels[y][x-1];
-        canvasPixel.setLength(canvasPixel.getLength() + 1);
-        this.worldImageCanvasPixels[y][x] = canvasPixel;
+    /**
+     * Creates the canvas pixel of the given region with the given serial number, without spawning it.
+     * @param region The region of the displayed layout the canvas pixel will cover.
+     * @param serial The serial number of the canvas pixel, from which the UUID of its entity is derived.
+     * @return The new canvas pixel, positioned and sized to cover the region.
+     */
+    private CanvasPixel createPixel(PixelRegion region, int serial) {
+        float scale = Canvas.getDetailScale(this.pixelScale, this.detailLevel);
+        float coordStep = CanvasPixel.getPixelBlocks(scale);
+        Vec3d pixelPos = this.pos.add(region.getX() * coordStep, -region.getY() * coordStep, 0);
+
+        UUID pixelUUID = Canvas.getPixelUUID(this.uuid, serial);
+        CanvasPixel canvasPixel = new CanvasPixel(pixelPos, this.world, scale, region.getColor(), pixelUUID, this.viewers);
+        canvasPixel.setColors(region.getColor(), region.getLowerColor());
+        canvasPixel.setGlyphColors(region.getGlyphColors());
+        canvasPixel.setSize(region.getWidth(), region.getHeight());
+
+        this.pixelsByUUID.put(pixelUUID, canvasPixel);
+        return canvasPixel;
+    }
+
+    /**
+     * Removes the entity of a canvas pixel from the world, and forgets the canvas pixel.
+     * @param canvasPixel The canvas pixel to destroy.
+     */
+    private void destroyPixel(CanvasPixel canvasPixel) {
+        if (canvasPixel.isRendered()) {
+            this.liveEntities--;
+        }
+
+        canvasPixel.destroy();
+        this.pixelsByUUID.remove(canvasPixel.getEntityUUID());
+    }
+
+    /**
+     * Spawns the entity of a canvas pixel into the world.
+     * @param canvasPixel The canvas pixel to render.
+     */
+    private void renderPixel(CanvasPixel canvasPixel) {
+        canvasPixel.render();
+        this.liveEntities++;
     }
 
     /**
      * Renders the canvas in the Minecraft world.
+     * @return The task spawning the canvas pixels, which is spread over multiple server ticks.
      *
      * @see CanvasPixel#render()
+     * @see CanvasScheduler
      */
-    public void render() {
-        for (int y = 0; y < this.height; y++) {
-            for (CanvasPixel canvasPixel : this.worldImageCanvasPixels[y]) {
-                if (canvasPixel == null) {
-                    continue;
-                }
-                canvasPixel.render();
+    public CanvasTask<Integer> render() {
+        if (this.renderTask != null) {
+            this.renderTask.cancel();
+        }
+
+        this.materialized = true;
+
+        List<Integer> regionIndices = new ArrayList<>(this.canvasPixels.length);
+        for (int i = 0; i < this.canvasPixels.length; i++) {
+            if (this.canvasPixels[i] == null) {
+                regionIndices.add(i);
             }
         }
-    }
 
+        this.renderTask = this.bundled(new CanvasTask<>("Render canvas " + this.canvasUUID, regionIndices, this::spawnPixel));
+        this.renderTask.getFuture().thenAccept(task -> this.save());
+        return this.getScheduler().submit(this.renderTask);
+    }
 
     /**
      * Destroys all the canvas pixels linked to this canvas from the world.
+     * @return The task removing the canvas pixels, which is spread over multiple server ticks.
+     *
+     * @implNote If the canvas is still being rendered, rendering is cancelled and only the canvas pixels that have
+     * already been spawned are removed. Any animation playing on the canvas is stopped, and its save file is deleted.
      *
      * @see CanvasPixel#destroy()
+     * @see CanvasScheduler
+     */
+    public CanvasTask<CanvasPixel> destroy() {
+        if (this.renderTask != null) {
+            this.renderTask.cancel();
+        }
+
+        this.stopAnimation();
+        this.destroyed = true;
+        this.materialized = false;
+        this.getWriter().delete(this.getSaveFile());
+
+        List<CanvasPixel> canvasPixels = new ArrayList<>();
+        for (int i = 0; i < this.canvasPixels.length; i++) {
+            if (this.canvasPixels[i] != null) {
+                canvasPixels.add(this.canvasPixels[i]);
+                this.canvasPixels[i] = null;
+            }
+        }
+
+        CanvasTask<CanvasPixel> destroyTask = this.bundled(new CanvasTask<>("Destroy canvas " + this.canvasUUID, canvasPixels, this::destroyPixel));
+        return this.getScheduler().submit(destroyTask);
+    }
+
+    /**
+     * Updates the canvas to show a new image, changing only the canvas pixels that differ.
+     * @param image The new image, which must have the same dimensions as the canvas.
+     * @return The task applying the changes, which is spread over multiple server ticks.
+     * @throws IllegalArgumentException If the dimensions of the image do not match the dimensions of the canvas.
+     *
+     * @see Canvas#updateLayout(CanvasLayout)
+     */
+    public CanvasTask<Runnable> updateImage(Image image) throws IllegalArgumentException {
+        return this.updateLayout(new CanvasLayout(image));
+    }
+
+    /**
+     * Updates the canvas to show a new layout, changing only the canvas pixels that differ.
+     * @param layout The new layout, which must have the same dimensions as the canvas.
+     * @return The task applying the changes, which is spread over multiple server ticks.
+     * @throws IllegalArgumentException If the dimensions of the layout do not match the dimensions of the canvas.
+     *
+     * @implNote Canvas pixels of regions that keep their top-left pixel are reused, and only recolored or resized if
+     * needed. Other regions get new canvas pixels, and canvas pixels that are no longer needed are removed. Each
+     * change captures the canvas pixel it applies to, so updates submitted in quick succession are applied in order.
+     *
+     * @see CanvasDelta
+     */
+    public CanvasTask<Runnable> updateLayout(CanvasLayout layout) throws IllegalArgumentException {
+        return this.applyDelta(new CanvasDelta(this.layout, layout));
+    }
+
+    /**
+     * Applies a precomputed delta to the canvas.
+     * @param delta The delta to apply, which must start from the current layout of the canvas.
+     * @return The task applying the changes, which is spread over multiple server ticks.
+     * @throws IllegalArgumentException If the delta does not start from the current layout of the canvas.
+     *
+     * @implNote Any animation playing on the canvas is stopped, as its frames no longer follow from the new layout.
+     * The coarser detail levels of the canvas are dropped as well, since they still show the old layout.
+     *
+     * @see Canvas#setDetailLevels(List, float)
+     */
+    public CanvasTask<Runnable> applyDelta(CanvasDelta delta) throws IllegalArgumentException {
+        this.stopAnimation();
+
+        CanvasTask<Runnable> updateTask = this.prepareDelta(delta);
+        updateTask.getFuture().thenAccept(task -> this.save());
+        return this.getScheduler().submit(updateTask);
+    }
+
+    /**
+     * Switches the canvas to the target layout of a delta, and creates the task that changes the canvas pixels
+     * accordingly, without submitting it.
+     * @param delta The delta to apply, which must start from the current layout of the canvas.
+     * @return The task applying the changes.
+     * @throws IllegalArgumentException If the delta does not start from the current layout of the canvas.
+     *
+     * @implNote If the canvas is showing a coarser detail level, the delta doesn't apply to its canvas pixels. They
+     * are replaced by the full resolution of the new layout instead.
+     */
+    CanvasTask<Runnable> prepareDelta(CanvasDelta delta) throws IllegalArgumentException {
+        if (delta.getFrom() != this.layout) {
+            throw new IllegalArgumentException("The delta does not start from the current layout of the canvas.");
+        }
+
+        if (this.renderTask != null) {
+            this.renderTask.cancel();
+        }
+
+        CanvasLayout layout = delta.getTo();
+        this.detailLevels = List.of();
+
+        if (this.detailLevel != 0) {
+            this.layout = layout;
+            return this.prepareDetailLevel(0);
+        }
+        else if (!this.materialized) {
+            this.layout = layout;
+            this.canvasPixels = new CanvasPixel[layout.getRegions().size()];
+            return new CanvasTask<>("Update canvas " + this.canvasUUID, List.of(), Runnable::run);
+        }
+
+        CanvasPixel[] oldPixels = this.canvasPixels;
+        CanvasPixel[] newPixels = new CanvasPixel[layout.getRegions().size()];
+        List<Runnable> changes = new ArrayList<>(delta.getChangeCount());
+
+        for (int i = 0; i < newPixels.length; i++) {
+            PixelRegion region = layout.getRegions().get(i);
+            int match = delta.getMatch(i);
+            CanvasPixel canvasPixel = match == -1 ? null : oldPixels[match];
+
+            if (canvasPixel == null) {
+                CanvasPixel newPixel = this.createPixel(region);
+                newPixels[i] = newPixel;
+                changes.add(() -> this.renderPixel(newPixel));
+                continue;
+            }
+
+            newPixels[i] = canvasPixel;
+            if (delta.isRecolored(i)) {
+                changes.add(() -> {
+                    canvasPixel.setGlyphColors(region.getGlyphColors());
+                    canvasPixel.setColors(region.getColor(), region.getLowerColor());
+                });
+            }
+            if (delta.isResized(i)) {
+                changes.add(() -> canvasPixel.setSize(region.getWidth(), region.getHeight()));
+            }
+        }
+
+        for (int removed : delta.getRemoved()) {
+            CanvasPixel canvasPixel = oldPixels[removed];
+            if (canvasPixel != null) {
+                changes.add(() -> this.destroyPixel(canvasPixel));
+            }
+        }
+
+        this.layout = layout;
+        this.canvasPixels = newPixels;
+
+        return this.bundled(new CanvasTask<>("Update canvas " + this.canvasUUID, changes, Runnable::run));
+    }
+
+    /**
+     * Plays an animation on the canvas, replacing any animation that is already playing.
+     * @param animation The animation to play, whose first frame must be the current layout of the canvas.
+     * @return The animation, for method chaining.
+     * @throws IllegalArgumentException If the animation belongs to another canvas, or does not start from the current
+     * layout of the canvas.
+     *
+     * @apiNote The animation should only be played once the canvas has been rendered, otherwise the remaining canvas
+     * pixels are spawned as part of the first frame change.
+     *
+     * @see CanvasAnimation
+     */
+    public CanvasAnimation play(CanvasAnimation animation) throws IllegalArgumentException {
+        if (animation.getCanvas() != this) {
+            throw new IllegalArgumentException("The animation belongs to another canvas.");
+        }
+        else if (animation.getFirstLayout() != this.layout) {
+            throw new IllegalArgumentException("The animation does not start from the current layout of the canvas.");
+        }
+
+        this.stopAnimation();
+        this.animation = animation;
+        return this.getScheduler().play(animation);
+    }
+
+    /**
+     * Stops the animation playing on the canvas, if any. The canvas keeps showing the frame it was on.
      */
-    public void destroy() {
-        for (CanvasPixel[] row : this.worldImageCanvasPixels) {
-            for (CanvasPixel canvasPixel : row) {
-                if (canvasPixel != null) {
-                    canvasPixel.destroy();
+    public void stopAnimation() {
+        if (this.animation != null) {
+            this.animation.stop();
+            this.animation = null;
+        }
+    }
+
+    /**
+     * Returns the animation playing on the canvas.
+     * @return The playing animation, or null if the canvas is not animated.
+     */
+    public CanvasAnimation getAnimation() {
+        return this.animation == null || this.animation.isStopped() ? null : this.animation;
+    }
+
+    /**
+     * Removes the canvas pixels of the canvas from the world, while keeping the canvas itself. The canvas collapses to
+     * its layout, and can be rendered again later.
+     * @return The task removing the canvas pixels, which is spread over multiple server ticks.
+     *
+     * @implNote Updates and animations applied while the canvas is collapsed only change its layout, without touching
+     * the world.
+     */
+    public CanvasTask<CanvasPixel> dematerialize() {
+        if (this.renderTask != null) {
+            this.renderTask.cancel();
+        }
+
+        this.materialized = false;
+
+        List<CanvasPixel> canvasPixels = new ArrayList<>();
+        for (int i = 0; i < this.canvasPixels.length; i++) {
+            if (this.canvasPixels[i] != null) {
+                canvasPixels.add(this.canvasPixels[i]);
+                this.canvasPixels[i] = null;
+            }
+        }
+
+        CanvasTask<CanvasPixel> dematerializeTask = this.bundled(new CanvasTask<>("Collapse canvas " + this.canvasUUID, canvasPixels, this::destroyPixel));
+        dematerializeTask.getFuture().thenAccept(task -> this.save());
+        return this.getScheduler().submit(dematerializeTask);
+    }
+
+    /**
+     * Renders, collapses or switches the detail level of the canvas depending on how near the nearest player is.
+     * Canvases without a proximity radius or detail levels are left as they are. For virtual canvases, this also
+     * updates which players are viewing the canvas.
+     *
+     * @implNote The canvas is rendered once a player comes within the proximity radius of its center, and collapsed once
+     * every player is further than {@link Canvas#PROXIMITY_MARGIN} blocks beyond that radius. The margin keeps a player
+     * standing right at the edge of the radius from making the canvas flicker, and {@link Canvas#DETAIL_MARGIN} does
+     * the same for detail levels.
+     *
+     * @param players The players that may be near the canvas, which must include every player within
+     *                {@link Canvas#getViewerRange()} of its center.
+     *
+     * @see Canvas#setProximityRadius(float)
+     * @see Canvas#setDetailLevels(List, float)
+     */
+    void updateViewers(List<? extends PlayerEntity> players) {
+        if (this.destroyed || (this.proximityRadius <= 0 && this.detailLevels.isEmpty() && this.viewers == null)) {
+            return;
+        }
+
+        float coordStep = CanvasPixel.getPixelBlocks(this.pixelScale);
+        Vec3d center = this.pos.add(this.width * coordStep / 2, -this.height * coordStep / 2, 0);
+
+        if (this.viewers != null) {
+            this.updateVirtualViewers(players, center, Math.hypot(this.width, this.height) * coordStep / 2);
+        }
+
+        double nearest = Double.MAX_VALUE;
+        for (PlayerEntity player : players) {
+            if (!player.isSpectator()) {
+                nearest = Math.min(nearest, player.squaredDistanceTo(center));
+            }
+        }
+
+        double distance = Math.sqrt(nearest);
+        if (this.proximityRadius > 0) {
+            if (!this.materialized && distance <= this.proximityRadius) {
+                this.prepareDetailLevel(this.selectDetailLevel(distance));
+                this.render();
+                return;
+            }
+            else if (this.materialized && distance > this.proximityRadius + PROXIMITY_MARGIN) {
+                this.dematerialize();
+                return;
+            }
+        }
+
+        int level = this.selectDetailLevel(distance);
+        if (this.materialized && level != this.detailLevel) {
+            this.switchDetailLevel(level);
+        }
+    }
+
+    /**
+     * Starts sending the canvas to players that came within {@link Canvas#VIEW_DISTANCE} of a virtual canvas, and
+     * removes it from players that went further than {@link Canvas#PROXIMITY_MARGIN} blocks beyond that distance or
+     * left the world.
+     * @param players The players that may be near the canvas.
+     * @param center The center of the canvas.
+     * @param extent The distance from the center of the canvas to its corners.
+     *
+     * @implNote Spectators view virtual canvases as well. A player that respawned is sent the canvas again, since its
+     * client has discarded all entities.
+     */
+    private void updateVirtualViewers(List<? extends PlayerEntity> players, Vec3d center, double extent) {
+        HashSet<UUID> inRange = new HashSet<>();
+
+        for (PlayerEntity player : players) {
+            if (!(player instanceof ServerPlayerEntity serverPlayer)) {
+                continue;
+            }
+
+            PacketSink sink = this.viewers.get(player.getUuid());
+            double viewDistance = extent + VIEW_DISTANCE + (sink == null ? 0 : PROXIMITY_MARGIN);
+
+            if (player.squaredDistanceTo(center) <= viewDistance * viewDistance) {
+                PacketSink playerSink = PacketSink.of(serverPlayer);
+                if (!playerSink.equals(sink)) {
+                    this.addViewer(player.getUuid(), playerSink);
                 }
+                inRange.add(player.getUuid());
+            }
+        }
+
+        for (UUID player : List.copyOf(this.viewers.getPlayers())) {
+            if (!inRange.contains(player)) {
+                this.removeViewer(player);
+            }
+        }
+    }
+
+    /**
+     * Starts sending a virtual canvas to a viewer, by sending it every canvas pixel that is currently rendered.
+     * @param player The UUID of the viewing player.
+     * @param sink The sink the packets of the canvas are sent to, such as the connection of the player.
+     * @throws IllegalStateException If the canvas is not virtual.
+     *
+     * @apiNote Viewers are normally added and removed automatically as players move around, but this allows sending
+     * the canvas to any sink.
+     *
+     * @implNote The canvas pixels are sent in bundles, so the viewer sees the whole canvas appear at once.
+     */
+    public void addViewer(UUID player, PacketSink sink) throws IllegalStateException {
+        if (this.viewers == null) {
+            throw new IllegalStateException("Only virtual canvases have viewers.");
+        }
+
+        this.viewers.add(player, sink);
+
+        List<Packet<? super ClientPlayPacketListener>> packets = new ArrayList<>();
+        for (CanvasPixel canvasPixel : this.canvasPixels) {
+            if (canvasPixel != null && canvasPixel.isRendered()) {
+                packets.addAll(canvasPixel.getSpawnPackets());
+            }
+        }
+        CanvasViewers.sendBundled(sink, packets);
+    }
+
+    /**
+     * Stops sending a virtual canvas to a viewer, and removes its canvas pixels from the client of the viewer.
+     * @param player The UUID of the viewing player.
+     * @return true if the player was viewing the canvas.
+     * @throws IllegalStateException If the canvas is not virtual.
+     */
+    public boolean removeViewer(UUID player) throws IllegalStateException {
+        if (this.viewers == null) {
+            throw new IllegalStateException("Only virtual canvases have viewers.");
+        }
+
+        PacketSink sink = this.viewers.remove(player);
+        if (sink == null) {
+            return false;
+        }
+
+        int[] entityIds = new int[this.canvasPixels.length];
+        int count = 0;
+        for (CanvasPixel canvasPixel : this.canvasPixels) {
+            if (canvasPixel != null && canvasPixel.isRendered()) {
+                entityIds[count++] = canvasPixel.getEntityId();
+            }
+        }
+
+        if (count > 0) {
+            sink.sendPacket(new EntitiesDestroyS2CPacket(Arrays.copyOf(entityIds, count)));
+        }
+        return true;
+    }
+
+    /**
+     * Holds back the packets sent to the viewers of a virtual canvas while a task is in progress, so that they are
+     * sent in bundles once it is done.
+     * @param task The task changing the canvas pixels of this canvas.
+     * @return The task, for method chaining.
+     * @param <T> The type of the elements processed by the task.
+     *
+     * @see CanvasViewers#hold()
+     */
+    private <T> CanvasTask<T> bundled(CanvasTask<T> task) {
+        if (this.viewers != null && !task.isDone()) {
+            this.viewers.hold();
+            task.getFuture().thenAccept(finishedTask -> this.viewers.release());
+        }
+
+        return task;
+    }
+
+    /**
+     * Forgets a viewer without sending it any packets, because it disconnected.
+     * @param player The UUID of the player.
+     */
+    void forgetViewer(UUID player) {
+        if (this.viewers != null) {
+            this.viewers.remove(player);
+        }
+    }
+
+    /**
+     * Returns whether the canvas is virtual, meaning its canvas pixels only exist on the clients of its viewers.
+     * @return true if the canvas is virtual.
+     */
+    public boolean isVirtual() {
+        return this.viewers != null;
+    }
+
+    /**
+     * Returns the amount of canvas pixels of the canvas that are currently spawned, which for a virtual canvas are the
+     * canvas pixels shown to its viewers.
+     * @return The amount of live entities.
+     *
+     * @implNote This may be read from any thread, such as by {@link com.harismehuljic.billboard.util.CanvasStatisticsEvent}.
+     */
+    public int getLiveEntityCount() {
+        return this.liveEntities;
+    }
+
+    /**
+     * Returns the viewers of a virtual canvas.
+     * @return The viewers of the canvas, or null if the canvas is not virtual.
+     */
+    public CanvasViewers getViewers() {
+        return this.viewers;
+    }
+
+    /**
+     * Returns the furthest distance from the center of the canvas at which a player still affects it, by rendering or
+     * collapsing it, switching its detail level or viewing it.
+     * @return The range in blocks, or 0 if the canvas doesn't depend on where players are.
+     *
+     * @see Canvas#updateViewers(List)
+     */
+    double getViewerRange() {
+        double range = 0;
+
+        if (this.proximityRadius > 0) {
+            range = this.proximityRadius + PROXIMITY_MARGIN;
+        }
+        if (!this.detailLevels.isEmpty()) {
+            range = Math.max(range, this.detailDistance * (1 << (this.detailLevels.size() - 1)) + DETAIL_MARGIN);
+        }
+        if (this.viewers != null) {
+            float coordStep = CanvasPixel.getPixelBlocks(this.pixelScale);
+            range = Math.max(range, Math.hypot(this.width, this.height) * coordStep / 2 + VIEW_DISTANCE + PROXIMITY_MARGIN);
+        }
+
+        return range;
+    }
+
+    /**
+     * Picks the detail level the canvas should show to a player at the given distance.
+     * @param distance The distance from the nearest player to the center of the canvas in blocks.
+     * @return The index of the detail level, where 0 is the full resolution.
+     *
+     * @implNote Level {@code n} is shown beyond {@code detailDistance * 2^(n - 1)} blocks, so every level covers twice
+     * the distance of the previous one, like the mip levels of a texture.
+     */
+    private int selectDetailLevel(double distance) {
+        int level = this.detailLevel;
+
+        while (level < this.detailLevels.size() && distance > this.detailDistance * (1 << level) + DETAIL_MARGIN) {
+            level++;
+        }
+        while (level > 0 && distance < this.detailDistance * (1 << (level - 1)) - DETAIL_MARGIN) {
+            level--;
+        }
+
+        return level;
+    }
+
+    /**
+     * Switches the canvas to another detail level, replacing its canvas pixels.
+     * @param level The index of the detail level, where 0 is the full resolution.
+     * @return The task replacing the canvas pixels, which is spread over multiple server ticks.
+     *
+     * @see Canvas#prepareDetailLevel(int)
+     */
+    private CanvasTask<Runnable> switchDetailLevel(int level) {
+        CanvasTask<Runnable> switchTask = this.prepareDetailLevel(level);
+        switchTask.getFuture().thenAccept(task -> this.save());
+        return this.getScheduler().submit(switchTask);
+    }
+
+    /**
+     * Switches the canvas to another detail level, and creates the task that replaces its canvas pixels accordingly,
+     * without submitting it.
+     * @param level The index of the detail level, where 0 is the full resolution.
+     * @return The task replacing the canvas pixels.
+     *
+     * @implNote The canvas pixels of the new level are spawned before those of the old level are removed, so the canvas
+     * doesn't show any holes while switching. A collapsed canvas only switches its layout.
+     */
+    private CanvasTask<Runnable> prepareDetailLevel(int level) {
+        if (this.renderTask != null) {
+            this.renderTask.cancel();
+        }
+
+        CanvasPixel[] oldPixels = this.canvasPixels;
+        this.detailLevel = level;
+
+        CanvasLayout layout = this.getDisplayedLayout();
+        this.canvasPixels = new CanvasPixel[layout.getRegions().size()];
+
+        if (!this.materialized) {
+            return new CanvasTask<>("Switch detail of canvas " + this.canvasUUID, List.of(), Runnable::run);
+        }
+
+        List<Runnable> changes = new ArrayList<>(this.canvasPixels.length + oldPixels.length);
+        for (int i = 0; i < this.canvasPixels.length; i++) {
+            CanvasPixel canvasPixel = this.createPixel(layout.getRegions().get(i));
+            this.canvasPixels[i] = canvasPixel;
+            changes.add(() -> this.renderPixel(canvasPixel));
+        }
+        for (CanvasPixel canvasPixel : oldPixels) {
+            if (canvasPixel != null) {
+                changes.add(() -> this.destroyPixel(canvasPixel));
+            }
+        }
+
+        return this.bundled(new CanvasTask<>("Switch detail of canvas " + this.canvasUUID, changes, Runnable::run));
+    }
+
+    /**
+     * Sets the coarser detail levels of the canvas, which are shown instead of its full resolution to players far away.
+     * @param detailLevels The layouts of the detail levels, where each layout has half the width and height of the
+     *                     previous one, rounded up. An empty list always shows the full resolution.
+     * @param detailDistance The distance in blocks beyond which the first coarser level is shown. Every following
+     *                       level is shown beyond twice the distance of the previous one.
+     * @throws IllegalArgumentException If there are too many detail levels, if a layout does not have the dimensions
+     * of its level, or if the distance is not greater than 0.
+     *
+     * @implNote Each detail level is shown with a pixel scale that is twice that of the previous one, so the canvas
+     * keeps the same size in the world while using 4 times fewer canvas pixels per level.
+     *
+     * @see Canvas#getDetailSize(int, int)
+     */
+    public void setDetailLevels(List<CanvasLayout> detailLevels, float detailDistance) throws IllegalArgumentException {
+        if (detailLevels.size() > MAX_DETAIL_LEVELS) {
+            throw new IllegalArgumentException(String.format("A canvas can have at most %d detail levels.", MAX_DETAIL_LEVELS));
+        }
+        else if (!detailLevels.isEmpty() && detailDistance <= 0) {
+            throw new IllegalArgumentException("Detail distance must be greater than 0.");
+        }
+
+        for (int i = 0; i < detailLevels.size(); i++) {
+            CanvasLayout detailLayout = detailLevels.get(i);
+            int expectedWidth = Canvas.getDetailSize(this.width, i + 1);
+            int expectedHeight = Canvas.getDetailSize(this.height, i + 1);
+
+            if (detailLayout.getWidth() != expectedWidth || detailLayout.getHeight() != expectedHeight) {
+                throw new IllegalArgumentException(String.format("Detail level %d must be %dx%d, but got: %dx%d",
+                        i + 1, expectedWidth, expectedHeight, detailLayout.getWidth(), detailLayout.getHeight()));
+            }
+        }
+
+        if (this.detailLevel != 0) {
+            this.switchDetailLevel(0);
+        }
+
+        this.detailLevels = List.copyOf(detailLevels);
+        this.detailDistance = detailDistance;
+        this.save();
+    }
+
+    /**
+     * Returns the index of the detail level the canvas is showing.
+     * @return The detail level, where 0 is the full resolution.
+     */
+    public int getDetailLevel() {
+        return this.detailLevel;
+    }
+
+    /**
+     * Returns the amount of coarser detail levels of the canvas.
+     * @return The amount of detail levels besides the full resolution.
+     */
+    public int getDetailLevelCount() {
+        return this.detailLevels.size();
+    }
+
+    /**
+     * Returns the distance beyond which the first coarser detail level of the canvas is shown.
+     * @return The detail distance in blocks, or 0 if the canvas has no detail levels.
+     */
+    public float getDetailDistance() {
+        return this.detailDistance;
+    }
+
+    /**
+     * Returns the layout whose canvas pixels are currently in the world, which depends on the detail level.
+     * @return The layout of the current detail level.
+     */
+    private CanvasLayout getDisplayedLayout() {
+        return this.detailLevel == 0 ? this.layout : this.detailLevels.get(this.detailLevel - 1);
+    }
+
+    /**
+     * Returns the width or height of a detail level.
+     * @param size The width or height of the full resolution in terms of pixels.
+     * @param level The index of the detail level, where 0 is the full resolution.
+     * @return The size at the detail level, which is halved for every level and rounded up.
+     */
+    public static int getDetailSize(int size, int level) {
+        return (size + (1 << level) - 1) >> level;
+    }
+
+    /**
+     * Returns the pixel scale of a detail level.
+     * @param pixelScale The pixel scale of the full resolution.
+     * @param level The index of the detail level, where 0 is the full resolution.
+     * @return The pixel scale at the detail level, which is doubled for every level.
+     */
+    public static float getDetailScale(float pixelScale, int level) {
+        return pixelScale * (1 << level);
+    }
+
+    /**
+     * Sets the radius within which a player has to be for the canvas pixels of the canvas to exist in the world.
+     * @param proximityRadius The radius in blocks, or 0 to keep the canvas pixels in the world at all times.
+     * @throws IllegalArgumentException If the radius is negative.
+     *
+     * @see Canvas#updateViewers(List)
+     */
+    public void setProximityRadius(float proximityRadius) throws IllegalArgumentException {
+        if (proximityRadius < 0) {
+            throw new IllegalArgumentException("Proximity radius must not be negative.");
+        }
+
+        this.proximityRadius = proximityRadius;
+        this.save();
+    }
+
+    /**
+     * Returns the radius within which a player has to be for the canvas pixels of the canvas to exist in the world.
+     * @return The radius in blocks, or 0 if the canvas pixels always exist.
+     */
+    public float getProximityRadius() {
+        return this.proximityRadius;
+    }
+
+    /**
+     * Sets the player that created the canvas.
+     * @param owner The UUID of the player, or null if the canvas has no owner.
+     *
+     * @see CanvasManager#getCanvasesByOwner(UUID)
+     */
+    public void setOwner(UUID owner) {
+        UUID previousOwner = this.owner;
+        this.owner = owner;
+
+        this.getManager().updateOwner(this, previousOwner);
+        this.save();
+    }
+
+    /**
+     * Returns the player that created the canvas.
+     * @return The UUID of the player, or null if the canvas has no owner.
+     */
+    public UUID getOwner() {
+        return this.owner;
+    }
+
+    /**
+     * Returns when the canvas was created. A restored canvas keeps the time it was originally created at.
+     * @return The creation time in milliseconds since the epoch.
+     */
+    public long getCreationTime() {
+        return this.creationTime;
+    }
+
+    /**
+     * Returns whether the canvas pixels of the canvas are, or are being, spawned into the world.
+     * @return true if the canvas has been rendered and not collapsed or destroyed since.
+     */
+    public boolean isMaterialized() {
+        return this.materialized;
+    }
+
+    /**
+     * Returns the layout currently shown by the canvas, at full resolution.
+     * @return The current layout of the canvas.
+     */
+    public CanvasLayout getLayout() {
+        return this.layout;
+    }
+
+    /**
+     * Saves the canvas to the billboard folder of the world.
+     *
+     * @implNote This only takes a {@link CanvasSnapshot} of the canvas. Encoding and writing it happens on the
+     * background thread of the {@link CanvasWriter}, which also coalesces saves made in quick succession.
+     */
+    private void save() {
+        if (this.destroyed) {
+            return;
+        }
+
+        try (PipelineStats.Timer timer = PipelineStats.time(PipelineStats.Stage.SNAPSHOT)) {
+            this.getWriter().save(this.getSaveFile(), this.snapshot());
+        }
+    }
+
+    /**
+     * Takes a snapshot of the current state of the canvas.
+     * @return An immutable copy of the canvas, which can be written to disk by another thread.
+     */
+    public CanvasSnapshot snapshot() {
+        int[] pixelSerials = new int[this.canvasPixels.length];
+        for (int i = 0; i < this.canvasPixels.length; i++) {
+            CanvasPixel canvasPixel = this.canvasPixels[i];
+            if (canvasPixel != null && canvasPixel.isRendered()) {
+                pixelSerials[i] = (int) (canvasPixel.getEntityUUID().getLeastSignificantBits() - this.uuid.getLeastSignificantBits());
             }
         }
+
+        return new CanvasSnapshot(this.uuid, this.width, this.height, this.pixelScale, this.pos,
+                this.world.getRegistryKey().getValue().toString(), this.layout, this.detailLevels, this.detailLevel, this.detailDistance,
+                pixelSerials, this.nextPixelSerial, this.proximityRadius, this.viewers != null, this.creationTime, this.owner);
+    }
+
+    /**
+     * Returns the UUID of the entity of a canvas pixel.
+     * @param canvasUUID The UUID of the canvas the canvas pixel belongs to.
+     * @param serial The serial number of the canvas pixel within the canvas, which is greater than 0.
+     * @return The UUID of the entity.
+     *
+     * @implNote Deriving the entity UUIDs from the canvas UUID means that only the serial number of each canvas pixel
+     * needs to be saved, instead of its full UUID.
+     */
+    public static UUID getPixelUUID(UUID canvasUUID, int serial) {
+        return new UUID(canvasUUID.getMostSignificantBits(), canvasUUID.getLeastSignificantBits() + serial);
+    }
+
+    /**
+     * Returns the file the canvas is saved to.
+     * @return The path of the save file of the canvas.
+     */
+    private Path getSaveFile() {
+        MinecraftServer server = this.world.getServer();
+        assert server != null;
+
+        return Serializer.getSavePath(server).resolve("canvas").resolve(this.canvasUUID + CanvasFormat.FILE_EXTENSION);
+    }
+
+    /**
+     * Returns the canvas manager of the server this canvas belongs to.
+     * @return The {@link CanvasManager} of the server.
+     */
+    private CanvasManager getManager() {
+        MinecraftServer server = this.world.getServer();
+        assert server != null;
+
+        return ((CanvasServer) server).billboard$getCanvasManager();
+    }
+
+    /**
+     * Returns the canvas writer of the server this canvas belongs to.
+     * @return The {@link CanvasWriter} of the server.
+     */
+    private CanvasWriter getWriter() {
+        MinecraftServer server = this.world.getServer();
+        assert server != null;
+
+        return ((CanvasServer) server).billboard$getCanvasWriter();
+    }
+
+    /**
+     * Returns the scheduler of the server this canvas belongs to.
+     * @return The {@link CanvasScheduler} of the server.
+     */
+    private CanvasScheduler getScheduler() {
+        MinecraftServer server = this.world.getServer();
+        assert server != null;
+
+        return ((CanvasServer) server).billboard$getCanvasScheduler();
+    }
+
+    /**
+     * Returns the space the canvas takes up in the world.
+     * @return The bounds of the canvas.
+     *
+     * @see Canvas#getBounds(Vec3d, int, int, float)
+     */
+    public Box getBounds() {
+        return this.bounds;
+    }
+
+    /**
+     * Returns the space a canvas would take up in the world.
+     * @param pos The position of the top-left corner of the canvas.
+     * @param width The width of the canvas in terms of pixels.
+     * @param height The height of the canvas in terms of pixels.
+     * @param pixelScale The scale of each canvas pixel.
+     * @return The bounds of the canvas, which extend right and down from its position and are
+     * {@link Canvas#BOUNDS_DEPTH} blocks thick.
+     */
+    public static Box getBounds(Vec3d pos, int width, int height, float pixelScale) {
+        float coordStep = CanvasPixel.getPixelBlocks(pixelScale);
+        return new Box(pos.x, pos.y - height * coordStep, pos.z - BOUNDS_DEPTH / 2,
+                pos.x + width * coordStep, pos.y, pos.z + BOUNDS_DEPTH / 2);
+    }
+
+    /**
+     * Returns the width of this canvas.
+     * @return The width of the canvas in terms of pixels.
+     */
+    public int getWidth() {
+        return this.width;
+    }
+
+    /**
+     * Returns the height of this canvas.
+     * @return The height of the canvas in terms of pixels.
+     */
+    public int getHeight() {
+        return this.height;
+    }
+
+    /**
+     * Returns the UUID of this canvas.
+     * @return The UUID of the canvas as a String.
+     */
+    public String getUUID() {
+        return this.canvasUUID;
+    }
+
+    /**
+     * Returns the UUID of this canvas.
+     * @return The UUID of the canvas.
+     */
+    public UUID getCanvasUUID() {
+        return this.uuid;
     }
 }
@@ -0,0 +1,195 @@
+package com.harismehuljic.billboard.rendering;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An animation played on a {@link Canvas}, such as the frames of an animated GIF.
+ * <p>
+ * The layouts of all frames, and the {@link CanvasDelta}s between consecutive frames, are computed once up front, so
+ * that switching frames only changes the canvas pixels that differ between them. Frame changes are applied by the
+ * {@link CanvasScheduler}, but each animation is limited to its own amount of updates per tick, so that animations can
+ * not starve the server or other tasks.
+ *
+ * @implNote If a frame change can't be applied within the delay of the frame, the animation waits for it to finish
+ * instead of skipping frames, since skipping would require a delta between frames that aren't consecutive. The animation
+ * then plays slower than intended, rather than falling further and further behind.
+ *
+ * @see Canvas#play(CanvasAnimation)
+ */
+public class CanvasAnimation {
+    /**
+     * The default maximum amount of canvas pixel updates an animation may apply per tick.
+     */
+    public static final int DEFAULT_UPDATES_PER_TICK = 256;
+
+    /**
+     * The amount of milliseconds that pass per server tick.
+     */
+    private static final int MILLISECONDS_PER_TICK = 50;
+
+    private final Canvas canvas;
+    private final List<CanvasDelta> deltas;
+    private final int[] delays;
+    private final int updatesPerTick;
+
+    private int frame = 0;
+    private int elapsed = 0;
+    private CanvasTask<Runnable> frameTask;
+    private boolean stopped = false;
+
+    /**
+     * Creates a new CanvasAnimation.
+     * @param canvas The canvas the animation is played on.
+     * @param deltas The deltas between consecutive frames, where the delta at index i changes frame i into the next
+     *               frame, and the last delta changes the last frame back into the first.
+     * @param delays How long each frame is shown, in milliseconds.
+     * @param updatesPerTick The maximum amount of canvas pixel updates the animation may apply per tick.
+     * @throws IllegalArgumentException If the deltas do not form a loop, the amount of deltas and delays do not match,
+     * or the update cap is less than or equal to 0.
+     *
+     * @see CanvasAnimation#computeDeltas(List)
+     */
+    public CanvasAnimation(Canvas canvas, List<CanvasDelta> deltas, int[] delays, int updatesPerTick) throws IllegalArgumentException {
+        if (deltas.isEmpty()) {
+            throw new IllegalArgumentException("An animation must have at least one frame.");
+        }
+        else if (deltas.size() != delays.length) {
+            throw new IllegalArgumentException(String.format("Expected %d frame delays, but got %d.", deltas.size(), delays.length));
+        }
+        else if (updatesPerTick <= 0) {
+            throw new IllegalArgumentException("Updates per tick must be greater than 0.");
+        }
+
+        for (int i = 0; i < deltas.size(); i++) {
+            if (deltas.get(i).getTo() != deltas.get((i + 1) % deltas.size()).getFrom()) {
+                throw new IllegalArgumentException(String.format("The delta of frame %d does not lead to the next frame.", i));
+            }
+        }
+
+        this.canvas = canvas;
+        this.deltas = List.copyOf(deltas);
+        this.delays = delays.clone();
+        this.updatesPerTick = updatesPerTick;
+    }
+
+    /**
+     * Computes the deltas between consecutive frames of an animation, looping back from the last frame to the first.
+     * @param layouts The layouts of the frames, in playback order.
+     * @return The deltas, where the delta at index i changes frame i into the next frame.
+     * @throws IllegalArgumentException If the layouts do not all have the same dimensions.
+     *
+     * @implNote This does not touch the world, so it can be called off the server thread.
+     */
+    public static List<CanvasDelta> computeDeltas(List<CanvasLayout> layouts) throws IllegalArgumentException {
+        List<CanvasDelta> deltas = new ArrayList<>(layouts.size());
+
+        for (int i = 0; i < layouts.size(); i++) {
+            deltas.add(new CanvasDelta(layouts.get(i), layouts.get((i + 1) % layouts.size())));
+        }
+
+        return deltas;
+    }
+
+    /**
+     * Advances the animation by one tick, applying at most the update cap of canvas pixel changes.
+     * @return true if the animation still has work to do, false once it has stopped and finished its last frame change.
+     */
+    boolean tick() {
+        if (this.frameTask == null || this.frameTask.isDone()) {
+            if (this.stopped) {
+                return false;
+            }
+
+            this.elapsed += MILLISECONDS_PER_TICK;
+
+            if (this.elapsed < this.delays[this.frame]) {
+                return true;
+            }
+
+            CanvasDelta delta = this.deltas.get(this.frame);
+            if (delta.getFrom() != this.canvas.getLayout()) {
+                this.stop();
+                return false;
+            }
+
+            this.elapsed = 0;
+            this.frame = (this.frame + 1) % this.deltas.size();
+            this.frameTask = this.canvas.prepareDelta(delta);
+        }
+
+        for (int i = 0; i < this.updatesPerTick && this.frameTask != null && !this.frameTask.isDone(); i++) {
+            this.frameTask.step();
+        }
+
+        return !this.stopped || (this.frameTask != null && !this.frameTask.isDone());
+    }
+
+    /**
+     * Stops the animation, so that no further frames are shown. A frame change that is still being applied is finished
+     * first, so the canvas pixels keep matching the layout of the canvas.
+     */
+    public void stop() {
+        this.stopped = true;
+    }
+
+    /**
+     * Stops the animation right away, without finishing the frame change that is in progress. The canvas pixels may no
+     * longer match the layout of the canvas afterwards.
+     */
+    void cancel() {
+        this.stop();
+
+        if (this.frameTask != null) {
+            this.frameTask.cancel();
+        }
+    }
+
+    /**
+     * Returns whether the animation has been stopped.
+     * @return true if the animation is no longer playing.
+     */
+    public boolean isStopped() {
+        return this.stopped;
+    }
+
+    /**
+     * Returns the canvas the animation is played on.
+     * @return The canvas of the animation.
+     */
+    public Canvas getCanvas() {
+        return this.canvas;
+    }
+
+    /**
+     * Returns the layout of the first frame of the animation.
+     * @return The layout of the first frame.
+     */
+    public CanvasLayout getFirstLayout() {
+        return this.deltas.get(0).getFrom();
+    }
+
+    /**
+     * Returns the frame the animation is currently on.
+     * @return The index of the current frame.
+     */
+    public int getFrame() {
+        return this.frame;
+    }
+
+    /**
+     * Returns the amount of frames of the animation.
+     * @return The number of frames.
+     */
+    public int getFrameCount() {
+        return this.deltas.size();
+    }
+
+    /**
+     * Returns the maximum amount of canvas pixel updates the animation may apply per tick.
+     * @return The update cap of the animation.
+     */
+    public int getUpdatesPerTick() {
+        return this.updatesPerTick;
+    }
+}
@@ -1,11 +1,22 @@
 package com.harismehuljic.billboard.rendering;
 
+import com.harismehuljic.billboard.impl.CanvasServer;
 import com.harismehuljic.billboard.preprocessing.*;
 import com.harismehuljic.billboard.preprocessing.data.ImageTypes;
+import com.harismehuljic.billboard.preprocessing.data.ResamplingMode;
+import com.harismehuljic.billboard.preprocessing.data.SourceImage;
+import com.harismehuljic.billboard.preprocessing.util.EncodedImageCache;
+import com.harismehuljic.billboard.preprocessing.util.EncodingCostModel;
+import com.harismehuljic.billboard.preprocessing.util.ImageProcessor;
+import net.minecraft.server.MinecraftServer;
 import net.minecraft.util.math.Vec3d;
 import net.minecraft.world.World;
 
 import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.IntFunction;
 
 public class CanvasBuilder {
     private int width;
@@ -14,11 +25,26 @@ public class CanvasBuilder {
     private float pixelScale;
     private World world;
     private Image image;
+    private CanvasLayout layout;
+    private float colorTolerance;
+    private float qualityTarget;
+    private ResamplingMode resamplingMode;
+    private float proximityRadius;
+    private int detailLevelCount;
+    private float detailDistance;
+    private List<CanvasLayout> detailLevels;
+    private boolean virtual;
+    private UUID owner;
+    private boolean allowOverlap;
 
     /**
      * Creates a new CanvasBuilder instance with default values.
      * The default width and height are set to 128 pixels, the position is set to (0, 0, 0),
-     * the pixel scale is set to 1.0f.
+     * the pixel scale is set to 1.0f, the color tolerance is set to {@link PerceptualRunLengthEncodedImage#DEFAULT_TOLERANCE},
+     * the quality target is set to {@link EncodingCostModel#DEFAULT_QUALITY_TARGET}, the resampling mode is set to {@link ResamplingMode#AREA_AVERAGE}, the proximity radius is set to 0, so the
+     * canvas always stays rendered, no coarser detail levels are computed, with a detail distance of 32 blocks, and the
+     * canvas pixels are real entities. The canvas has no owner by default, and building a canvas that overlaps another
+     * canvas in the same world fails.
      *
      * @apiNote At least the world and image need to be set before building the canvas. All other properties can use the
      * default assigned values.
@@ -30,6 +56,17 @@ public class CanvasBuilder {
         this.pixelScale = 1.0f;
         this.world = null;
         this.image = null;
+        this.layout = null;
+        this.colorTolerance = PerceptualRunLengthEncodedImage.DEFAULT_TOLERANCE;
+        this.qualityTarget = EncodingCostModel.DEFAULT_QUALITY_TARGET;
+        this.resamplingMode = ResamplingMode.AREA_AVERAGE;
+        this.proximityRadius = 0;
+        this.detailLevelCount = 0;
+        this.detailDistance = 32.0F;
+        this.detailLevels = List.of();
+        this.virtual = false;
+        this.allowOverlap = false;
+        this.owner = null;
     }
 
     /**
@@ -99,6 +136,140 @@ public class CanvasBuilder {
         return this;
     }
 
+    /**
+     * Sets the color tolerance used by lossy image types.
+     * @param colorTolerance The maximum perceptual distance between a pixel and the color of the run it is merged into.
+     * @return This builder instance for method chaining.
+     * @throws IllegalArgumentException If the color tolerance is less than 0.
+     *
+     * @apiNote This must be set before defining the image to render, and only affects {@link ImageTypes#LOSSY}.
+     *
+     * @see PerceptualRunLengthEncodedImage
+     */
+    public CanvasBuilder setColorTolerance(float colorTolerance) throws IllegalArgumentException {
+        if (colorTolerance < 0) {
+            throw new IllegalArgumentException("Color tolerance must be greater than or equal to 0.");
+        }
+
+        this.colorTolerance = colorTolerance;
+        return this;
+    }
+
+    /**
+     * Sets the quality target of the {@link ImageTypes#AUTO} image type.
+     * @param qualityTarget The highest mean perceptual error the picked image type may have. A target of 0 only allows
+     *                      lossless image types.
+     * @return This builder instance for method chaining.
+     * @throws IllegalArgumentException If the quality target is less than 0.
+     *
+     * @apiNote This must be set before defining the image to render, and only affects {@link ImageTypes#AUTO}.
+     *
+     * @see EncodingCostModel
+     */
+    public CanvasBuilder setQualityTarget(float qualityTarget) throws IllegalArgumentException {
+        if (qualityTarget < 0) {
+            throw new IllegalArgumentException("Quality target must be greater than or equal to 0.");
+        }
+
+        this.qualityTarget = qualityTarget;
+        return this;
+    }
+
+    /**
+     * Sets the filter used when the image has to be resized to fit the canvas.
+     * @param resamplingMode The resampling mode to use.
+     * @return This builder instance for method chaining.
+     *
+     * @apiNote This must be set before defining the image to render.
+     *
+     * @see ResamplingMode
+     */
+    public CanvasBuilder setResamplingMode(ResamplingMode resamplingMode) {
+        this.resamplingMode = resamplingMode;
+        return this;
+    }
+
+    /**
+     * Sets the radius within which a player has to be for the canvas to be rendered.
+     * @param proximityRadius The radius in blocks, or 0 to keep the canvas rendered at all times.
+     * @return This builder instance for method chaining.
+     * @throws IllegalArgumentException If the radius is negative.
+     *
+     * @see Canvas#setProximityRadius(float)
+     */
+    public CanvasBuilder setProximityRadius(float proximityRadius) throws IllegalArgumentException {
+        if (proximityRadius < 0) {
+            throw new IllegalArgumentException("Proximity radius must not be negative.");
+        }
+
+        this.proximityRadius = proximityRadius;
+        return this;
+    }
+
+    /**
+     * Sets how many coarser detail levels are computed for the canvas, and from which distance they are shown.
+     * @param detailLevelCount The amount of detail levels besides the full resolution, each with half the resolution of
+     *                         the previous one.
+     * @param detailDistance The distance in blocks beyond which the first coarser level is shown.
+     * @return This builder instance for method chaining.
+     * @throws IllegalArgumentException If the amount of detail levels is negative or above
+     * {@link Canvas#MAX_DETAIL_LEVELS}, or the distance is not greater than 0.
+     *
+     * @apiNote This must be set before defining the image to render. Detail levels can only be computed from a
+     * {@link BufferedImage} or {@link SourceImage}, not from an already processed {@link Image}.
+     *
+     * @see Canvas#setDetailLevels(List, float)
+     */
+    public CanvasBuilder setDetailLevels(int detailLevelCount, float detailDistance) throws IllegalArgumentException {
+        if (detailLevelCount < 0 || detailLevelCount > Canvas.MAX_DETAIL_LEVELS) {
+            throw new IllegalArgumentException(String.format("Detail level count must be between 0 and %d.", Canvas.MAX_DETAIL_LEVELS));
+        }
+        else if (detailDistance <= 0) {
+            throw new IllegalArgumentException("Detail distance must be greater than 0.");
+        }
+
+        this.detailLevelCount = detailLevelCount;
+        this.detailDistance = detailDistance;
+        return this;
+    }
+
+    /**
+     * Sets whether the canvas is virtual. The canvas pixels of a virtual canvas don't exist as entities on the server,
+     * their spawn, update and removal packets are sent straight to the players near the canvas instead.
+     * @param virtual Whether the canvas is virtual.
+     * @return This builder instance for method chaining.
+     *
+     * @see Canvas#isVirtual()
+     */
+    public CanvasBuilder setVirtual(boolean virtual) {
+        this.virtual = virtual;
+        return this;
+    }
+
+    /**
+     * Sets whether the canvas may overlap canvases that already exist in its world.
+     * @param allowOverlap Whether overlapping canvases are allowed.
+     * @return This builder instance for method chaining.
+     *
+     * @see Canvas#getBounds()
+     */
+    public CanvasBuilder setAllowOverlap(boolean allowOverlap) {
+        this.allowOverlap = allowOverlap;
+        return this;
+    }
+
+    /**
+     * Sets the player that creates the canvas.
+     * @param owner The UUID of the player, or null if the canvas has no owner.
+     * @return This builder instance for method chaining.
+     *
+     * @see Canvas#setOwner(UUID)
+     */
+    public CanvasBuilder setOwner(UUID owner) {
+        this.owner = owner;
+        return this;
+    }
+
     /**
      * Sets the image to be rendered on the canvas.
      * @param image The image to render on the canvas, provided as an {@link Image}.
@@ -106,7 +277,8 @@ public class CanvasBuilder {
      * @throws IllegalStateException If the height and width have not been properly set before defining the image to render.
      * @throws IllegalArgumentException If the dimensions of the provided image do not match the defined dimensions of the canvas.
      *
-     * @implNote The image must match the dimensions of the canvas.
+     * @implNote The image must match the dimensions of the canvas. This also computes the {@link CanvasLayout} of the
+     * image, so that it can be done off the server thread.
      *
      * @see Image
      */
@@ -116,10 +288,12 @@ public class CanvasBuilder {
         }
         else if (image.getWidth() != this.width || image.getHeight() != this.height) {
             throw new IllegalArgumentException(String.format("Image dimensions do not match canvas dimensions. Expected: %dx%d, but got: %dx%d",
-                    this.width, this.height, this.image.getWidth(), this.image.getHeight()));
+                    this.width, this.height, image.getWidth(), image.getHeight()));
         }
 
         this.image = image;
+        this.layout = new CanvasLayout(image);
+        this.detailLevels = List.of();
 
         return this;
     }
@@ -132,7 +306,8 @@ public class CanvasBuilder {
      * @throws IllegalStateException If the height and width have not been properly set before defining the image to render.
      *
      * @implNote If the width and height of the canvas are different from the dimensions of the provided image, then
-     * the image will be resized to fit the canvas dimensions.
+     * the image will be resized to fit the canvas dimensions. The coarser detail levels are resized from the same
+     * image.
      *
      * @see ImageTypes
      * @see Image
@@ -142,12 +317,57 @@ public class CanvasBuilder {
             throw new IllegalStateException("Canvas width or height must be defined and greater than 0 before setting the image.");
         }
 
-        Image processedImage = switch (type) {
-            case RLE -> new RunLengthEncodedImage(image, width, height);
-            case RAW -> new RawImage(image, width, height);
-        };
+        setImage(ImageProcessor.process(image, this.width, this.height, type, this.resamplingMode, this.colorTolerance, this.qualityTarget));
+        this.detailLevels = this.computeDetailLevels(level -> ImageProcessor.process(image,
+                Canvas.getDetailSize(this.width, level), Canvas.getDetailSize(this.height, level), type, this.resamplingMode, this.colorTolerance, this.qualityTarget));
+
+        return this;
+    }
+
+    /**
+     * Defines the image to be rendered on the canvas from a downloaded image.
+     * @param image The downloaded image to render on the canvas.
+     * @param type The type of image processing to apply. This should be an instance of {@link ImageTypes} enum.
+     * @return This builder instance for method chaining.
+     * @throws IllegalStateException If the height and width have not been properly set before defining the image to render.
+     *
+     * @implNote If the same image was already processed with the same dimensions, type and parameters, the processed
+     * image is restored from the {@link EncodedImageCache} instead of being resized and processed again. This also
+     * applies to each of the coarser detail levels.
+     *
+     * @see ImageProcessor
+     */
+    public CanvasBuilder setImage(SourceImage image, ImageTypes type) throws IllegalStateException {
+        if (this.height <= 0 || this.width <= 0) {
+            throw new IllegalStateException("Canvas width or height must be defined and greater than 0 before setting the image.");
+        }
+
+        setImage(ImageProcessor.process(image, this.width, this.height, type, this.resamplingMode, this.colorTolerance, this.qualityTarget));
+        this.detailLevels = this.computeDetailLevels(level -> ImageProcessor.process(image,
+                Canvas.getDetailSize(this.width, level), Canvas.getDetailSize(this.height, level), type, this.resamplingMode, this.colorTolerance, this.qualityTarget));
+
+        return this;
+    }
+
+    /**
+     * Computes the layouts of the coarser detail levels of the canvas.
+     * @param processor Processes the image at the given detail level, with the dimensions of that level.
+     * @return The layouts of the detail levels, ordered from fine to coarse.
+     *
+     * @implNote Levels that would not be smaller than the previous level, because the canvas is already only a single
+     * pixel wide and high, are not computed.
+     */
+    private List<CanvasLayout> computeDetailLevels(IntFunction<Image> processor) {
+        List<CanvasLayout> detailLevels = new ArrayList<>(this.detailLevelCount);
+
+        for (int level = 1; level <= this.detailLevelCount; level++) {
+            if (Canvas.getDetailSize(this.width, level - 1) <= 1 && Canvas.getDetailSize(this.height, level - 1) <= 1) {
+                break;
+            }
+            detailLevels.add(new CanvasLayout(processor.apply(level)));
+        }
 
-        return setImage(processedImage);
+        return detailLevels;
     }
 
     /**
@@ -174,6 +394,33 @@ public class CanvasBuilder {
         return setImage(image, type);
     }
 
+    /**
+     * Sets the image to be rendered on the canvas from a downloaded image, resizing it based on the provided resize
+     * factor.
+     * @param image The downloaded image to render on the canvas.
+     * @param type The type of image processing to apply. This should be an instance of {@link ImageTypes} enum.
+     * @param resizeFactor The factor by which to reduce the resolution of the image.
+     * @return This builder instance for method chaining.
+     * @throws IllegalStateException If the height and width have not been properly set before defining the image to render.
+     *
+     * @apiNote A value of 1.0 means the image will be rendered at its original size, while a value of 0.5 will reduce the resolution by half.
+     *
+     * @see CanvasBuilder#setImage(SourceImage, ImageTypes)
+     */
+    public CanvasBuilder setImage(SourceImage image, ImageTypes type, float resizeFactor) throws IllegalStateException {
+        if (this.height <= 0 || this.width <= 0) {
+            throw new IllegalStateException("Canvas width or height must be defined and greater than 0 before setting the image.");
+        }
+        else if (resizeFactor <= 0 || resizeFactor > 1) {
+            throw new IllegalArgumentException("Resize factor must be greater than 0 and less than or equal to 1.");
+        }
+
+        this.width = (int) Math.floor(this.width * resizeFactor);
+        this.height = (int) Math.floor(this.height * resizeFactor);
+
+        return setImage(image, type);
+    }
+
     /**
      * Generates an image full of random noise, used primarily for testing purposes.
      * @return This builder instance for method chaining.
@@ -193,17 +440,40 @@ public class CanvasBuilder {
             }
         }
 
-        this.image = new RawImage(randomImage);
-        return this;
+        return setImage(new RawImage(randomImage));
+    }
+
+    /**
+     * Returns the layout computed for the image that was set.
+     * @return The {@link CanvasLayout} of the image, or null if no image has been set yet.
+     *
+     * @apiNote This can be used to update an existing canvas with {@link Canvas#updateLayout(CanvasLayout)} instead of
+     * building a new one.
+     */
+    public CanvasLayout getLayout() {
+        return this.layout;
+    }
+
+    /**
+     * Returns the layouts computed for the coarser detail levels of the image that was set.
+     * @return The {@link CanvasLayout}s of the detail levels, ordered from fine to coarse, which is empty if no detail
+     * levels were requested or no image has been set yet.
+     *
+     * @see Canvas#setDetailLevels(List, float)
+     */
+    public List<CanvasLayout> getDetailLevels() {
+        return this.detailLevels;
     }
 
     /**
      * Builds the canvas with the defined properties.
      * @return A new instance of the Canvas class with the defined properties.
-     * @throws IllegalStateException If the world or image have not been set before building the canvas.
+     * @throws IllegalStateException If the world or image have not been set before building the canvas, or if the canvas
+     * would overlap another canvas while overlapping isn't allowed.
      *
      * @implNote The canvas will not be rendered (spawned in the world) until the `render()` method is called on the
-     * returned Canvas instance.
+     * returned Canvas instance. This must be called on the server thread, while all the `setImage` methods may be
+     * called from any thread.
      *
      * @see Canvas
      */
@@ -216,13 +486,48 @@ public class CanvasBuilder {
             throw new IllegalStateException("The image must be set before building the canvas.");
         }
 
-        return new Canvas(
+        if (!this.allowOverlap) {
+            this.checkOverlap();
+        }
+
+        Canvas canvas = new Canvas(
             this.width,
             this.height,
             this.pos,
             this.pixelScale,
             this.world,
-            this.image
+            this.layout,
+            this.virtual
         );
+
+        if (this.owner != null) {
+            canvas.setOwner(this.owner);
+        }
+        if (this.proximityRadius > 0) {
+            canvas.setProximityRadius(this.proximityRadius);
+        }
+        if (!this.detailLevels.isEmpty()) {
+            canvas.setDetailLevels(this.detailLevels, this.detailDistance);
+        }
+
+        return canvas;
+    }
+
+    /**
+     * Checks that the canvas doesn't overlap any canvas that already exists in its world.
+     * @throws IllegalStateException If the canvas would overlap another canvas.
+     */
+    private void checkOverlap() throws IllegalStateException {
+        MinecraftServer server = this.world.getServer();
+        if (server == null) {
+            return;
+        }
+
+        CanvasManager manager = ((CanvasServer) server).billboard$getCanvasManager();
+        List<Canvas> overlapping = manager.getSpatialIndex(this.world).getCanvases(Canvas.getBounds(this.pos, this.width, this.height, this.pixelScale));
+
+        if (!overlapping.isEmpty()) {
+            throw new IllegalStateException("The canvas would overlap canvas " + overlapping.get(0).getUUID() + ".");
+        }
     }
 }
@@ -0,0 +1,134 @@
+package com.harismehuljic.billboard.rendering;
+
+import java.util.Arrays;
+
+/**
+ * CanvasDelta describes the difference between two {@link CanvasLayout}s of the same size, in terms of the
+ * {@link CanvasPixel}s that need to be changed to turn one into the other.
+ *
+ * @implNote Regions are matched by the position of their top-left pixel. A matched region keeps its canvas pixel, which
+ * only needs a new color or size if those changed. Regions without a match need a new canvas pixel, and the canvas
+ * pixels of old regions without a match need to be removed.
+ */
+public class CanvasDelta {
+    private final CanvasLayout from;
+    private final CanvasLayout to;
+    private final int[] matches;
+    private final int[] removed;
+    private int recolored = 0;
+    private int resized = 0;
+    private int spawned = 0;
+
+    /**
+     * Computes the difference between two layouts.
+     * @param from The layout currently shown.
+     * @param to The layout that should be shown.
+     * @throws IllegalArgumentException If the dimensions of both layouts do not match.
+     */
+    public CanvasDelta(CanvasLayout from, CanvasLayout to) throws IllegalArgumentException {
+        if (from.getWidth() != to.getWidth() || from.getHeight() != to.getHeight()) {
+            throw new IllegalArgumentException(String.format("Layout dimensions do not match. Expected: %dx%d, but got: %dx%d",
+                    from.getWidth(), from.getHeight(), to.getWidth(), to.getHeight()));
+        }
+
+        this.from = from;
+        this.to = to;
+        this.matches = new int[to.getRegions().size()];
+
+        boolean[] matched = new boolean[from.getRegions().size()];
+
+        for (int i = 0; i < this.matches.length; i++) {
+            PixelRegion region = to.getRegions().get(i);
+            int oldIndex = from.getRegionIndex(region.getX(), region.getY());
+            PixelRegion oldRegion = from.getRegions().get(oldIndex);
+
+            if (oldRegion.getX() != region.getX() || oldRegion.getY() != region.getY()) {
+                this.matches[i] = -1;
+                this.spawned++;
+                continue;
+            }
+
+            this.matches[i] = oldIndex;
+            matched[oldIndex] = true;
+
+            if (!oldRegion.hasSameColors(region)) {
+                this.recolored++;
+            }
+            if (oldRegion.getWidth() != region.getWidth() || oldRegion.getHeight() != region.getHeight()) {
+                this.resized++;
+            }
+        }
+
+        int removedCount = 0;
+        int[] removed = new int[matched.length];
+        for (int i = 0; i < matched.length; i++) {
+            if (!matched[i]) {
+                removed[removedCount++] = i;
+            }
+        }
+        this.removed = Arrays.copyOf(removed, removedCount);
+    }
+
+    /**
+     * Returns the index of the old region matching the given new region.
+     * @param index The index of the region in the new layout.
+     * @return The index of the matching region in the old layout, or -1 if the region needs a new canvas pixel.
+     */
+    public int getMatch(int index) {
+        return this.matches[index];
+    }
+
+    /**
+     * Checks whether the given new region has a different color than the old region it matches.
+     * @param index The index of the region in the new layout. Must have a match.
+     * @return true if the canvas pixel of the region needs to be recolored, or given other glyph colors.
+     */
+    public boolean isRecolored(int index) {
+        return !this.from.getRegions().get(this.matches[index]).hasSameColors(this.to.getRegions().get(index));
+    }
+
+    /**
+     * Checks whether the given new region has a different size than the old region it matches.
+     * @param index The index of the region in the new layout. Must have a match.
+     * @return true if the canvas pixel of the region needs to be resized.
+     */
+    public boolean isResized(int index) {
+        PixelRegion oldRegion = this.from.getRegions().get(this.matches[index]);
+        PixelRegion region = this.to.getRegions().get(index);
+        return oldRegion.getWidth() != region.getWidth() || oldRegion.getHeight() != region.getHeight();
+    }
+
+    /**
+     * Returns the old regions whose canvas pixels are no longer needed.
+     * @return The indices of the removed regions in the old layout.
+     */
+    public int[] getRemoved() {
+        return this.removed;
+    }
+
+    /**
+     * Returns the total amount of entity changes needed to apply this delta.
+     * @return The number of canvas pixels that need to be recolored, resized, spawned or removed.
+     *
+     * @apiNote A canvas pixel that is both recolored and resized counts twice.
+     */
+    public int getChangeCount() {
+        return this.recolored + this.resized + this.spawned + this.removed.length;
+    }
+
+    /**
+     * Returns the layout currently shown.
+     * @return The old layout.
+     */
+    public CanvasLayout getFrom() {
+        return this.from;
+    }
+
+    /**
+     * Returns the layout that should be shown.
+     * @return The new layout.
+     */
+    public CanvasLayout getTo() {
+        return this.to;
+    }
+}
@@ -0,0 +1,176 @@
+package com.harismehuljic.billboard.rendering;
+
+import com.harismehuljic.billboard.preprocessing.Image;
+import com.harismehuljic.billboard.preprocessing.data.PixelConnections;
+import com.harismehuljic.billboard.util.PipelineStats;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * CanvasLayout describes how an {@link Image} is split into the {@link PixelRegion}s of a {@link Canvas}, where every
+ * region will be rendered as a single {@link CanvasPixel}.
+ *
+ * @implNote The layout only consists of plain data and doesn't touch the Minecraft world, so it can safely be computed
+ * off the server thread.
+ */
+public class CanvasLayout {
+    private final int width;
+    private final int height;
+    private final List<PixelRegion> regions;
+    private final int[] regionIndices;
+
+    /**
+     * Creates a layout from regions that were computed before, such as the regions of a saved canvas.
+     * @param width The width of the layout in pixels.
+     * @param height The height of the layout in pixels.
+     * @param regions The regions of the layout, which must cover every pixel exactly once.
+     * @throws IllegalArgumentException If a region lies outside the layout, regions overlap, or a pixel isn't covered.
+     */
+    public CanvasLayout(int width, int height, List<PixelRegion> regions) throws IllegalArgumentException {
+        this.width = width;
+        this.height = height;
+        this.regions = List.copyOf(regions);
+        this.regionIndices = new int[width * height];
+
+        Arrays.fill(this.regionIndices, -1);
+        for (int i = 0; i < this.regions.size(); i++) {
+            PixelRegion region = this.regions.get(i);
+            if (region.getX() < 0 || region.getY() < 0 || region.getWidth() <= 0 || region.getHeight() <= 0
+                    || region.getX() + region.getWidth() > width || region.getY() + region.getHeight() > height) {
+                throw new IllegalArgumentException(String.format("Region %d lies outside the %dx%d layout.", i, width, height));
+            }
+
+            for (int y = region.getY(); y < region.getY() + region.getHeight(); y++) {
+                for (int x = region.getX(); x < region.getX() + region.getWidth(); x++) {
+                    if (this.regionIndices[y * width + x] != -1) {
+                        throw new IllegalArgumentException(String.format("Region %d overlaps another region at (%d, %d).", i, x, y));
+                    }
+                    this.regionIndices[y * width + x] = i;
+                }
+            }
+        }
+
+        for (int index = 0; index < this.regionIndices.length; index++) {
+            if (this.regionIndices[index] == -1) {
+                throw new IllegalArgumentException(String.format("Pixel (%d, %d) isn't covered by any region.", index % width, index / width));
+            }
+        }
+    }
+
+    /**
+     * Creates the layout of the given image, following the connections between its pixels.
+     * @param image The image to lay out.
+     *
+     * @throws IllegalArgumentException If a packed region would have more than {@link CanvasPixel#MAX_GLYPHS} glyphs.
+     *
+     * @implNote A pixel connected to the LEFT extends the region of its left neighbor horizontally. A pixel connected
+     * UP belongs to a region started in a row above, which is extended vertically once per row, when the first pixel of
+     * that row is reached. Every other pixel starts a new region. A single row region whose pixels don't all share the
+     * same color becomes a packed region, which keeps the color of every pixel. A region of two rows whose rows have
+     * different colors becomes a half-block region, with the color of its bottom row as its lower color.
+     */
+    public CanvasLayout(Image image) throws IllegalArgumentException {
+        try (PipelineStats.Timer timer = PipelineStats.time(PipelineStats.Stage.LAYOUT)) {
+            this.width = image.getWidth();
+            this.height = image.getHeight();
+            this.regionIndices = new int[this.width * this.height];
+
+            int[] regionX = new int[this.regionIndices.length];
+            int[] regionY = new int[this.regionIndices.length];
+            int[] regionWidths = new int[this.regionIndices.length];
+            int[] regionHeights = new int[this.regionIndices.length];
+            int[] regionColors = new int[this.regionIndices.length];
+            boolean[] regionPacked = new boolean[this.regionIndices.length];
+            int[] regionLowerColors = new int[this.regionIndices.length];
+            int regionCount = 0;
+
+            for (int y = 0; y < this.height; y++) {
+                for (int x = 0; x < this.width; x++) {
+                    int index = y * this.width + x;
+                    byte connections = image.getConnections(x, y);
+
+                    if (PixelConnections.isConnected(connections, PixelConnections.ConnectionDirection.LEFT)) {
+                        int region = this.regionIndices[index - 1];
+                        if (regionY[region] == y) {
+                            regionWidths[region]++;
+                            regionPacked[region] |= image.getRGB(x, y) != regionColors[region];
+                        }
+                        this.regionIndices[index] = region;
+                    }
+                    else if (PixelConnections.isConnected(connections, PixelConnections.ConnectionDirection.UP)) {
+                        int region = this.regionIndices[index - this.width];
+                        if (x == 0 || this.regionIndices[index - 1] != region) {
+                            regionHeights[region]++;
+                            regionLowerColors[region] = image.getRGB(x, y);
+                        }
+                        this.regionIndices[index] = region;
+                    }
+                    else {
+                        regionX[regionCount] = x;
+                        regionY[regionCount] = y;
+                        regionWidths[regionCount] = 1;
+                        regionHeights[regionCount] = 1;
+                        regionColors[regionCount] = image.getRGB(x, y);
+                        regionLowerColors[regionCount] = regionColors[regionCount];
+                        this.regionIndices[index] = regionCount++;
+                    }
+                }
+            }
+
+            List<PixelRegion> regions = new ArrayList<>(regionCount);
+            for (int i = 0; i < regionCount; i++) {
+                if (regionPacked[i] && regionHeights[i] == 1) {
+                    int[] glyphColors = new int[regionWidths[i]];
+                    for (int x = 0; x < glyphColors.length; x++) {
+                        glyphColors[x] = image.getRGB(regionX[i] + x, regionY[i]);
+                    }
+                    regions.add(new PixelRegion(regionX[i], regionY[i], glyphColors));
+                }
+                else if (regionHeights[i] == 2 && regionLowerColors[i] != regionColors[i]) {
+                    regions.add(new PixelRegion(regionX[i], regionY[i], regionWidths[i], regionHeights[i], regionColors[i], regionLowerColors[i]));
+                }
+                else {
+                    regions.add(new PixelRegion(regionX[i], regionY[i], regionWidths[i], regionHeights[i], regionColors[i]));
+                }
+            }
+            this.regions = Collections.unmodifiableList(regions);
+        }
+    }
+
+    /**
+     * Returns the regions of this layout.
+     * @return An unmodifiable list of the regions, ordered by the position of their top-left pixel.
+     */
+    public List<PixelRegion> getRegions() {
+        return this.regions;
+    }
+
+    /**
+     * Returns the index of the region covering the pixel at the specified coordinates.
+     * @param x The x-coordinate of the pixel.
+     * @param y The y-coordinate of the pixel.
+     * @return The index of the region in {@link CanvasLayout#getRegions()}.
+     */
+    public int getRegionIndex(int x, int y) {
+        return this.regionIndices[y * this.width + x];
+    }
+
+    /**
+     * Returns the width of the layout.
+     * @return The width of the layout in pixels.
+     */
+    public int getWidth() {
+        return this.width;
+    }
+
+    /**
+     * Returns the height of the layout.
+     * @return The height of the layout in pixels.
+     */
+    public int getHeight() {
+        return this.height;
+    }
+}
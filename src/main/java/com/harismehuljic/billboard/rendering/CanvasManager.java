@@ -1,35 +1,200 @@
 package com.harismehuljic.billboard.rendering;
 
 import com.harismehuljic.billboard.Billboard;
+import com.harismehuljic.billboard.util.PipelineStats;
+import net.minecraft.entity.Entity;
+import net.minecraft.entity.decoration.DisplayEntity;
+import net.minecraft.entity.player.PlayerEntity;
+import net.minecraft.registry.RegistryKey;
+import net.minecraft.registry.RegistryKeys;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.util.Identifier;
+import net.minecraft.world.World;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
-import java.util.HashSet;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
 
 /**
  * CanvasManager is responsible for managing multiple Canvas instances.
  * It allows adding, rendering, and removing canvases by their UUIDs.
+ * <p>
+ * Saved canvases are restored when the server starts. Their pixel entities aren't spawned again, instead each entity is
+ * attached to its canvas pixel once its chunk is loaded, which is recognized by the UUID of the entity.
+ * <p>
+ * Canvases with a proximity radius are rendered and collapsed as players approach and leave them, and canvases with
+ * detail levels switch to coarser levels as players move away. Virtual canvases are sent to the players that come near
+ * them. All of these are checked every {@link CanvasManager#PROXIMITY_CHECK_INTERVAL} ticks, by looking up the canvases
+ * around each player in the {@link CanvasSpatialIndex} of its world.
+ * <p>
+ * The registry of canvases can be read from any thread without locking. Besides looking canvases up by UUID, they can
+ * be queried by world, by location, by owner and by creation time, and UUIDs can be looked up by prefix for command suggestions.
+ * Adding and removing a canvas updates every index while holding the lock of one of
+ * {@link CanvasManager#LOCK_STRIPES} stripes, chosen by the UUID of the canvas, so concurrent writes to different
+ * canvases rarely wait for each other.
  *
  * @see Canvas
  */
 public class CanvasManager {
-    private final HashMap<String, Canvas> worldCanvases = new HashMap<>();
-    private final HashSet<String> canvasUUIDs = new HashSet<>();
+    /**
+     * The amount of ticks between checking which canvases have a player near them.
+     */
+    public static final int PROXIMITY_CHECK_INTERVAL = 20;
+
+    /**
+     * The amount of locks that writes to the registry are spread over.
+     */
+    public static final int LOCK_STRIPES = 16;
+
+    private final ConcurrentHashMap<String, Canvas> worldCanvases = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListSet<String> canvasUUIDs = new ConcurrentSkipListSet<>();
+    private final ConcurrentHashMap<RegistryKey<World>, CanvasSpatialIndex> spatialIndexes = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<UUID, Set<Canvas>> canvasesByOwner = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListMap<CreationKey, Canvas> canvasesByCreation = new ConcurrentSkipListMap<>();
+    private final ConcurrentHashMap<Long, Canvas> pixelPrefixes = new ConcurrentHashMap<>();
+    private final Object[] locks = new Object[LOCK_STRIPES];
+    private int ticksUntilProximityCheck = 0;
+
+    private CompletableFuture<List<CanvasSnapshot>> pendingRestore;
+    private boolean restored = false;
+    private final List<DisplayEntity.TextDisplayEntity> pendingEntities = new ArrayList<>();
 
     /**
      * Default constructor for CanvasManager.
      * Initializes the manager with empty collections for canvases and UUIDs.
      */
-    public CanvasManager() {}
+    public CanvasManager() {
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            this.locks[i] = new Object();
+        }
+    }
 
     /**
-     * Adds a new Canvas to the manager.
+     * Adds a new Canvas to the manager, replacing any canvas with the same UUID.
      *
      * @param uuid   The unique identifier for the canvas.
      * @param canvas The Canvas instance to be added.
+     *
+     * @implNote This may be called from any thread.
      */
     public void addCanvas(String uuid, Canvas canvas) {
-        this.worldCanvases.put(uuid, canvas);
-        this.canvasUUIDs.add(uuid);
+        synchronized (this.getLock(uuid)) {
+            Canvas previous = this.worldCanvases.put(uuid, canvas);
+            if (previous != null && previous != canvas) {
+                this.unindex(previous);
+            }
+
+            this.canvasUUIDs.add(uuid);
+            this.spatialIndexes.computeIfAbsent(canvas.world.getRegistryKey(), key -> new CanvasSpatialIndex(canvas.world)).add(canvas);
+            if (canvas.getOwner() != null) {
+                addToIndex(this.canvasesByOwner, canvas.getOwner(), canvas);
+            }
+            this.canvasesByCreation.put(new CreationKey(canvas.getCreationTime(), canvas.getCanvasUUID()), canvas);
+            this.pixelPrefixes.put(canvas.getCanvasUUID().getMostSignificantBits(), canvas);
+        }
+    }
+
+    /**
+     * Removes a canvas from every index of the registry.
+     *
+     * @param canvas The canvas to remove.
+     *
+     * @implNote The caller must hold the lock of the canvas.
+     */
+    private void unindex(Canvas canvas) {
+        this.canvasUUIDs.remove(canvas.getUUID());
+        CanvasSpatialIndex spatialIndex = this.spatialIndexes.get(canvas.world.getRegistryKey());
+        if (spatialIndex != null) {
+            spatialIndex.remove(canvas);
+        }
+        if (canvas.getOwner() != null) {
+            removeFromIndex(this.canvasesByOwner, canvas.getOwner(), canvas);
+        }
+        this.canvasesByCreation.remove(new CreationKey(canvas.getCreationTime(), canvas.getCanvasUUID()), canvas);
+        this.pixelPrefixes.remove(canvas.getCanvasUUID().getMostSignificantBits(), canvas);
+    }
+
+    /**
+     * Moves a canvas to another owner in the owner index.
+     *
+     * @param canvas The canvas whose owner changed.
+     * @param previousOwner The UUID of the previous owner, or null if the canvas had no owner.
+     *
+     * @see Canvas#setOwner(UUID)
+     */
+    void updateOwner(Canvas canvas, UUID previousOwner) {
+        synchronized (this.getLock(canvas.getUUID())) {
+            if (this.worldCanvases.get(canvas.getUUID()) != canvas) {
+                return;
+            }
+
+            if (previousOwner != null) {
+                removeFromIndex(this.canvasesByOwner, previousOwner, canvas);
+            }
+            if (canvas.getOwner() != null) {
+                addToIndex(this.canvasesByOwner, canvas.getOwner(), canvas);
+            }
+        }
+    }
+
+    /**
+     * Returns the lock guarding writes to the canvas with the given UUID.
+     *
+     * @param uuid The UUID of the canvas.
+     * @return The lock of the stripe the canvas belongs to.
+     */
+    private Object getLock(String uuid) {
+        return this.locks[Math.floorMod(uuid.hashCode(), LOCK_STRIPES)];
+    }
+
+    /**
+     * Adds a canvas to the set of canvases of a key in an index.
+     *
+     * @param index The index to add the canvas to.
+     * @param key The key the canvas is indexed by.
+     * @param canvas The canvas to add.
+     * @param <K> The type of the keys of the index.
+     */
+    private static <K> void addToIndex(ConcurrentHashMap<K, Set<Canvas>> index, K key, Canvas canvas) {
+        index.compute(key, (k, canvases) -> {
+            Set<Canvas> set = canvases == null ? ConcurrentHashMap.newKeySet() : canvases;
+            set.add(canvas);
+            return set;
+        });
+    }
+
+    /**
+     * Removes a canvas from the set of canvases of a key in an index, dropping the set once it is empty.
+     *
+     * @param index The index to remove the canvas from.
+     * @param key The key the canvas is indexed by.
+     * @param canvas The canvas to remove.
+     * @param <K> The type of the keys of the index.
+     */
+    private static <K> void removeFromIndex(ConcurrentHashMap<K, Set<Canvas>> index, K key, Canvas canvas) {
+        index.computeIfPresent(key, (k, canvases) -> {
+            canvases.remove(canvas);
+            return canvases.isEmpty() ? null : canvases;
+        });
+    }
+
+    /**
+     * Returns the Canvas associated with the given UUID.
+     *
+     * @param uuid The unique identifier for the canvas.
+     * @return The Canvas instance, or null if no canvas with the given UUID exists.
+     */
+    public Canvas getCanvas(String uuid) {
+        return this.worldCanvases.get(uuid);
     }
 
     /**
@@ -51,28 +216,273 @@ public class CanvasManager {
      *
      * @param uuid The unique identifier for the canvas to be removed.
      * @return true if the canvas was successfully removed, false if it was not found.
+     *
+     * @implNote This must be called on the server thread, since the canvas is destroyed as well.
      */
     public boolean removeCanvas(String uuid) {
-        Canvas canvas = this.worldCanvases.get(uuid);
+        Canvas canvas;
+        synchronized (this.getLock(uuid)) {
+            canvas = this.worldCanvases.remove(uuid);
+            if (canvas != null) {
+                this.unindex(canvas);
+            }
+        }
+
         if (canvas == null) {
             Billboard.LOGGER.error("Canvas with UUID ({}) not found.", uuid);
             return false;
         }
 
         canvas.destroy();
-        this.worldCanvases.remove(uuid);
-        this.canvasUUIDs.remove(uuid);
-
         return true;
     }
 
+    /**
+     * Renders canvases that a player has come near to, collapses canvases that every player has left, and switches the
+     * detail level of canvases depending on how far away the nearest player is.
+     *
+     * @implNote This must be called once per server tick, on the server thread. The check itself only runs every
+     * {@link CanvasManager#PROXIMITY_CHECK_INTERVAL} ticks.
+     *
+     * @see Canvas#setProximityRadius(float)
+     * @see Canvas#setDetailLevels(List, float)
+     */
+    public void tick() {
+        if (--this.ticksUntilProximityCheck > 0) {
+            return;
+        }
+
+        this.ticksUntilProximityCheck = PROXIMITY_CHECK_INTERVAL;
+        try (PipelineStats.Timer timer = PipelineStats.time(PipelineStats.Stage.VIEWERS)) {
+            for (CanvasSpatialIndex spatialIndex : this.spatialIndexes.values()) {
+                this.updateViewers(spatialIndex);
+            }
+        }
+    }
+
+    /**
+     * Updates the canvases of a world that depend on where players are, handing each one only the players within its
+     * viewer range instead of every player in the world.
+     *
+     * @param spatialIndex The spatial index of the world.
+     *
+     * @see Canvas#getViewerRange()
+     */
+    private void updateViewers(CanvasSpatialIndex spatialIndex) {
+        double range = 0;
+        List<Canvas> canvases = new ArrayList<>();
+        for (Canvas canvas : spatialIndex.getCanvases()) {
+            double viewerRange = canvas.getViewerRange();
+            if (viewerRange > 0) {
+                canvases.add(canvas);
+                range = Math.max(range, viewerRange);
+            }
+        }
+
+        if (canvases.isEmpty()) {
+            return;
+        }
+
+        HashMap<Canvas, List<PlayerEntity>> nearbyPlayers = new HashMap<>();
+        for (PlayerEntity player : spatialIndex.getWorld().getPlayers()) {
+            for (Canvas canvas : spatialIndex.getCanvases(player.getPos(), range)) {
+                nearbyPlayers.computeIfAbsent(canvas, c -> new ArrayList<>()).add(player);
+            }
+        }
+
+        for (Canvas canvas : canvases) {
+            canvas.updateViewers(nearbyPlayers.getOrDefault(canvas, List.of()));
+        }
+    }
+
+    /**
+     * Forgets a player that disconnected from the server, so that virtual canvases stop sending packets to it.
+     *
+     * @param player The UUID of the player.
+     */
+    public void onPlayerDisconnect(UUID player) {
+        for (Canvas canvas : this.worldCanvases.values()) {
+            canvas.forgetViewer(player);
+        }
+    }
+
     /**
      * Returns the set of UUIDs for all canvases managed by this CanvasManager.
-     * @return A HashSet containing the UUIDs of all canvases.
+     * @return An unmodifiable, sorted view of the UUIDs of all canvases.
+     */
+    public NavigableSet<String> getCanvasUUIDs() {
+        return Collections.unmodifiableNavigableSet(this.canvasUUIDs);
+    }
+
+    /**
+     * Returns the UUIDs of the canvases starting with the given prefix.
+     * @param prefix The start of the UUIDs, in lower case.
+     * @return An unmodifiable, sorted view of the matching UUIDs.
+     *
+     * @implNote Finding the first match takes logarithmic time, so suggesting UUIDs stays fast with many canvases.
+     */
+    public NavigableSet<String> getCanvasUUIDs(String prefix) {
+        return Collections.unmodifiableNavigableSet(this.canvasUUIDs.subSet(prefix, true, prefix + Character.MAX_VALUE, false));
+    }
+
+    /**
+     * Returns all canvases managed by this CanvasManager.
+     * @return An unmodifiable view of all canvases, in no particular order.
+     */
+    public Collection<Canvas> getCanvases() {
+        return Collections.unmodifiableCollection(this.worldCanvases.values());
+    }
+
+    /**
+     * Returns the canvases in a world.
+     * @param world The key of the world.
+     * @return An unmodifiable view of the canvases in the world, which is empty if there are none.
+     */
+    public Set<Canvas> getCanvases(RegistryKey<World> world) {
+        CanvasSpatialIndex spatialIndex = this.spatialIndexes.get(world);
+        return spatialIndex == null ? Set.of() : spatialIndex.getCanvases();
+    }
+
+    /**
+     * Returns the spatial index of the canvases in a world, for looking up canvases by location.
+     * @param world The world.
+     * @return The spatial index of the world, which is empty if the world has no canvases.
+     */
+    public CanvasSpatialIndex getSpatialIndex(World world) {
+        CanvasSpatialIndex spatialIndex = this.spatialIndexes.get(world.getRegistryKey());
+        return spatialIndex == null ? new CanvasSpatialIndex(world) : spatialIndex;
+    }
+
+    /**
+     * Returns the canvases created by a player.
+     * @param owner The UUID of the player.
+     * @return An unmodifiable view of the canvases of the player, which is empty if there are none.
+     *
+     * @see Canvas#setOwner(UUID)
+     */
+    public Set<Canvas> getCanvasesByOwner(UUID owner) {
+        Set<Canvas> canvases = this.canvasesByOwner.get(owner);
+        return canvases == null ? Set.of() : Collections.unmodifiableSet(canvases);
+    }
+
+    /**
+     * Returns the canvases created within a period of time, ordered from oldest to newest.
+     * @param from The start of the period, inclusive, in milliseconds since the epoch.
+     * @param to The end of the period, exclusive, in milliseconds since the epoch.
+     * @return An unmodifiable view of the canvases created within the period.
+     *
+     * @see Canvas#getCreationTime()
+     */
+    public Collection<Canvas> getCanvasesCreatedBetween(long from, long to) {
+        return Collections.unmodifiableCollection(this.canvasesByCreation.subMap(CreationKey.first(from), CreationKey.first(to)).values());
+    }
+
+    /**
+     * The key of a canvas in the index by creation time. Canvases created in the same millisecond are ordered by UUID.
+     *
+     * @param creationTime The creation time of the canvas, in milliseconds since the epoch.
+     * @param uuid The UUID of the canvas.
+     */
+    private record CreationKey(long creationTime, UUID uuid) implements Comparable<CreationKey> {
+        private static final UUID FIRST_UUID = new UUID(Long.MIN_VALUE, Long.MIN_VALUE);
+
+        /**
+         * Returns the key sorting before every canvas created at the given time.
+         * @param creationTime The creation time, in milliseconds since the epoch.
+         * @return The first key of that time.
+         */
+        static CreationKey first(long creationTime) {
+            return new CreationKey(creationTime, FIRST_UUID);
+        }
+
+        @Override
+        public int compareTo(CreationKey other) {
+            int comparison = Long.compare(this.creationTime, other.creationTime);
+            return comparison != 0 ? comparison : this.uuid.compareTo(other.uuid);
+        }
+    }
+
+    /**
+     * Starts restoring saved canvases. Reading the saved canvases happens in the background, while the worlds load.
+     *
+     * @param snapshots A future resolving to the snapshots of the saved canvases.
+     *
+     * @see CanvasManager#finishRestore(MinecraftServer)
+     */
+    public void beginRestore(CompletableFuture<List<CanvasSnapshot>> snapshots) {
+        this.pendingRestore = snapshots;
+    }
+
+    /**
+     * Finishes restoring saved canvases, by creating each canvas in its world and attaching the pixel entities that
+     * were loaded in the meantime.
+     *
+     * @param server The server the canvases belong to.
+     * @return The amount of canvases that were restored.
+     *
+     * @implNote This must be called on the server thread, once the worlds have been loaded. It only waits for saved
+     * canvases that are still being read.
+     */
+    public int finishRestore(MinecraftServer server) {
+        int restoredCanvases = 0;
+
+        if (this.pendingRestore != null) {
+            for (CanvasSnapshot snapshot : this.pendingRestore.join()) {
+                Identifier worldId = Identifier.tryParse(snapshot.getWorldId());
+                World world = worldId == null ? null : server.getWorld(RegistryKey.of(RegistryKeys.WORLD, worldId));
+
+                if (world == null) {
+                    Billboard.LOGGER.warn("Canvas {} is in unknown world {}, skipping it.", snapshot.getUUID(), snapshot.getWorldId());
+                    continue;
+                }
+
+                new Canvas(snapshot, world);
+                restoredCanvases++;
+            }
+
+            this.pendingRestore = null;
+        }
+
+        this.restored = true;
+        for (DisplayEntity.TextDisplayEntity entity : this.pendingEntities) {
+            this.attachEntity(entity);
+        }
+        this.pendingEntities.clear();
+
+        return restoredCanvases;
+    }
+
+    /**
+     * Handles an entity being loaded into a world. Canvas pixel entities are attached to their canvas pixel, and
+     * canvas pixel entities that no longer belong to any canvas are discarded.
+     *
+     * @param entity The loaded entity.
      *
-     * @see HashSet
+     * @implNote Entities loaded before the saved canvases are restored are kept until {@link CanvasManager#finishRestore(MinecraftServer)}.
      */
-    public HashSet<String> getCanvasUUIDs() {
-        return this.canvasUUIDs;
+    public void onEntityLoad(Entity entity) {
+        if (!(entity instanceof DisplayEntity.TextDisplayEntity textDisplay) || !entity.getCommandTags().contains(CanvasPixel.ENTITY_TAG)) {
+            return;
+        }
+
+        if (this.restored) {
+            this.attachEntity(textDisplay);
+        }
+        else {
+            this.pendingEntities.add(textDisplay);
+        }
+    }
+
+    /**
+     * Attaches a canvas pixel entity to its canvas, or discards it if it no longer belongs to a canvas.
+     *
+     * @param entity The canvas pixel entity.
+     */
+    private void attachEntity(DisplayEntity.TextDisplayEntity entity) {
+        Canvas canvas = this.pixelPrefixes.get(entity.getUuid().getMostSignificantBits());
+
+        if (canvas == null || !canvas.attachPixel(entity)) {
+            entity.discard();
+        }
     }
 }
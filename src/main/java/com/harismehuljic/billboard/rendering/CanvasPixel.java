@@ -1,8 +1,15 @@
 package com.harismehuljic.billboard.rendering;
 
+import com.harismehuljic.billboard.preprocessing.util.PerceptualColor;
 import net.minecraft.entity.Entity;
 import net.minecraft.entity.EntityType;
+import net.minecraft.entity.data.DataTracker;
 import net.minecraft.entity.decoration.DisplayEntity;
+import net.minecraft.network.listener.ClientPlayPacketListener;
+import net.minecraft.network.packet.Packet;
+import net.minecraft.network.packet.s2c.play.EntitiesDestroyS2CPacket;
+import net.minecraft.network.packet.s2c.play.EntitySpawnS2CPacket;
+import net.minecraft.network.packet.s2c.play.EntityTrackerUpdateS2CPacket;
 import net.minecraft.text.MutableText;
 import net.minecraft.text.Style;
 import net.minecraft.text.Text;
@@ -12,13 +19,55 @@ import net.minecraft.util.math.Vec3d;
 import net.minecraft.world.World;
 import org.joml.Vector3f;
 
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
 public class CanvasPixel {
-    private final DisplayEntity.TextDisplayEntity pixelEntity;
+    /**
+     * The command tag given to every canvas pixel entity, so that they can be recognized when they are loaded again.
+     */
+    public static final String ENTITY_TAG = "billboard_pixel";
+
+    /**
+     * The most glyphs a packed pixel can show in a single line.
+     */
+    public static final int MAX_GLYPHS = 32;
+
+    /**
+     * The glyph drawn for every pixel.
+     */
+    private static final String GLYPH = "█";
+
+    /**
+     * The glyph drawn for pixels whose lower half has another color, which only covers the upper half of the pixel.
+     */
+    private static final String UPPER_HALF_GLYPH = "▀";
+
+    /**
+     * The horizontal advance of {@link CanvasPixel#GLYPH} in text pixels, including the gap of one text pixel that is
+     * left after it. The font offers no way to close this gap, so packed pixels fill it with their background.
+     */
+    private static final int GLYPH_ADVANCE = 7;
+
+    /**
+     * The width of a single pixel in text pixels, which is the advance of its glyph plus one text pixel of background.
+     * A packed pixel shows its background in one of these text pixels for every glyph.
+     */
+    public static final int PIXEL_TEXT_WIDTH = GLYPH_ADVANCE + 1;
+
+    private DisplayEntity.TextDisplayEntity pixelEntity;
     private final Vec3d pos;
     private final World world;
     private final float scale;
+    private final CanvasViewers viewers;
 
+    private int color;
+    private int lowerColor;
+    private int[] glyphColors;
     private int length = 1;
+    private int height = 1;
+    private boolean rendered = false;
 
     /**
      * Creates a new Pixel instance. A pixelText is a {@link DisplayEntity.TextDisplayEntity}
@@ -36,12 +85,30 @@ public class CanvasPixel {
      * @see CanvasBuilder
      */
     public CanvasPixel(Vec3d pos, World world, float scale, int color) {
+        this(pos, world, scale, color, (CanvasViewers) null);
+    }
+
+    /**
+     * Creates a new Pixel instance, which is virtual if it is given viewers. The entity of a virtual pixel is never
+     * spawned into the world. It only holds the tracked data of the pixel, from which the packets sent to the viewers
+     * are created.
+     * @param pos The position of the pixelText in the world.
+     * @param world The Minecraft world where the pixelText will be rendered.
+     * @param scale The scale of the pixelText, which determines how large the pixelText appears in the world.
+     * @param color The color of the pixelText, represented as an RGB integer.
+     * @param viewers The viewers of the virtual canvas the pixel belongs to, or null to spawn a real entity.
+     *
+     * @see CanvasPixel#CanvasPixel(Vec3d, World, float, int)
+     */
+    CanvasPixel(Vec3d pos, World world, float scale, int color, CanvasViewers viewers) {
         this.pos = pos;
         this.world = world;
         this.scale = scale;
+        this.viewers = viewers;
 
         this.pixelEntity = new DisplayEntity.TextDisplayEntity(EntityType.TEXT_DISPLAY, world);
         this.pixelEntity.setPosition(pos);
+        this.pixelEntity.addCommandTag(ENTITY_TAG);
 
         this.pixelEntity.setTransformation(
             new AffineTransformation(
@@ -52,23 +119,210 @@ public class CanvasPixel {
             )
         );
 
+        this.lowerColor = color;
         this.updateColor(color);
     }
 
+    /**
+     * Creates a new Pixel instance whose entity has the given UUID.
+     * @param pos The position of the pixelText in the world.
+     * @param world The Minecraft world where the pixelText will be rendered.
+     * @param scale The scale of the pixelText, which determines how large the pixelText appears in the world.
+     * @param color The color of the pixelText, represented as an RGB integer.
+     * @param uuid The UUID of the pixelText entity.
+     *
+     * @see CanvasPixel#CanvasPixel(Vec3d, World, float, int)
+     */
+    public CanvasPixel(Vec3d pos, World world, float scale, int color, UUID uuid) {
+        this(pos, world, scale, color, uuid, null);
+    }
+
+    /**
+     * Creates a new Pixel instance whose entity has the given UUID, which is virtual if it is given viewers.
+     * @param pos The position of the pixelText in the world.
+     * @param world The Minecraft world where the pixelText will be rendered.
+     * @param scale The scale of the pixelText, which determines how large the pixelText appears in the world.
+     * @param color The color of the pixelText, represented as an RGB integer.
+     * @param uuid The UUID of the pixelText entity.
+     * @param viewers The viewers of the virtual canvas the pixel belongs to, or null to spawn a real entity.
+     *
+     * @see CanvasPixel#CanvasPixel(Vec3d, World, float, int, CanvasViewers)
+     */
+    CanvasPixel(Vec3d pos, World world, float scale, int color, UUID uuid, CanvasViewers viewers) {
+        this(pos, world, scale, color, viewers);
+        this.pixelEntity.setUuid(uuid);
+    }
+
+    /**
+     * Sets the color of the pixel, if it differs from its current color.
+     * @param color The color of the pixelText, represented as an RGB integer.
+     *
+     * @implNote Changing the color of a rendered pixel only updates the tracked data of its entity, which is far
+     * cheaper than respawning it.
+     */
+    public void setColor(int color) {
+        this.setColors(color, color);
+    }
+
+    /**
+     * Sets the colors of the upper and lower half of the pixel, if they differ from its current colors. A pixel whose
+     * halves have different colors shows an upper half block glyph in the upper color, over a background in the lower
+     * color.
+     * @param color The color of the upper half of the pixelText, represented as an RGB integer.
+     * @param lowerColor The color of the lower half of the pixelText, represented as an RGB integer.
+     *
+     * @implNote The halves are split at the middle of the height of the pixel, so a half-block pixel should cover an
+     * even amount of rows. The lower color is ignored by packed pixels.
+     */
+    public void setColors(int color, int lowerColor) {
+        if (color != this.color || lowerColor != this.lowerColor) {
+            this.lowerColor = lowerColor;
+            this.updateColor(color);
+            this.sendUpdate();
+        }
+    }
+
+    /**
+     * Returns the color of the pixel.
+     * @return The color of the pixelText, represented as an RGB integer. For packed pixels, this is the color of the
+     * leftmost glyph.
+     */
+    public int getColor() {
+        return this.color;
+    }
+
+    /**
+     * Returns the color of the lower half of the pixel.
+     * @return The color of the lower half of the pixelText, represented as an RGB integer, which is the same as its
+     * color unless the pixel shows a half block.
+     */
+    public int getLowerColor() {
+        return this.lowerColor;
+    }
+
+    /**
+     * Packs a row segment of differently colored pixels into this pixel, which then shows one glyph per pixel instead
+     * of a single stretched glyph. The length of the pixel becomes the amount of glyphs.
+     * @param glyphColors The color of every glyph from left to right, represented as RGB integers, or null to show a
+     *                    single glyph in the color of the first glyph again.
+     * @throws IllegalArgumentException If there are no glyph colors, or more than {@link CanvasPixel#MAX_GLYPHS}.
+     *
+     * @implNote The glyphs are spaced exactly one canvas pixel apart. Neighboring glyphs of the same color are joined
+     * into a single text component, which keeps the tracked text small.
+     */
+    public void setGlyphColors(int[] glyphColors) throws IllegalArgumentException {
+        if (Arrays.equals(glyphColors, this.glyphColors)) {
+            return;
+        }
+        else if (glyphColors != null && (glyphColors.length == 0 || glyphColors.length > MAX_GLYPHS)) {
+            throw new IllegalArgumentException(String.format("A packed pixel must have between 1 and %d glyphs, but got %d.",
+                    MAX_GLYPHS, glyphColors.length));
+        }
+
+        this.glyphColors = glyphColors;
+        if (glyphColors != null) {
+            this.length = glyphColors.length;
+            this.color = glyphColors[0];
+            this.lowerColor = this.color;
+        }
+
+        this.updateColor(this.color);
+        this.updateTransformation();
+        this.sendUpdate();
+    }
+
+    /**
+     * Returns the colors of the glyphs of a packed pixel.
+     * @return The color of every glyph from left to right, or null if the pixel shows a single glyph. The array must
+     * not be modified.
+     */
+    public int[] getGlyphColors() {
+        return this.glyphColors;
+    }
+
     /**
      * Updates the color of the pixel
      * @param color The color of the pixelText, represented as an RGB integer. This defines the color of the text
      *              and the background of the pixelText in the Minecraft world.
+     *
+     * @implNote A packed pixel shows its glyph colors instead. Its background shows through the gap after every glyph,
+     * and uses the gap color of its glyphs rather than the given color. The gaps are invisible in segments of a single
+     * color, but show as faint stripes between glyphs of different colors. A half-block pixel uses its lower color as
+     * an opaque background, which also shows through the gap after its glyph in the upper half.
      */
     private void updateColor(int color) {
+        this.color = color;
         int rgb = Math.abs(color);
-        MutableText pixelText = Text.literal("█");
+
+        if (this.glyphColors != null) {
+            this.pixelEntity.setBackground(CanvasPixel.getGapColor(this.glyphColors, 0, this.glyphColors.length));
+            this.pixelEntity.setLineWidth(MAX_GLYPHS * GLYPH_ADVANCE);
+            this.pixelEntity.setText(CanvasPixel.getPackedText(this.glyphColors));
+            return;
+        }
+
+        if (this.lowerColor != color) {
+            MutableText pixelText = Text.literal(UPPER_HALF_GLYPH);
+            pixelText.setStyle(Style.EMPTY.withColor(TextColor.fromRgb(color)));
+
+            this.pixelEntity.setBackground(0xFF000000 | this.lowerColor);
+            this.pixelEntity.setText(pixelText);
+            return;
+        }
+
+        MutableText pixelText = Text.literal(GLYPH);
         pixelText.setStyle(Style.EMPTY.withColor(TextColor.fromRgb(color)));
 
         this.pixelEntity.setBackground(rgb);
         this.pixelEntity.setText(pixelText);
     }
 
+    /**
+     * Returns the color shown in the gaps between the glyphs of a packed pixel.
+     * @param glyphColors The colors of the glyphs, represented as RGB integers.
+     * @param start The index of the first glyph.
+     * @param end The index after the last glyph.
+     * @return The mean color of the glyphs in OKLab, with a fully opaque alpha channel.
+     *
+     * @implNote Every gap sits between two glyphs that may have any color of the segment, so the mean color keeps the
+     * stripes as faint as a single background color can.
+     */
+    public static int getGapColor(int[] glyphColors, int start, int end) {
+        float[] lab = new float[3];
+        float[] sum = new float[3];
+
+        for (int i = start; i < end; i++) {
+            PerceptualColor.toOklab(glyphColors[i], lab, 0);
+            sum[0] += lab[0];
+            sum[1] += lab[1];
+            sum[2] += lab[2];
+        }
+
+        int count = end - start;
+        return PerceptualColor.toRGB(sum[0] / count, sum[1] / count, sum[2] / count);
+    }
+
+    /**
+     * Builds the text of a packed pixel.
+     * @param glyphColors The color of every glyph from left to right.
+     * @return A text with one glyph per color, where neighboring glyphs of the same color share a component.
+     */
+    private static Text getPackedText(int[] glyphColors) {
+        MutableText text = Text.empty();
+
+        int runStart = 0;
+        for (int i = 1; i <= glyphColors.length; i++) {
+            if (i == glyphColors.length || glyphColors[i] != glyphColors[runStart]) {
+                MutableText run = Text.literal(GLYPH.repeat(i - runStart));
+                run.setStyle(Style.EMPTY.withColor(TextColor.fromRgb(glyphColors[runStart])));
+                text.append(run);
+                runStart = i;
+            }
+        }
+
+        return text;
+    }
+
     /**
      * Sets the length of the pixelText, which determines how many blocks it will occupy in the world.
      * @param length The length of the pixelText, which is the number of blocks it will stretch across.
@@ -77,17 +331,8 @@ public class CanvasPixel {
      */
     public void setLength(int length) {
         this.length = length;
-        float stretchFactor = this.scale * length;
-        float offset = CanvasPixel.getOffsetConstant(length, scale);
-
-        this.pixelEntity.setTransformation(
-            new AffineTransformation(
-                new Vector3f(offset, 0.0F, 0.0F),
-                null,
-                new Vector3f(stretchFactor, scale, scale),
-                null
-            )
-        );
+        this.updateTransformation();
+        this.sendUpdate();
     }
 
     /**
@@ -98,18 +343,186 @@ public class CanvasPixel {
         return this.length;
     }
 
+    /**
+     * Sets the height of the pixelText, which determines how many rows of the canvas it will occupy in the world.
+     * @param height The height of the pixelText, which is the number of rows it will stretch down across.
+     *
+     * @implNote This method also updates the transformation of the pixelText entity to reflect the new height.
+     */
+    public void setHeight(int height) {
+        this.height = height;
+        this.updateTransformation();
+        this.sendUpdate();
+    }
+
+    /**
+     * Returns the height of the pixelText, which is the number of rows it occupies in the world.
+     * @return The height of the pixelText.
+     */
+    public int getHeight() {
+        return this.height;
+    }
+
+    /**
+     * Sets both the length and the height of the pixelText at once.
+     * @param length The length of the pixelText, which is the number of blocks it will stretch across.
+     * @param height The height of the pixelText, which is the number of rows it will stretch down across.
+     *
+     * @implNote This method also updates the transformation of the pixelText entity to reflect the new size.
+     */
+    public void setSize(int length, int height) {
+        this.length = length;
+        this.height = height;
+        this.updateTransformation();
+        this.sendUpdate();
+    }
+
+    /**
+     * Updates the transformation of the pixelText entity so that it stretches across its length and height.
+     *
+     * @implNote The entity stays positioned at the top-left pixel it covers. Stretching happens towards the right and
+     * towards the bottom of the canvas. A packed pixel isn't stretched horizontally, since its text already has a glyph
+     * per pixel. It is only widened so that every glyph advance matches the width of a canvas pixel.
+     */
+    private void updateTransformation() {
+        float scaleX = this.glyphColors != null ? this.scale * PIXEL_TEXT_WIDTH / GLYPH_ADVANCE : this.scale * this.length;
+        float offsetX = this.glyphColors != null
+                ? CanvasPixel.getOffsetConstant(this.length, scaleX)
+                : CanvasPixel.getOffsetConstant(this.length, this.scale);
+        float offsetY = CanvasPixel.getVerticalOffsetConstant(this.height, this.scale);
+
+        this.pixelEntity.setTransformation(
+            new AffineTransformation(
+                new Vector3f(offsetX, offsetY, 0.0F),
+                null,
+                new Vector3f(scaleX, this.scale * this.height, this.scale),
+                null
+            )
+        );
+    }
+
     /**
      * Spawns the {@link DisplayEntity.TextDisplayEntity} linked to this pixel into the Minecraft world.
+     *
+     * @implNote A virtual pixel is only spawned on the clients of its viewers.
      */
     public void render() {
-        this.world.spawnEntity(this.pixelEntity);
+        if (this.viewers != null) {
+            this.viewers.broadcast(this.getSpawnPackets());
+        }
+        else {
+            this.world.spawnEntity(this.pixelEntity);
+        }
+
+        this.rendered = true;
     }
 
     /**
      * Destroys the {@link DisplayEntity.TextDisplayEntity} linked to this pixel, removing it from the Minecraft world.
+     *
+     * @implNote A virtual pixel is only removed from the clients of its viewers.
      */
     public void destroy() {
-        this.pixelEntity.remove(Entity.RemovalReason.DISCARDED);
+        if (this.viewers != null) {
+            if (this.rendered) {
+                this.viewers.broadcast(new EntitiesDestroyS2CPacket(this.pixelEntity.getId()));
+            }
+        }
+        else {
+            this.pixelEntity.remove(Entity.RemovalReason.DISCARDED);
+        }
+
+        this.rendered = false;
+    }
+
+    /**
+     * Returns the packets that spawn this pixel on a client, with its current color and size.
+     * @return The spawn packet of the entity, followed by the packet carrying its tracked data.
+     *
+     * @implNote This also clears the changes to the tracked data, since the packets already contain them.
+     */
+    List<Packet<? super ClientPlayPacketListener>> getSpawnPackets() {
+        EntitySpawnS2CPacket spawnPacket = new EntitySpawnS2CPacket(this.pixelEntity.getId(), this.pixelEntity.getUuid(),
+                this.pixelEntity.getX(), this.pixelEntity.getY(), this.pixelEntity.getZ(), 0.0F, 0.0F,
+                this.pixelEntity.getType(), 0, Vec3d.ZERO, 0.0);
+
+        DataTracker dataTracker = this.pixelEntity.getDataTracker();
+        List<DataTracker.SerializedEntry<?>> trackedValues = dataTracker.getChangedEntries();
+        dataTracker.getDirtyEntries();
+
+        if (trackedValues == null) {
+            return List.of(spawnPacket);
+        }
+        return List.of(spawnPacket, new EntityTrackerUpdateS2CPacket(this.pixelEntity.getId(), trackedValues));
+    }
+
+    /**
+     * Sends the changes to the tracked data of a rendered virtual pixel to its viewers. Real entities are kept in sync
+     * by the entity tracker of the server instead.
+     */
+    private void sendUpdate() {
+        if (this.viewers == null || !this.rendered) {
+            return;
+        }
+
+        List<DataTracker.SerializedEntry<?>> dirtyValues = this.pixelEntity.getDataTracker().getDirtyEntries();
+        if (dirtyValues != null) {
+            this.viewers.broadcast(new EntityTrackerUpdateS2CPacket(this.pixelEntity.getId(), dirtyValues));
+        }
+    }
+
+    /**
+     * Returns whether this pixel is virtual, meaning its entity only exists on the clients of its viewers.
+     * @return true if the pixel is virtual.
+     */
+    public boolean isVirtual() {
+        return this.viewers != null;
+    }
+
+    /**
+     * Returns the network ID of the pixelText entity.
+     * @return The ID that identifies the entity in packets.
+     */
+    public int getEntityId() {
+        return this.pixelEntity.getId();
+    }
+
+    /**
+     * Marks the pixel as rendered without spawning its entity, because the entity already exists in the world from
+     * before the server restarted. The entity is attached once its chunk is loaded.
+     *
+     * @see CanvasPixel#attach(DisplayEntity.TextDisplayEntity)
+     */
+    void restore() {
+        this.rendered = true;
+    }
+
+    /**
+     * Links this pixel to an existing entity with the same UUID, which was loaded from the world. The current color
+     * and size of the pixel are applied to it, in case they were changed before the entity was loaded.
+     * @param entity The loaded entity.
+     */
+    void attach(DisplayEntity.TextDisplayEntity entity) {
+        this.pixelEntity = entity;
+        this.updateColor(this.color);
+        this.updateTransformation();
+    }
+
+    /**
+     * Returns whether the given entity is the entity linked to this pixel.
+     * @param entity The entity to check.
+     * @return true if the entity is the same instance as the entity of this pixel.
+     */
+    boolean isAttachedTo(Entity entity) {
+        return this.pixelEntity == entity;
+    }
+
+    /**
+     * Returns whether the {@link DisplayEntity.TextDisplayEntity} linked to this pixel has been spawned into the world.
+     * @return true if the pixel has been rendered and not destroyed since.
+     */
+    public boolean isRendered() {
+        return this.rendered;
     }
 
     /**
@@ -131,6 +544,15 @@ public class CanvasPixel {
         return 0.0875F * (length - 1) * scale;
     }
 
+    /**
+     * Returns the vertical offset amount for a pixelText based on its height.
+     * @return The amount of offset for the pixelText, which moves its bottom edge down by one pixel for every
+     * additional row it covers.
+     */
+    public static float getVerticalOffsetConstant(int height, float scale) {
+        return -CanvasPixel.getPixelBlocks(scale) * (height - 1);
+    }
+
     /**
      * Returns the position of the pixelText.
      * @return A {@link Vec3d} containing the (X, Y, Z) coordinates of the pixelText
@@ -146,4 +568,12 @@ public class CanvasPixel {
     public String getUUID() {
         return this.pixelEntity.getUuidAsString();
     }
+
+    /**
+     * Returns the UUID of the pixelText entity.
+     * @return The UUID of the pixelText entity.
+     */
+    public UUID getEntityUUID() {
+        return this.pixelEntity.getUuid();
+    }
 }
@@ -0,0 +1,183 @@
+package com.harismehuljic.billboard.rendering;
+
+import com.harismehuljic.billboard.util.PipelineStats;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * CanvasScheduler spreads the work of {@link CanvasTask}s, such as spawning and removing {@link CanvasPixel}s, over
+ * multiple server ticks. Each tick, tasks are processed in the order they were submitted until either the entity budget
+ * or the time budget of that tick is used up. Playing {@link CanvasAnimation}s are advanced first, each limited by its
+ * own update cap.
+ *
+ * @implNote {@link CanvasScheduler#tick()} must be called once per server tick, on the server thread.
+ *
+ * @see CanvasTask
+ */
+public class CanvasScheduler {
+    /**
+     * The default amount of entities that may be processed per tick.
+     */
+    public static final int DEFAULT_ENTITY_BUDGET = 1024;
+
+    /**
+     * The default amount of time, in milliseconds, that may be spent processing tasks per tick.
+     */
+    public static final int DEFAULT_TIME_BUDGET = 10;
+
+    private final ArrayDeque<CanvasTask<?>> tasks = new ArrayDeque<>();
+    private final List<CanvasAnimation> animations = new ArrayList<>();
+
+    private int entityBudget = DEFAULT_ENTITY_BUDGET;
+    private long timeBudgetNanos = DEFAULT_TIME_BUDGET * 1_000_000L;
+
+    /**
+     * Default constructor for CanvasScheduler.
+     * Initializes the scheduler with no pending tasks and the default budgets.
+     */
+    public CanvasScheduler() {}
+
+    /**
+     * Queues a task to be processed in the upcoming ticks.
+     * @param task The task to process.
+     * @return The submitted task, for method chaining.
+     * @param <T> The type of the elements processed by the task.
+     */
+    public <T> CanvasTask<T> submit(CanvasTask<T> task) {
+        if (!task.isDone()) {
+            this.tasks.add(task);
+        }
+
+        return task;
+    }
+
+    /**
+     * Starts advancing an animation every tick, until it is stopped.
+     * @param animation The animation to play.
+     * @return The animation, for method chaining.
+     *
+     * @apiNote Use {@link Canvas#play(CanvasAnimation)} instead, so that the canvas can stop its animation when it is
+     * updated or destroyed.
+     */
+    CanvasAnimation play(CanvasAnimation animation) {
+        if (!animation.isStopped() && !this.animations.contains(animation)) {
+            this.animations.add(animation);
+        }
+
+        return animation;
+    }
+
+    /**
+     * Advances playing animations, then processes queued tasks until the budgets of this tick are used up.
+     *
+     * @implNote Idle ticks return right away, so that they aren't recorded as runs of {@link PipelineStats.Stage#SPAWN}.
+     */
+    public void tick() {
+        if (this.animations.isEmpty() && this.tasks.isEmpty()) {
+            return;
+        }
+
+        try (PipelineStats.Timer timer = PipelineStats.time(PipelineStats.Stage.SPAWN)) {
+            this.animations.removeIf(animation -> !animation.tick());
+
+            long deadline = System.nanoTime() + this.timeBudgetNanos;
+            int remainingEntities = this.entityBudget;
+
+            while (!this.tasks.isEmpty() && remainingEntities > 0) {
+                CanvasTask<?> task = this.tasks.peek();
+
+                while (!task.isDone() && remainingEntities > 0) {
+                    task.step();
+                    remainingEntities--;
+
+                    if (System.nanoTime() >= deadline) {
+                        remainingEntities = 0;
+                    }
+                }
+
+                if (task.isDone()) {
+                    this.tasks.poll();
+                }
+            }
+        }
+    }
+
+    /**
+     * Cancels all queued tasks and stops all playing animations.
+     */
+    public void cancelAll() {
+        for (CanvasAnimation animation : this.animations) {
+            animation.cancel();
+        }
+
+        this.animations.clear();
+
+        for (CanvasTask<?> task : this.tasks) {
+            task.cancel();
+        }
+
+        this.tasks.clear();
+    }
+
+    /**
+     * Returns the tasks that have not finished yet.
+     * @return A snapshot of the pending tasks, in the order they will be processed.
+     */
+    public List<CanvasTask<?>> getPendingTasks() {
+        return this.tasks.stream().filter(task -> !task.isDone()).toList();
+    }
+
+    /**
+     * Returns the animations that are currently playing.
+     * @return A snapshot of the playing animations.
+     */
+    public List<CanvasAnimation> getAnimations() {
+        return this.animations.stream().filter(animation -> !animation.isStopped()).toList();
+    }
+
+    /**
+     * Sets the maximum amount of entities that may be spawned or removed per tick.
+     * @param entityBudget The entity budget of each tick.
+     * @throws IllegalArgumentException If the entity budget is less than or equal to 0.
+     */
+    public void setEntityBudget(int entityBudget) throws IllegalArgumentException {
+        if (entityBudget <= 0) {
+            throw new IllegalArgumentException("Entity budget must be greater than 0.");
+        }
+
+        this.entityBudget = entityBudget;
+    }
+
+    /**
+     * Returns the maximum amount of entities that may be spawned or removed per tick.
+     * @return The entity budget of each tick.
+     */
+    public int getEntityBudget() {
+        return this.entityBudget;
+    }
+
+    /**
+     * Sets the maximum amount of time that may be spent processing tasks per tick.
+     * @param milliseconds The time budget of each tick, in milliseconds.
+     * @throws IllegalArgumentException If the time budget is less than or equal to 0.
+     *
+     * @apiNote At least one element is always processed per tick, so that tasks keep progressing.
+     */
+    public void setTimeBudget(int milliseconds) throws IllegalArgumentException {
+        if (milliseconds <= 0) {
+            throw new IllegalArgumentException("Time budget must be greater than 0.");
+        }
+
+        this.timeBudgetNanos = milliseconds * 1_000_000L;
+    }
+
+    /**
+     * Returns the maximum amount of time that may be spent processing tasks per tick.
+     * @return The time budget of each tick, in milliseconds.
+     */
+    public int getTimeBudget() {
+        return (int) (this.timeBudgetNanos / 1_000_000L);
+    }
+}
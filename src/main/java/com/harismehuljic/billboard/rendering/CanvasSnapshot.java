@@ -0,0 +1,219 @@
+package com.harismehuljic.billboard.rendering;
+
+import com.harismehuljic.billboard.util.CanvasFormat;
+import net.minecraft.util.math.Vec3d;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * An immutable copy of the state of a {@link Canvas}, taken on the server thread so that it can be written to disk by
+ * another thread.
+ * <p>
+ * The entities of the canvas pixels aren't stored by their full UUID. Instead, each canvas pixel gets a serial number
+ * when it is created, and the UUID of its entity is derived from the UUID of the canvas and that serial number. Only
+ * the canvas pixels of the detail level the canvas is showing can be rendered.
+ *
+ * @see Canvas#getPixelUUID(UUID, int)
+ * @see CanvasFormat
+ */
+public class CanvasSnapshot {
+    private final UUID uuid;
+    private final int width;
+    private final int height;
+    private final float pixelScale;
+    private final Vec3d pos;
+    private final String worldId;
+    private final CanvasLayout layout;
+    private final List<CanvasLayout> detailLevels;
+    private final int detailLevel;
+    private final float detailDistance;
+    private final int[] pixelSerials;
+    private final int nextPixelSerial;
+    private final float proximityRadius;
+    private final boolean virtual;
+    private final long creationTime;
+    private final UUID owner;
+
+    /**
+     * Creates a new CanvasSnapshot.
+     * @param uuid The UUID of the canvas.
+     * @param width The width of the canvas in terms of pixels.
+     * @param height The height of the canvas in terms of pixels.
+     * @param pixelScale The scale of each canvas pixel.
+     * @param pos The position of the top-left corner of the canvas in the world.
+     * @param worldId The identifier of the world the canvas is in.
+     * @param layout The layout shown by the canvas, at full resolution.
+     * @param detailLevels The layouts of the coarser detail levels of the canvas.
+     * @param detailLevel The detail level the canvas is showing, where 0 is the full resolution.
+     * @param detailDistance The distance beyond which the first coarser detail level is shown, or 0.
+     * @param pixelSerials The serial number of the rendered canvas pixel of each region of the shown detail level, or 0
+     *                     if it isn't rendered.
+     * @param nextPixelSerial The serial number the next canvas pixel will get.
+     * @param proximityRadius The radius within which a player has to be for the canvas to be rendered, or 0.
+     * @param virtual Whether the canvas pixels of the canvas only exist on the clients of its viewers.
+     * @param creationTime When the canvas was created, in milliseconds since the epoch.
+     * @param owner The UUID of the player that created the canvas, or null if it has no owner.
+     * @throws IllegalArgumentException If the detail level does not exist, or the amount of serial numbers does not
+     * match the amount of regions of the shown detail level.
+     */
+    public CanvasSnapshot(UUID uuid, int width, int height, float pixelScale, Vec3d pos, String worldId,
+                          CanvasLayout layout, List<CanvasLayout> detailLevels, int detailLevel, float detailDistance,
+                          int[] pixelSerials, int nextPixelSerial, float proximityRadius, boolean virtual,
+                          long creationTime, UUID owner) throws IllegalArgumentException {
+        if (detailLevel < 0 || detailLevel > detailLevels.size()) {
+            throw new IllegalArgumentException(String.format("Detail level %d does not exist, the canvas has %d.", detailLevel, detailLevels.size()));
+        }
+
+        CanvasLayout displayedLayout = detailLevel == 0 ? layout : detailLevels.get(detailLevel - 1);
+        if (pixelSerials.length != displayedLayout.getRegions().size()) {
+            throw new IllegalArgumentException(String.format("Expected %d pixel serials, but got %d.", displayedLayout.getRegions().size(), pixelSerials.length));
+        }
+
+        this.uuid = uuid;
+        this.width = width;
+        this.height = height;
+        this.pixelScale = pixelScale;
+        this.pos = pos;
+        this.worldId = worldId;
+        this.layout = layout;
+        this.detailLevels = List.copyOf(detailLevels);
+        this.detailLevel = detailLevel;
+        this.detailDistance = detailDistance;
+        this.pixelSerials = pixelSerials;
+        this.nextPixelSerial = nextPixelSerial;
+        this.proximityRadius = proximityRadius;
+        this.virtual = virtual;
+        this.creationTime = creationTime;
+        this.owner = owner;
+    }
+
+    /**
+     * Returns the UUID of the canvas.
+     * @return The UUID of the canvas.
+     */
+    public UUID getUUID() {
+        return this.uuid;
+    }
+
+    /**
+     * Returns the width of the canvas.
+     * @return The width of the canvas in terms of pixels.
+     */
+    public int getWidth() {
+        return this.width;
+    }
+
+    /**
+     * Returns the height of the canvas.
+     * @return The height of the canvas in terms of pixels.
+     */
+    public int getHeight() {
+        return this.height;
+    }
+
+    /**
+     * Returns the scale of each canvas pixel.
+     * @return The pixel scale of the canvas.
+     */
+    public float getPixelScale() {
+        return this.pixelScale;
+    }
+
+    /**
+     * Returns the position of the canvas.
+     * @return The position of the top-left corner of the canvas in the world.
+     */
+    public Vec3d getPos() {
+        return this.pos;
+    }
+
+    /**
+     * Returns the world the canvas is in.
+     * @return The identifier of the world, such as "minecraft:overworld".
+     */
+    public String getWorldId() {
+        return this.worldId;
+    }
+
+    /**
+     * Returns the layout shown by the canvas, at full resolution.
+     * @return The layout of the canvas.
+     */
+    public CanvasLayout getLayout() {
+        return this.layout;
+    }
+
+    /**
+     * Returns the layouts of the coarser detail levels of the canvas.
+     * @return An unmodifiable list of the detail levels besides the full resolution, which may be empty.
+     */
+    public List<CanvasLayout> getDetailLevels() {
+        return this.detailLevels;
+    }
+
+    /**
+     * Returns the detail level the canvas is showing.
+     * @return The detail level, where 0 is the full resolution.
+     */
+    public int getDetailLevel() {
+        return this.detailLevel;
+    }
+
+    /**
+     * Returns the distance beyond which the first coarser detail level of the canvas is shown.
+     * @return The detail distance in blocks, or 0 if the canvas has no detail levels.
+     */
+    public float getDetailDistance() {
+        return this.detailDistance;
+    }
+
+    /**
+     * Returns the serial number of the canvas pixel of a region.
+     * @param regionIndex The index of the region in the layout of the shown detail level.
+     * @return The serial number of the rendered canvas pixel, or 0 if the region isn't rendered.
+     */
+    public int getPixelSerial(int regionIndex) {
+        return this.pixelSerials[regionIndex];
+    }
+
+    /**
+     * Returns the serial number the next canvas pixel of the canvas will get.
+     * @return The next serial number.
+     */
+    public int getNextPixelSerial() {
+        return this.nextPixelSerial;
+    }
+
+    /**
+     * Returns the radius within which a player has to be for the canvas to be rendered.
+     * @return The proximity radius in blocks, or 0 if the canvas is always rendered.
+     */
+    public float getProximityRadius() {
+        return this.proximityRadius;
+    }
+
+    /**
+     * Returns whether the canvas is virtual.
+     * @return true if the canvas pixels of the canvas only exist on the clients of its viewers.
+     */
+    public boolean isVirtual() {
+        return this.virtual;
+    }
+
+    /**
+     * Returns when the canvas was created.
+     * @return The creation time in milliseconds since the epoch.
+     */
+    public long getCreationTime() {
+        return this.creationTime;
+    }
+
+    /**
+     * Returns the player that created the canvas.
+     * @return The UUID of the owner, or null if the canvas has no owner.
+     */
+    public UUID getOwner() {
+        return this.owner;
+    }
+}
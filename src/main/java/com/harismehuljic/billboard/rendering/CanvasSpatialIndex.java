@@ -0,0 +1,171 @@
+package com.harismehuljic.billboard.rendering;
+
+import net.minecraft.util.math.Box;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.util.math.Vec3d;
+import net.minecraft.world.World;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A spatial index of the canvases in a world, which buckets each canvas into every chunk its bounds overlap. This
+ * answers which canvases are near a position, inside a box or in a chunk by only looking at the chunks involved,
+ * instead of every canvas of the world.
+ * <p>
+ * The index can be queried from any thread without locking.
+ *
+ * @see Canvas#getBounds()
+ * @see CanvasManager#getSpatialIndex(World)
+ */
+public class CanvasSpatialIndex {
+    private final World world;
+    private final ConcurrentHashMap<Long, Set<Canvas>> chunks = new ConcurrentHashMap<>();
+    private final Set<Canvas> canvases = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Creates a new, empty CanvasSpatialIndex.
+     * @param world The world the indexed canvases are in.
+     */
+    CanvasSpatialIndex(World world) {
+        this.world = world;
+    }
+
+    /**
+     * Adds a canvas to the chunks its bounds overlap.
+     * @param canvas The canvas to add.
+     */
+    void add(Canvas canvas) {
+        this.canvases.add(canvas);
+
+        Box bounds = canvas.getBounds();
+        for (int chunkX = toChunk(bounds.minX); chunkX <= toChunk(bounds.maxX); chunkX++) {
+            for (int chunkZ = toChunk(bounds.minZ); chunkZ <= toChunk(bounds.maxZ); chunkZ++) {
+                this.chunks.compute(ChunkPos.toLong(chunkX, chunkZ), (chunk, canvases) -> {
+                    Set<Canvas> set = canvases == null ? ConcurrentHashMap.newKeySet() : canvases;
+                    set.add(canvas);
+                    return set;
+                });
+            }
+        }
+    }
+
+    /**
+     * Removes a canvas from the chunks its bounds overlap.
+     * @param canvas The canvas to remove.
+     */
+    void remove(Canvas canvas) {
+        this.canvases.remove(canvas);
+
+        Box bounds = canvas.getBounds();
+        for (int chunkX = toChunk(bounds.minX); chunkX <= toChunk(bounds.maxX); chunkX++) {
+            for (int chunkZ = toChunk(bounds.minZ); chunkZ <= toChunk(bounds.maxZ); chunkZ++) {
+                this.chunks.computeIfPresent(ChunkPos.toLong(chunkX, chunkZ), (chunk, canvases) -> {
+                    canvases.remove(canvas);
+                    return canvases.isEmpty() ? null : canvases;
+                });
+            }
+        }
+    }
+
+    /**
+     * Returns the canvases whose bounds are within a radius of a position.
+     * @param center The position to search around.
+     * @param radius The radius in blocks.
+     * @return The canvases with any part of their bounds within the radius, in no particular order.
+     */
+    public List<Canvas> getCanvases(Vec3d center, double radius) {
+        Box area = new Box(center.x - radius, center.y - radius, center.z - radius, center.x + radius, center.y + radius, center.z + radius);
+        double squaredRadius = radius * radius;
+
+        List<Canvas> canvases = new ArrayList<>();
+        for (Canvas canvas : this.getCandidates(area)) {
+            if (canvas.getBounds().squaredMagnitude(center) <= squaredRadius) {
+                canvases.add(canvas);
+            }
+        }
+        return canvases;
+    }
+
+    /**
+     * Returns the canvases whose bounds intersect a box.
+     * @param box The box to search in.
+     * @return The canvases intersecting the box, in no particular order.
+     */
+    public List<Canvas> getCanvases(Box box) {
+        List<Canvas> canvases = new ArrayList<>();
+        for (Canvas canvas : this.getCandidates(box)) {
+            if (canvas.getBounds().intersects(box)) {
+                canvases.add(canvas);
+            }
+        }
+        return canvases;
+    }
+
+    /**
+     * Returns the canvases whose bounds overlap a chunk.
+     * @param chunkPos The position of the chunk.
+     * @return An unmodifiable view of the canvases in the chunk, which is empty if there are none.
+     */
+    public Set<Canvas> getCanvases(ChunkPos chunkPos) {
+        Set<Canvas> canvases = this.chunks.get(chunkPos.toLong());
+        return canvases == null ? Set.of() : Collections.unmodifiableSet(canvases);
+    }
+
+    /**
+     * Returns every canvas in the index.
+     * @return An unmodifiable view of the indexed canvases.
+     */
+    public Set<Canvas> getCanvases() {
+        return Collections.unmodifiableSet(this.canvases);
+    }
+
+    /**
+     * Returns whether the index contains no canvases.
+     * @return true if the index is empty.
+     */
+    public boolean isEmpty() {
+        return this.canvases.isEmpty();
+    }
+
+    /**
+     * Returns the world the indexed canvases are in.
+     * @return The world of the index.
+     */
+    public World getWorld() {
+        return this.world;
+    }
+
+    /**
+     * Collects the canvases in every chunk a box overlaps.
+     * @param box The box to collect canvases for.
+     * @return The canvases in the chunks of the box, without duplicates.
+     */
+    private Set<Canvas> getCandidates(Box box) {
+        Set<Canvas> candidates = new HashSet<>();
+
+        for (int chunkX = toChunk(box.minX); chunkX <= toChunk(box.maxX); chunkX++) {
+            for (int chunkZ = toChunk(box.minZ); chunkZ <= toChunk(box.maxZ); chunkZ++) {
+                Set<Canvas> canvases = this.chunks.get(ChunkPos.toLong(chunkX, chunkZ));
+                if (canvases != null) {
+                    candidates.addAll(canvases);
+                }
+            }
+        }
+
+        return candidates;
+    }
+
+    /**
+     * Converts a block coordinate to the coordinate of the chunk containing it.
+     * @param coordinate The block coordinate.
+     * @return The chunk coordinate.
+     */
+    private static int toChunk(double coordinate) {
+        return (int) Math.floor(coordinate) >> 4;
+    }
+}
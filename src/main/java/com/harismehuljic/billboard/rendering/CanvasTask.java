@@ -0,0 +1,138 @@
+package com.harismehuljic.billboard.rendering;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+/**
+ * A unit of work that applies an action to a list of elements, spread out over multiple server ticks by the
+ * {@link CanvasScheduler}. This is used to spawn and remove the {@link CanvasPixel}s of a {@link Canvas} without
+ * stalling the server.
+ *
+ * @param <T> The type of the elements the action is applied to.
+ *
+ * @see CanvasScheduler
+ */
+public class CanvasTask<T> {
+    private final String description;
+    private final List<T> elements;
+    private final Consumer<T> action;
+    private final CompletableFuture<CanvasTask<T>> future = new CompletableFuture<>();
+
+    private int processed = 0;
+    private boolean cancelled = false;
+
+    /**
+     * Creates a new CanvasTask.
+     * @param description A short, human-readable description of the task, used when reporting progress.
+     * @param elements The elements the action will be applied to, in order.
+     * @param action The action to apply to each element.
+     *
+     * @implNote A task without elements is done right away.
+     */
+    public CanvasTask(String description, List<T> elements, Consumer<T> action) {
+        this.description = description;
+        this.elements = elements;
+        this.action = action;
+
+        if (elements.isEmpty()) {
+            this.future.complete(this);
+        }
+    }
+
+    /**
+     * Applies the action to the next element.
+     *
+     * @implNote Completes the future of this task once the last element has been processed.
+     */
+    void step() {
+        if (this.isDone()) {
+            return;
+        }
+
+        this.action.accept(this.elements.get(this.processed++));
+
+        if (this.processed >= this.elements.size()) {
+            this.future.complete(this);
+        }
+    }
+
+    /**
+     * Cancels the task, so that no further elements will be processed.
+     * Elements that have already been processed are left as they are.
+     */
+    public void cancel() {
+        if (this.isDone()) {
+            return;
+        }
+
+        this.cancelled = true;
+        this.future.complete(this);
+    }
+
+    /**
+     * Returns whether the task has been cancelled.
+     * @return true if the task was cancelled before it finished.
+     */
+    public boolean isCancelled() {
+        return this.cancelled;
+    }
+
+    /**
+     * Returns whether the task has finished, either by processing every element or by being cancelled.
+     * @return true if no further elements will be processed.
+     */
+    public boolean isDone() {
+        return this.future.isDone();
+    }
+
+    /**
+     * Returns the amount of elements that have already been processed.
+     * @return The number of processed elements.
+     */
+    public int getProcessed() {
+        return this.processed;
+    }
+
+    /**
+     * Returns the total amount of elements of this task.
+     * @return The number of elements.
+     */
+    public int getTotal() {
+        return this.elements.size();
+    }
+
+    /**
+     * Returns the progress of the task.
+     * @return A value between 0 and 1, where 1 means that every element has been processed.
+     */
+    public float getProgress() {
+        return this.elements.isEmpty() ? 1.0F : (float) this.processed / this.elements.size();
+    }
+
+    /**
+     * Returns the description of the task.
+     * @return A short, human-readable description of the task.
+     */
+    public String getDescription() {
+        return this.description;
+    }
+
+    /**
+     * Returns a future which completes once the task is done.
+     * @return A CompletableFuture that resolves to this task when it finishes or is cancelled.
+     *
+     * @apiNote The future is completed on the server thread.
+     */
+    public CompletableFuture<CanvasTask<T>> getFuture() {
+        return this.future;
+    }
+
+    /**
+     * Returns the elements that have already been processed.
+     * @return A view of the processed elements, in order.
+     */
+    public List<T> getProcessedElements() {
+        return this.elements.subList(0, this.processed);
+    }
+}
@@ -0,0 +1,182 @@
+package com.harismehuljic.billboard.rendering;
+
+import net.minecraft.network.listener.ClientPlayPacketListener;
+import net.minecraft.network.packet.Packet;
+import net.minecraft.network.packet.s2c.play.BundleS2CPacket;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Keeps track of the players that have a virtual canvas loaded, and sends the packets of its canvas pixels to them.
+ * <p>
+ * While a task of the canvas is in progress, its packets are held back, and once the task is done they are sent as
+ * {@link BundleS2CPacket}s. Clients apply all packets of a bundle in the same frame, so a whole canvas or a whole frame
+ * of an animation appears at once instead of tearing over several frames.
+ *
+ * @implNote This must only be used on the server thread.
+ *
+ * @see Canvas#isVirtual()
+ * @see PacketSink
+ */
+public class CanvasViewers {
+    /**
+     * The maximum amount of packets clients accept in a single bundle.
+     */
+    public static final int MAX_BUNDLE_SIZE = 4096;
+
+    private static int bundleLimit = MAX_BUNDLE_SIZE;
+
+    private final HashMap<UUID, PacketSink> viewers = new HashMap<>();
+    private final List<Packet<? super ClientPlayPacketListener>> heldPackets = new ArrayList<>();
+    private int holds = 0;
+
+    /**
+     * Creates a new CanvasViewers instance without any viewers.
+     */
+    CanvasViewers() {}
+
+    /**
+     * Adds a viewer, or replaces the sink of an existing viewer.
+     * @param player The UUID of the viewing player.
+     * @param sink The sink the packets of the canvas are sent to.
+     */
+    void add(UUID player, PacketSink sink) {
+        this.viewers.put(player, sink);
+    }
+
+    /**
+     * Removes a viewer.
+     * @param player The UUID of the viewing player.
+     * @return The sink of the viewer, or null if the player wasn't viewing the canvas.
+     */
+    PacketSink remove(UUID player) {
+        return this.viewers.remove(player);
+    }
+
+    /**
+     * Returns the sink of a viewer.
+     * @param player The UUID of the player.
+     * @return The sink of the viewer, or null if the player isn't viewing the canvas.
+     */
+    public PacketSink get(UUID player) {
+        return this.viewers.get(player);
+    }
+
+    /**
+     * Sends a packet to every viewer, or holds it back while a task is in progress.
+     * @param packet The packet to send.
+     */
+    void broadcast(Packet<? super ClientPlayPacketListener> packet) {
+        if (this.viewers.isEmpty()) {
+            return;
+        }
+        else if (this.holds > 0) {
+            this.heldPackets.add(packet);
+            return;
+        }
+
+        for (PacketSink sink : this.viewers.values()) {
+            sink.sendPacket(packet);
+        }
+    }
+
+    /**
+     * Sends packets to every viewer, in order, or holds them back while a task is in progress.
+     * @param packets The packets to send.
+     */
+    void broadcast(List<? extends Packet<? super ClientPlayPacketListener>> packets) {
+        if (this.viewers.isEmpty()) {
+            return;
+        }
+        else if (this.holds > 0) {
+            this.heldPackets.addAll(packets);
+            return;
+        }
+
+        for (PacketSink sink : this.viewers.values()) {
+            CanvasViewers.sendBundled(sink, packets);
+        }
+    }
+
+    /**
+     * Starts holding back packets until the matching call to {@link CanvasViewers#release()}. Holds can be nested, for
+     * tasks that overlap.
+     */
+    void hold() {
+        this.holds++;
+    }
+
+    /**
+     * Ends a hold. Once no holds are left, the packets that were held back are sent to every viewer in bundles.
+     */
+    void release() {
+        if (this.holds == 0 || --this.holds > 0 || this.heldPackets.isEmpty()) {
+            return;
+        }
+
+        for (PacketSink sink : this.viewers.values()) {
+            CanvasViewers.sendBundled(sink, this.heldPackets);
+        }
+        this.heldPackets.clear();
+    }
+
+    /**
+     * Sends packets to a sink, grouped into bundles of at most the bundle limit.
+     * @param sink The sink to send the packets to.
+     * @param packets The packets to send, in order.
+     */
+    static void sendBundled(PacketSink sink, List<? extends Packet<? super ClientPlayPacketListener>> packets) {
+        for (int start = 0; start < packets.size(); start += bundleLimit) {
+            int end = Math.min(start + bundleLimit, packets.size());
+
+            if (end - start == 1) {
+                sink.sendPacket(packets.get(start));
+            }
+            else {
+                sink.sendPacket(new BundleS2CPacket(new ArrayList<>(packets.subList(start, end))));
+            }
+        }
+    }
+
+    /**
+     * Sets the maximum amount of packets sent in a single bundle.
+     * @param bundleLimit The bundle limit, where 1 sends every packet on its own.
+     * @throws IllegalArgumentException If the limit is less than 1 or greater than {@link CanvasViewers#MAX_BUNDLE_SIZE}.
+     */
+    public static void setBundleLimit(int bundleLimit) throws IllegalArgumentException {
+        if (bundleLimit < 1 || bundleLimit > MAX_BUNDLE_SIZE) {
+            throw new IllegalArgumentException(String.format("Bundle limit must be between 1 and %d.", MAX_BUNDLE_SIZE));
+        }
+
+        CanvasViewers.bundleLimit = bundleLimit;
+    }
+
+    /**
+     * Returns the maximum amount of packets sent in a single bundle.
+     * @return The bundle limit.
+     */
+    public static int getBundleLimit() {
+        return CanvasViewers.bundleLimit;
+    }
+
+    /**
+     * Returns the players viewing the canvas.
+     * @return An unmodifiable view of the UUIDs of the viewing players.
+     */
+    public Set<UUID> getPlayers() {
+        return Collections.unmodifiableSet(this.viewers.keySet());
+    }
+
+    /**
+     * Returns whether any player is viewing the canvas.
+     * @return true if the canvas has no viewers.
+     */
+    public boolean isEmpty() {
+        return this.viewers.isEmpty();
+    }
+}
@@ -0,0 +1,44 @@
+package com.harismehuljic.billboard.rendering;
+
+import net.minecraft.network.packet.Packet;
+import net.minecraft.server.network.ServerPlayerEntity;
+
+/**
+ * A destination for the packets of virtual canvas pixels, which is usually the connection of a player.
+ * <p>
+ * Virtual canvases don't spawn any entities on the server. Instead, the spawn, update and removal packets of their
+ * canvas pixels are sent straight to the sinks of the players viewing them.
+ *
+ * @see CanvasViewers
+ */
+@FunctionalInterface
+public interface PacketSink {
+    /**
+     * Sends a packet to this sink.
+     * @param packet The packet to send.
+     */
+    void sendPacket(Packet<?> packet);
+
+    /**
+     * Returns the sink sending packets to the connection of a player.
+     * @param player The player to send packets to.
+     * @return The sink of the player.
+     *
+     * @implNote Two sinks of a player are only equal if they wrap the same player entity. A player that respawns gets a
+     * new entity and a fresh client world, so comparing sinks tells whether the canvas pixels have to be sent again.
+     */
+    static PacketSink of(ServerPlayerEntity player) {
+        return new PlayerSink(player);
+    }
+
+    /**
+     * The sink sending packets to the connection of a player.
+     * @param player The player to send packets to.
+     */
+    record PlayerSink(ServerPlayerEntity player) implements PacketSink {
+        @Override
+        public void sendPacket(Packet<?> packet) {
+            this.player.networkHandler.sendPacket(packet);
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package com.harismehuljic.billboard.rendering;
+
+import java.util.Arrays;
+
+/**
+ * Represents a rectangular area of a {@link CanvasLayout} which is rendered by a single {@link CanvasPixel}. A region is
+ * either drawn in a single color, split into an upper and a lower half of different colors, or is a packed row segment,
+ * where every pixel is drawn as its own glyph in its own color.
+ */
+public class PixelRegion {
+    private final int x;
+    private final int y;
+    private final int width;
+    private final int height;
+    private final int color;
+    private final int lowerColor;
+    private final int[] glyphColors;
+
+    /**
+     * Creates a new PixelRegion.
+     * @param x The x-coordinate of the top-left pixel of the region.
+     * @param y The y-coordinate of the top-left pixel of the region.
+     * @param width The amount of pixels the region covers horizontally.
+     * @param height The amount of pixels the region covers vertically.
+     * @param color The color of the region, represented as an RGB integer.
+     */
+    public PixelRegion(int x, int y, int width, int height, int color) {
+        this.x = x;
+        this.y = y;
+        this.width = width;
+        this.height = height;
+        this.color = color;
+        this.lowerColor = color;
+        this.glyphColors = null;
+    }
+
+    /**
+     * Creates a new half-block PixelRegion, whose lower half is drawn in another color than its upper half.
+     * @param x The x-coordinate of the top-left pixel of the region.
+     * @param y The y-coordinate of the top-left pixel of the region.
+     * @param width The amount of pixels the region covers horizontally.
+     * @param height The amount of pixels the region covers vertically.
+     * @param color The color of the upper half of the region, represented as an RGB integer.
+     * @param lowerColor The color of the lower half of the region, represented as an RGB integer.
+     * @throws IllegalArgumentException If the height of a region with two different colors isn't even.
+     */
+    public PixelRegion(int x, int y, int width, int height, int color, int lowerColor) throws IllegalArgumentException {
+        if (color != lowerColor && height % 2 != 0) {
+            throw new IllegalArgumentException(String.format("A half-block region must have an even height, but got %d.", height));
+        }
+
+        this.x = x;
+        this.y = y;
+        this.width = width;
+        this.height = height;
+        this.color = color;
+        this.lowerColor = lowerColor;
+        this.glyphColors = null;
+    }
+
+    /**
+     * Creates a new packed PixelRegion, which covers a segment of a single row with one glyph per pixel.
+     * @param x The x-coordinate of the leftmost pixel of the region.
+     * @param y The y-coordinate of the row of the region.
+     * @param glyphColors The color of every pixel of the region from left to right, represented as RGB integers.
+     * @throws IllegalArgumentException If there are no glyph colors, or more than {@link CanvasPixel#MAX_GLYPHS}.
+     *
+     * @apiNote The array is used as it is, without being copied.
+     */
+    public PixelRegion(int x, int y, int[] glyphColors) throws IllegalArgumentException {
+        if (glyphColors.length == 0 || glyphColors.length > CanvasPixel.MAX_GLYPHS) {
+            throw new IllegalArgumentException(String.format("A packed region must have between 1 and %d glyphs, but got %d.",
+                    CanvasPixel.MAX_GLYPHS, glyphColors.length));
+        }
+
+        this.x = x;
+        this.y = y;
+        this.width = glyphColors.length;
+        this.height = 1;
+        this.color = glyphColors[0];
+        this.lowerColor = this.color;
+        this.glyphColors = glyphColors;
+    }
+
+    /**
+     * Returns the x-coordinate of the top-left pixel of the region.
+     * @return The x-coordinate on the canvas.
+     */
+    public int getX() {
+        return this.x;
+    }
+
+    /**
+     * Returns the y-coordinate of the top-left pixel of the region.
+     * @return The y-coordinate on the canvas.
+     */
+    public int getY() {
+        return this.y;
+    }
+
+    /**
+     * Returns the amount of pixels the region covers horizontally.
+     * @return The width of the region in pixels.
+     */
+    public int getWidth() {
+        return this.width;
+    }
+
+    /**
+     * Returns the amount of pixels the region covers vertically.
+     * @return The height of the region in pixels.
+     */
+    public int getHeight() {
+        return this.height;
+    }
+
+    /**
+     * Returns the color of the region.
+     * @return The color of the region, represented as an RGB integer. For packed regions, this is the color of the
+     * leftmost pixel.
+     */
+    public int getColor() {
+        return this.color;
+    }
+
+    /**
+     * Returns the color of the lower half of the region.
+     * @return The color of the lower half, represented as an RGB integer, which is the same as its color unless the
+     * region is a half-block region.
+     */
+    public int getLowerColor() {
+        return this.lowerColor;
+    }
+
+    /**
+     * Returns whether the lower half of the region has a different color than its upper half.
+     * @return true if the region is a half-block region.
+     */
+    public boolean isHalfBlock() {
+        return this.lowerColor != this.color;
+    }
+
+    /**
+     * Returns whether the region is a packed row segment, whose pixels each have their own color.
+     * @return true if the region is packed.
+     */
+    public boolean isPacked() {
+        return this.glyphColors != null;
+    }
+
+    /**
+     * Returns the colors of the pixels of a packed region.
+     * @return The color of every pixel from left to right, or null if the region isn't packed. The array must not be
+     * modified.
+     */
+    public int[] getGlyphColors() {
+        return this.glyphColors;
+    }
+
+    /**
+     * Checks whether this region is drawn the same way as another region, ignoring its position and size.
+     * @param other The region to compare with.
+     * @return true if both regions have the same colors, and the same glyph colors if they are packed.
+     */
+    public boolean hasSameColors(PixelRegion other) {
+        return this.color == other.color && this.lowerColor == other.lowerColor && Arrays.equals(this.glyphColors, other.glyphColors);
+    }
+}
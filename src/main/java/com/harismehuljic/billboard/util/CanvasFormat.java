@@ -0,0 +1,307 @@
+package com.harismehuljic.billboard.util;
+
+import com.harismehuljic.billboard.rendering.Canvas;
+import com.harismehuljic.billboard.rendering.CanvasLayout;
+import com.harismehuljic.billboard.rendering.CanvasPixel;
+import com.harismehuljic.billboard.rendering.CanvasSnapshot;
+import com.harismehuljic.billboard.rendering.PixelRegion;
+import net.minecraft.util.math.Vec3d;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Utility class for reading and writing {@link CanvasSnapshot}s in a compact binary format.
+ * <p>
+ * The format starts with an uncompressed header: a magic number, the format version, the UUID of the canvas as two
+ * longs, its dimensions, pixel scale, position, world, next pixel serial, proximity radius, detail distance, shown
+ * detail level, whether the canvas is virtual, its creation time and its owner. It is followed by the deflate compressed region tables, first of the full resolution and then of every
+ * coarser detail level, each preceded by its dimensions. A region table stores the region count and then the position,
+ * size, color and pixel serial of every region. The height is stored shifted left by one bit, with the lowest bit
+ * set for half-block regions, whose lower color follows their color. Packed regions are stored with a height of 0, and
+ * the colors of their remaining glyphs follow their color. Everything except the colors is stored as a variable-length integer,
+ * and positions are stored relative to the end of the previous region in the same row, so typical tables only take a
+ * few bytes per region. Only the regions of the shown detail level have pixel serials other than 0.
+ *
+ * @implNote The UUIDs of the pixel entities are not stored, since they are derived from the UUID of the canvas and the
+ * pixel serials.
+ */
+public abstract class CanvasFormat {
+    /**
+     * The extension of saved canvas files.
+     */
+    public static final String FILE_EXTENSION = ".canvas";
+
+    private static final int MAGIC = 0x42424356; // "BBCV"
+    private static final int VERSION = 7;
+
+    /**
+     * Writes a canvas snapshot to the given stream.
+     *
+     * @param snapshot The snapshot to write.
+     * @param output The stream to write to. It is not closed.
+     * @throws IOException If the stream can't be written to.
+     */
+    public static void write(CanvasSnapshot snapshot, OutputStream output) throws IOException {
+        DataOutputStream header = new DataOutputStream(output);
+        header.writeInt(MAGIC);
+        header.writeInt(VERSION);
+        header.writeLong(snapshot.getUUID().getMostSignificantBits());
+        header.writeLong(snapshot.getUUID().getLeastSignificantBits());
+        header.writeInt(snapshot.getWidth());
+        header.writeInt(snapshot.getHeight());
+        header.writeFloat(snapshot.getPixelScale());
+        header.writeDouble(snapshot.getPos().x);
+        header.writeDouble(snapshot.getPos().y);
+        header.writeDouble(snapshot.getPos().z);
+        header.writeUTF(snapshot.getWorldId());
+        header.writeInt(snapshot.getNextPixelSerial());
+        header.writeFloat(snapshot.getProximityRadius());
+        header.writeFloat(snapshot.getDetailDistance());
+        header.writeInt(snapshot.getDetailLevel());
+        header.writeBoolean(snapshot.isVirtual());
+        header.writeLong(snapshot.getCreationTime());
+        header.writeBoolean(snapshot.getOwner() != null);
+        if (snapshot.getOwner() != null) {
+            header.writeLong(snapshot.getOwner().getMostSignificantBits());
+            header.writeLong(snapshot.getOwner().getLeastSignificantBits());
+        }
+        header.flush();
+
+        DeflaterOutputStream deflater = new DeflaterOutputStream(output, new Deflater(Deflater.BEST_SPEED), 8192);
+        DataOutputStream table = new DataOutputStream(new BufferedOutputStream(deflater, 8192));
+
+        writeRegions(table, snapshot, snapshot.getLayout(), 0);
+
+        List<CanvasLayout> detailLevels = snapshot.getDetailLevels();
+        writeVarInt(table, detailLevels.size());
+        for (int level = 1; level <= detailLevels.size(); level++) {
+            CanvasLayout layout = detailLevels.get(level - 1);
+            writeVarInt(table, layout.getWidth());
+            writeVarInt(table, layout.getHeight());
+            writeRegions(table, snapshot, layout, level);
+        }
+
+        table.flush();
+        deflater.finish();
+    }
+
+    /**
+     * Writes the region table of a layout.
+     *
+     * @param table The stream to write to.
+     * @param snapshot The snapshot the layout belongs to.
+     * @param layout The layout to write.
+     * @param level The detail level of the layout, where 0 is the full resolution.
+     * @throws IOException If the stream can't be written to.
+     */
+    private static void writeRegions(DataOutputStream table, CanvasSnapshot snapshot, CanvasLayout layout, int level) throws IOException {
+        List<PixelRegion> regions = layout.getRegions();
+        boolean shown = level == snapshot.getDetailLevel();
+        writeVarInt(table, regions.size());
+
+        int previousY = 0;
+        int previousEnd = 0;
+        for (int i = 0; i < regions.size(); i++) {
+            PixelRegion region = regions.get(i);
+            if (region.getY() != previousY) {
+                previousEnd = 0;
+            }
+
+            writeVarInt(table, region.getX() - previousEnd);
+            writeVarInt(table, region.getY() - previousY);
+            writeVarInt(table, region.getWidth());
+            writeVarInt(table, region.isPacked() ? 0 : region.getHeight() << 1 | (region.isHalfBlock() ? 1 : 0));
+            table.writeInt(region.getColor());
+            if (region.isHalfBlock()) {
+                table.writeInt(region.getLowerColor());
+            }
+            if (region.isPacked()) {
+                int[] glyphColors = region.getGlyphColors();
+                for (int glyph = 1; glyph < glyphColors.length; glyph++) {
+                    table.writeInt(glyphColors[glyph]);
+                }
+            }
+            writeVarInt(table, shown ? snapshot.getPixelSerial(i) : 0);
+
+            previousY = region.getY();
+            previousEnd = region.getX() + region.getWidth();
+        }
+    }
+
+    /**
+     * Reads a canvas snapshot from the given stream.
+     *
+     * @param input The stream to read from. It is not closed.
+     * @return The snapshot that was read.
+     * @throws IOException If the stream can't be read, or doesn't contain a canvas in a supported version of the format.
+     */
+    public static CanvasSnapshot read(InputStream input) throws IOException {
+        DataInputStream header = new DataInputStream(input);
+        if (header.readInt() != MAGIC) {
+            throw new IOException("Not a canvas file.");
+        }
+
+        int version = header.readInt();
+        if (version < 1 || version > VERSION) {
+            throw new IOException("Unsupported canvas format version: " + version);
+        }
+
+        UUID uuid = new UUID(header.readLong(), header.readLong());
+        int width = header.readInt();
+        int height = header.readInt();
+        float pixelScale = header.readFloat();
+        Vec3d pos = new Vec3d(header.readDouble(), header.readDouble(), header.readDouble());
+        String worldId = header.readUTF();
+        int nextPixelSerial = header.readInt();
+        float proximityRadius = version >= 2 ? header.readFloat() : 0;
+        float detailDistance = version >= 3 ? header.readFloat() : 0;
+        int detailLevel = version >= 3 ? header.readInt() : 0;
+        boolean virtual = version >= 4 && header.readBoolean();
+        long creationTime = version >= 5 ? header.readLong() : 0;
+        UUID owner = version >= 5 && header.readBoolean() ? new UUID(header.readLong(), header.readLong()) : null;
+
+        DataInputStream table = new DataInputStream(new BufferedInputStream(new InflaterInputStream(input), 8192));
+
+        try {
+            List<int[]> pixelSerials = new ArrayList<>();
+            CanvasLayout layout = readRegions(table, width, height, pixelSerials, version);
+            List<CanvasLayout> detailLevels = new ArrayList<>();
+
+            int levelCount = version >= 3 ? readVarInt(table) : 0;
+            if (levelCount < 0 || levelCount > Canvas.MAX_DETAIL_LEVELS) {
+                throw new IOException("Invalid detail level count: " + levelCount);
+            }
+
+            for (int level = 1; level <= levelCount; level++) {
+                detailLevels.add(readRegions(table, readVarInt(table), readVarInt(table), pixelSerials, version));
+            }
+
+            if (detailLevel < 0 || detailLevel > levelCount) {
+                throw new IOException("Invalid detail level: " + detailLevel);
+            }
+
+            return new CanvasSnapshot(uuid, width, height, pixelScale, pos, worldId, layout, detailLevels, detailLevel,
+                    detailDistance, pixelSerials.get(detailLevel), nextPixelSerial, proximityRadius, virtual,
+                    creationTime, owner);
+        }
+        catch (IllegalArgumentException e) {
+            throw new IOException("Invalid canvas layout: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Reads the region table of a layout.
+     *
+     * @param table The stream to read from.
+     * @param width The width of the layout.
+     * @param height The height of the layout.
+     * @param pixelSerials The list the pixel serials of the regions are added to, as one array per layout.
+     * @param version The version of the format the table is stored in.
+     * @return The layout that was read.
+     * @throws IOException If the stream can't be read, or contains an invalid region table.
+     * @throws IllegalArgumentException If the regions don't form a valid layout.
+     */
+    private static CanvasLayout readRegions(DataInputStream table, int width, int height, List<int[]> pixelSerials, int version) throws IOException, IllegalArgumentException {
+        int regionCount = readVarInt(table);
+        if (width <= 0 || height <= 0 || regionCount < 0 || regionCount > width * height) {
+            throw new IOException("Invalid region count: " + regionCount);
+        }
+
+        List<PixelRegion> regions = new ArrayList<>(regionCount);
+        int[] serials = new int[regionCount];
+
+        int previousY = 0;
+        int previousEnd = 0;
+        for (int i = 0; i < regionCount; i++) {
+            int deltaX = readVarInt(table);
+            int deltaY = readVarInt(table);
+            if (deltaY != 0) {
+                previousEnd = 0;
+            }
+
+            int x = previousEnd + deltaX;
+            int y = previousY + deltaY;
+            int regionWidth = readVarInt(table);
+            int regionHeight = readVarInt(table);
+            boolean halfBlock = false;
+            if (version >= 7) {
+                halfBlock = (regionHeight & 1) != 0;
+                regionHeight >>>= 1;
+            }
+            int color = table.readInt();
+            int lowerColor = halfBlock ? table.readInt() : color;
+
+            if (regionHeight == 0 && version >= 6) {
+                if (regionWidth <= 0 || regionWidth > CanvasPixel.MAX_GLYPHS) {
+                    throw new IOException("Invalid packed region width: " + regionWidth);
+                }
+
+                int[] glyphColors = new int[regionWidth];
+                glyphColors[0] = color;
+                for (int glyph = 1; glyph < regionWidth; glyph++) {
+                    glyphColors[glyph] = table.readInt();
+                }
+                regions.add(new PixelRegion(x, y, glyphColors));
+            }
+            else {
+                regions.add(new PixelRegion(x, y, regionWidth, regionHeight, color, lowerColor));
+            }
+            serials[i] = readVarInt(table);
+
+            previousY = y;
+            previousEnd = x + regionWidth;
+        }
+
+        pixelSerials.add(serials);
+        return new CanvasLayout(width, height, regions);
+    }
+
+    /**
+     * Writes an unsigned variable-length integer, using 7 bits per byte.
+     *
+     * @param output The stream to write to.
+     * @param value The value to write, which must not be negative.
+     * @throws IOException If the stream can't be written to.
+     */
+    private static void writeVarInt(DataOutputStream output, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            output.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        output.writeByte(value);
+    }
+
+    /**
+     * Reads an unsigned variable-length integer, using 7 bits per byte.
+     *
+     * @param input The stream to read from.
+     * @return The value that was read.
+     * @throws IOException If the stream can't be read, or the value is too long.
+     */
+    private static int readVarInt(DataInputStream input) throws IOException {
+        int value = 0;
+
+        for (int shift = 0; shift < 35; shift += 7) {
+            byte b = input.readByte();
+            value |= (b & 0x7F) << shift;
+
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+
+        throw new IOException("Variable-length integer is too long.");
+    }
+}
@@ -0,0 +1,63 @@
+package com.harismehuljic.billboard.util;
+
+import com.harismehuljic.billboard.Billboard;
+import com.harismehuljic.billboard.rendering.CanvasSnapshot;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Utility class for reading the canvases saved by the {@link CanvasWriter}.
+ *
+ * @implNote Every file is read and decoded on the {@link WorkerPool} in parallel. Files that can't be read are logged
+ * and skipped, so that a single corrupted file doesn't keep the other canvases from being restored.
+ */
+public abstract class CanvasLoader {
+    /**
+     * Asynchronously reads every saved canvas in the given directory.
+     *
+     * @param directory The directory containing the saved canvases.
+     * @return A CompletableFuture that resolves to the snapshots of all canvases that could be read.
+     */
+    public static CompletableFuture<List<CanvasSnapshot>> readAll(Path directory) {
+        List<CompletableFuture<CanvasSnapshot>> reads = new ArrayList<>();
+
+        if (Files.isDirectory(directory)) {
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + CanvasFormat.FILE_EXTENSION)) {
+                for (Path file : stream) {
+                    reads.add(CompletableFuture.supplyAsync(() -> read(file), WorkerPool.getExecutor()));
+                }
+            }
+            catch (IOException e) {
+                Billboard.LOGGER.error("Failed to list saved canvases: {}", e.getMessage());
+            }
+        }
+
+        return CompletableFuture.allOf(reads.toArray(CompletableFuture[]::new))
+                .thenApply(ignored -> reads.stream().map(CompletableFuture::join).filter(Objects::nonNull).toList());
+    }
+
+    /**
+     * Reads a single saved canvas.
+     *
+     * @param file The file of the canvas.
+     * @return The snapshot of the canvas, or null if the file can't be read.
+     */
+    private static CanvasSnapshot read(Path file) {
+        try (InputStream input = new BufferedInputStream(Files.newInputStream(file))) {
+            return CanvasFormat.read(input);
+        }
+        catch (IOException e) {
+            Billboard.LOGGER.error("Failed to read saved canvas {}: {}", file.getFileName(), e.getMessage());
+            return null;
+        }
+    }
+}
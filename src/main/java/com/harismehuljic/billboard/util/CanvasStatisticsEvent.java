@@ -0,0 +1,72 @@
+package com.harismehuljic.billboard.util;
+
+import com.harismehuljic.billboard.rendering.Canvas;
+import com.harismehuljic.billboard.rendering.CanvasManager;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Period;
+import jdk.jfr.StackTrace;
+
+/**
+ * A periodic Java Flight Recorder event sampling the amount of live entities of every canvas.
+ *
+ * @see CanvasStatisticsEvent#register(CanvasManager)
+ */
+@Name("billboard.CanvasStatistics")
+@Label("Billboard Canvas Statistics")
+@Category("Billboard")
+@Description("The amount of entities each canvas currently shows.")
+@Period("1 s")
+@StackTrace(false)
+public class CanvasStatisticsEvent extends Event {
+    @Label("Canvas")
+    String canvas;
+
+    @Label("Live Entities")
+    int liveEntities;
+
+    @Label("Regions")
+    int regions;
+
+    @Label("Virtual")
+    boolean virtual;
+
+    private static Runnable hook;
+
+    /**
+     * Starts sampling the canvases of a manager while a recording is running, replacing the manager sampled before.
+     * @param manager The manager of the canvases to sample.
+     *
+     * @implNote The hook runs on a thread of the flight recorder. It only reads values that are safe to read while the
+     * server thread changes the canvases.
+     */
+    public static synchronized void register(CanvasManager manager) {
+        unregister();
+
+        hook = () -> {
+            for (Canvas canvas : manager.getCanvases()) {
+                CanvasStatisticsEvent event = new CanvasStatisticsEvent();
+                event.canvas = canvas.getUUID();
+                event.liveEntities = canvas.getLiveEntityCount();
+                event.regions = canvas.getLayout().getRegions().size();
+                event.virtual = canvas.isVirtual();
+                event.commit();
+            }
+        };
+        FlightRecorder.addPeriodicEvent(CanvasStatisticsEvent.class, hook);
+    }
+
+    /**
+     * Stops sampling canvases.
+     */
+    public static synchronized void unregister() {
+        if (hook != null) {
+            FlightRecorder.removePeriodicEvent(hook);
+            hook = null;
+        }
+    }
+}
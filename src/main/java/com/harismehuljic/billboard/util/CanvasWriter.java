@@ -0,0 +1,171 @@
+package com.harismehuljic.billboard.util;
+
+import com.harismehuljic.billboard.Billboard;
+import com.harismehuljic.billboard.rendering.CanvasSnapshot;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Writes {@link CanvasSnapshot}s to disk on a background thread, so that saving a canvas never blocks the server thread.
+ * <p>
+ * Saves are batched: all saves queued while the writer is busy are written together in the next batch. Saves are also
+ * coalesced per file, so if a canvas is saved several times before the writer gets to it, only its latest snapshot is
+ * written.
+ *
+ * @implNote Each file is written to a temporary file first, which then atomically replaces the previous file, so a crash
+ * never leaves a partially written canvas behind.
+ *
+ * @see CanvasFormat
+ */
+public class CanvasWriter {
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "Billboard Canvas Writer");
+        thread.setDaemon(true);
+        thread.setUncaughtExceptionHandler((t, e) -> Billboard.LOGGER.error("Uncaught exception in {}", t.getName(), e));
+        return thread;
+    });
+
+    private final Map<Path, Optional<CanvasSnapshot>> pending = new LinkedHashMap<>();
+    private boolean drainScheduled = false;
+
+    /**
+     * Default constructor for CanvasWriter.
+     * Initializes the writer with no pending saves.
+     */
+    public CanvasWriter() {}
+
+    /**
+     * Queues a snapshot to be written, replacing any snapshot still queued for the same file.
+     * @param file The file to write the snapshot to.
+     * @param snapshot The snapshot to write.
+     */
+    public void save(Path file, CanvasSnapshot snapshot) {
+        this.enqueue(file, Optional.of(snapshot));
+    }
+
+    /**
+     * Queues a file to be deleted, replacing any snapshot still queued for it.
+     * @param file The file to delete.
+     */
+    public void delete(Path file) {
+        this.enqueue(file, Optional.empty());
+    }
+
+    /**
+     * Blocks until every save and deletion queued so far has been written.
+     *
+     * @apiNote This is called when the server stops, so that no saves are lost.
+     */
+    public void flush() {
+        try {
+            this.executor.submit(() -> {}).get();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        catch (ExecutionException e) {
+            Billboard.LOGGER.error("Failed to flush canvas saves: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Writes every queued save and deletion, then stops the background thread of the writer.
+     *
+     * @apiNote This is called when the server stops, since every server creates its own writer. Changes queued after
+     * the writer was closed are dropped.
+     */
+    public void close() {
+        this.flush();
+        this.executor.shutdown();
+    }
+
+    /**
+     * Queues a change to a file, scheduling a batch if none is scheduled yet.
+     * @param file The file to change.
+     * @param snapshot The snapshot to write, or an empty optional to delete the file.
+     */
+    private void enqueue(Path file, Optional<CanvasSnapshot> snapshot) {
+        synchronized (this.pending) {
+            this.pending.remove(file);
+            this.pending.put(file, snapshot);
+
+            if (!this.drainScheduled) {
+                try {
+                    this.executor.execute(this::drain);
+                    this.drainScheduled = true;
+                }
+                catch (RejectedExecutionException e) {
+                    this.pending.remove(file);
+                    Billboard.LOGGER.warn("Dropped change to canvas file {}, since the writer was closed.", file.getFileName());
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes every queued change.
+     */
+    private void drain() {
+        Map<Path, Optional<CanvasSnapshot>> batch;
+        synchronized (this.pending) {
+            batch = new LinkedHashMap<>(this.pending);
+            this.pending.clear();
+            this.drainScheduled = false;
+        }
+
+        for (Map.Entry<Path, Optional<CanvasSnapshot>> entry : batch.entrySet()) {
+            try {
+                if (entry.getValue().isPresent()) {
+                    write(entry.getKey(), entry.getValue().get());
+                }
+                else {
+                    Files.deleteIfExists(entry.getKey());
+                }
+            }
+            catch (IOException e) {
+                Billboard.LOGGER.error("Failed to save canvas file {}: {}", entry.getKey().getFileName(), e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Writes a snapshot to a temporary file, which then replaces the given file.
+     * @param file The file to write the snapshot to.
+     * @param snapshot The snapshot to write.
+     * @throws IOException If the file can't be written.
+     */
+    private static void write(Path file, CanvasSnapshot snapshot) throws IOException {
+        Files.createDirectories(file.getParent());
+        Path temporary = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+
+        try {
+            try (PipelineStats.Timer timer = PipelineStats.time(PipelineStats.Stage.PERSIST);
+                 OutputStream output = new BufferedOutputStream(Files.newOutputStream(temporary))) {
+                CanvasFormat.write(snapshot, output);
+            }
+
+            try {
+                Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            }
+            catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.harismehuljic.billboard.util;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * A Java Flight Recorder event for a single run of a stage of the canvas pipeline. The duration of the event includes
+ * nested stages, while its self time doesn't.
+ *
+ * @see PipelineStats
+ */
+@Name("billboard.PipelineStage")
+@Label("Billboard Pipeline Stage")
+@Category("Billboard")
+@Description("A stage of building or showing a canvas.")
+@StackTrace(false)
+class PipelineStageEvent extends Event {
+    @Label("Stage")
+    String stage;
+
+    @Label("Self Time")
+    @Description("The duration without the stages nested in this one.")
+    @Timespan(Timespan.NANOSECONDS)
+    long selfTime;
+}
@@ -0,0 +1,190 @@
+package com.harismehuljic.billboard.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Utility class collecting how much time every stage of building and showing a canvas takes, from fetching the image
+ * to spawning its entities. Every timed stage is also recorded as a {@link PipelineStageEvent} in Java Flight Recorder.
+ * <p>
+ * Stages can be nested on the same thread, such as resizing inside encoding. The time of a stage only counts the time
+ * not already counted by a stage nested in it, so the totals of all stages add up to the time spent in the pipeline.
+ *
+ * @implNote Recording is lock-free and can happen on any thread.
+ */
+public abstract class PipelineStats {
+    private static final Stage[] STAGES = Stage.values();
+    private static final LongAdder[] COUNTS = new LongAdder[STAGES.length];
+    private static final LongAdder[] TOTAL_NANOS = new LongAdder[STAGES.length];
+    private static final AtomicLong[] MAX_NANOS = new AtomicLong[STAGES.length];
+    private static final ThreadLocal<long[]> NESTED_NANOS = ThreadLocal.withInitial(() -> new long[1]);
+
+    static {
+        for (int i = 0; i < STAGES.length; i++) {
+            COUNTS[i] = new LongAdder();
+            TOTAL_NANOS[i] = new LongAdder();
+            MAX_NANOS[i] = new AtomicLong();
+        }
+    }
+
+    /**
+     * Starts timing a stage.
+     * @param stage The stage to time.
+     * @return The timer of the stage, which records it once closed.
+     *
+     * @apiNote The timer must be closed on the thread that started it, which is easiest with a try-with-resources
+     * statement.
+     */
+    public static Timer time(Stage stage) {
+        return new Timer(stage);
+    }
+
+    /**
+     * Records a finished run of a stage.
+     * @param stage The stage that ran.
+     * @param nanos How long the stage took, in nanoseconds.
+     */
+    public static void record(Stage stage, long nanos) {
+        int index = stage.ordinal();
+        COUNTS[index].increment();
+        TOTAL_NANOS[index].add(nanos);
+        MAX_NANOS[index].accumulateAndGet(nanos, Math::max);
+    }
+
+    /**
+     * Returns how many times a stage ran.
+     * @param stage The stage.
+     * @return The amount of recorded runs since the last reset.
+     */
+    public static long getCount(Stage stage) {
+        return COUNTS[stage.ordinal()].sum();
+    }
+
+    /**
+     * Returns the total time spent in a stage.
+     * @param stage The stage.
+     * @return The total time in nanoseconds since the last reset.
+     */
+    public static long getTotalNanos(Stage stage) {
+        return TOTAL_NANOS[stage.ordinal()].sum();
+    }
+
+    /**
+     * Returns the longest run of a stage.
+     * @param stage The stage.
+     * @return The longest run in nanoseconds since the last reset.
+     */
+    public static long getMaxNanos(Stage stage) {
+        return MAX_NANOS[stage.ordinal()].get();
+    }
+
+    /**
+     * Forgets all recorded runs.
+     */
+    public static void reset() {
+        for (int i = 0; i < STAGES.length; i++) {
+            COUNTS[i].reset();
+            TOTAL_NANOS[i].reset();
+            MAX_NANOS[i].set(0);
+        }
+    }
+
+    /**
+     * The stages of the pipeline.
+     */
+    public enum Stage {
+        /**
+         * Downloading an image, or reading it from the download cache.
+         */
+        FETCH("fetch"),
+        /**
+         * Decoding the downloaded bytes into an image.
+         */
+        DECODE("decode"),
+        /**
+         * Resizing an image to the size of its canvas.
+         */
+        RESIZE("resize"),
+        /**
+         * Processing a resized image into one of the image types.
+         */
+        ENCODE("encode"),
+        /**
+         * Splitting a processed image into the regions of a canvas.
+         */
+        LAYOUT("layout"),
+        /**
+         * Taking snapshots of canvases to save on the server thread.
+         */
+        SNAPSHOT("snapshot"),
+        /**
+         * Encoding snapshots of canvases and writing them to disk on the background thread of the canvas writer.
+         */
+        PERSIST("persist"),
+        /**
+         * Running canvas tasks and animations on the server thread.
+         */
+        SPAWN("spawn"),
+        /**
+         * Checking which players are near canvases on the server thread.
+         */
+        VIEWERS("viewers");
+
+        private final String name;
+
+        Stage(String name) {
+            this.name = name;
+        }
+
+        /**
+         * Returns the name of the stage.
+         * @return The name, in lower case.
+         */
+        public String getName() {
+            return this.name;
+        }
+
+        @Override
+        public String toString() {
+            return this.name;
+        }
+    }
+
+    /**
+     * Times a single run of a stage.
+     */
+    public static final class Timer implements AutoCloseable {
+        private final Stage stage;
+        private final PipelineStageEvent event;
+        private final long start;
+        private final long nestedAtStart;
+
+        private Timer(Stage stage) {
+            this.stage = stage;
+            this.event = new PipelineStageEvent();
+            this.event.begin();
+            this.nestedAtStart = NESTED_NANOS.get()[0];
+            this.start = System.nanoTime();
+        }
+
+        /**
+         * Stops the timer and records the time of the stage, without the time of the stages nested in it.
+         */
+        @Override
+        public void close() {
+            long elapsed = System.nanoTime() - this.start;
+            long[] nested = NESTED_NANOS.get();
+            long selfNanos = elapsed - (nested[0] - this.nestedAtStart);
+            nested[0] = this.nestedAtStart + elapsed;
+
+            record(this.stage, selfNanos);
+
+            this.event.end();
+            if (this.event.shouldCommit()) {
+                this.event.stage = this.stage.getName();
+                this.event.selfTime = selfNanos;
+                this.event.commit();
+            }
+        }
+    }
+}
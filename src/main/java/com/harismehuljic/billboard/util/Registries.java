@@ -1,14 +1,73 @@
 package com.harismehuljic.billboard.util;
 
+import com.harismehuljic.billboard.Billboard;
 import com.harismehuljic.billboard.command.BillboardCommand;
+import com.harismehuljic.billboard.impl.CanvasServer;
+import com.harismehuljic.billboard.preprocessing.util.DownloadCache;
+import com.harismehuljic.billboard.preprocessing.util.EncodedImageCache;
+import com.harismehuljic.billboard.preprocessing.util.ImageProcessor;
+import com.harismehuljic.billboard.preprocessing.util.ImageRequester;
 import net.fabricmc.fabric.api.command.v2.CommandRegistrationCallback;
+import net.fabricmc.fabric.api.event.lifecycle.v1.ServerEntityEvents;
+import net.fabricmc.fabric.api.event.lifecycle.v1.ServerLifecycleEvents;
+import net.fabricmc.fabric.api.event.lifecycle.v1.ServerTickEvents;
+import net.fabricmc.fabric.api.networking.v1.ServerPlayConnectionEvents;
+
+import java.io.IOException;
+import java.nio.file.Path;
 
 public class Registries {
     public static void registerAll() {
         registerCommands();
+        registerEvents();
     }
 
     private static void registerCommands() {
         CommandRegistrationCallback.EVENT.register(BillboardCommand::register);
     }
+
+    private static void registerEvents() {
+        ServerTickEvents.END_SERVER_TICK.register(server -> {
+            ((CanvasServer) server).billboard$getCanvasManager().tick();
+            ((CanvasServer) server).billboard$getCanvasScheduler().tick();
+        });
+
+        ServerLifecycleEvents.SERVER_STARTING.register(server -> ((CanvasServer) server).billboard$getCanvasManager()
+                .beginRestore(CanvasLoader.readAll(Serializer.getSavePath(server).resolve("canvas"))));
+        ServerEntityEvents.ENTITY_LOAD.register((entity, world) -> ((CanvasServer) world.getServer()).billboard$getCanvasManager().onEntityLoad(entity));
+        ServerPlayConnectionEvents.DISCONNECT.register((handler, server) -> ((CanvasServer) server).billboard$getCanvasManager()
+                .onPlayerDisconnect(handler.getPlayer().getUuid()));
+
+        ServerLifecycleEvents.SERVER_STARTED.register(server -> {
+            long start = System.nanoTime();
+            int restored = ((CanvasServer) server).billboard$getCanvasManager().finishRestore(server);
+            Billboard.LOGGER.info("Restored {} canvases in {} ms.", restored, (System.nanoTime() - start) / 1_000_000);
+
+            Path cachePath = Serializer.getSavePath(server).resolve("cache");
+
+            try {
+                ImageRequester.setDownloadCache(new DownloadCache(cachePath.resolve("downloads"),
+                        DownloadCache.DEFAULT_MAX_SIZE, DownloadCache.DEFAULT_MAX_AGE));
+            }
+            catch (IOException e) {
+                Billboard.LOGGER.error("Failed to open the download cache: {}", e.getMessage());
+            }
+
+            try {
+                ImageProcessor.setEncodedImageCache(new EncodedImageCache(cachePath.resolve("encoded"), EncodedImageCache.DEFAULT_MAX_SIZE));
+            }
+            catch (IOException e) {
+                Billboard.LOGGER.error("Failed to open the processed image cache: {}", e.getMessage());
+            }
+
+            CanvasStatisticsEvent.register(((CanvasServer) server).billboard$getCanvasManager());
+        });
+        ServerLifecycleEvents.SERVER_STOPPED.register(server -> {
+            ((CanvasServer) server).billboard$getCanvasWriter().close();
+            ImageRequester.setDownloadCache(null);
+            ImageProcessor.setEncodedImageCache(null);
+            ImageRequester.clearDecodedImages();
+            CanvasStatisticsEvent.unregister();
+        });
+    }
 }
@@ -0,0 +1,43 @@
+package com.harismehuljic.billboard.util;
+
+import com.harismehuljic.billboard.Billboard;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Shared pool of worker threads used to decode, resize, encode and lay out images off the server thread.
+ *
+ * @implNote The workers are daemon threads running at a lower priority than the server thread, so that they never keep
+ * the server from shutting down and don't compete with it for CPU time.
+ */
+public class WorkerPool {
+    private static final int THREAD_COUNT = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() / 2));
+    private static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(THREAD_COUNT, new WorkerThreadFactory());
+
+    /**
+     * Returns the executor of the worker pool.
+     * @return The shared {@link ExecutorService} running billboard work off the server thread.
+     */
+    public static ExecutorService getExecutor() {
+        return EXECUTOR;
+    }
+
+    /**
+     * Thread factory creating named, low-priority daemon threads for the worker pool.
+     */
+    private static class WorkerThreadFactory implements ThreadFactory {
+        private final AtomicInteger threadNumber = new AtomicInteger(1);
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "Billboard Worker #" + this.threadNumber.getAndIncrement());
+            thread.setDaemon(true);
+            thread.setPriority(Thread.NORM_PRIORITY - 1);
+            thread.setUncaughtExceptionHandler((t, e) -> Billboard.LOGGER.error("Uncaught exception in {}", t.getName(), e));
+            return thread;
+        }
+    }
+}
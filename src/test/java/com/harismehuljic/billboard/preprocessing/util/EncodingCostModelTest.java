@@ -0,0 +1,142 @@
+package com.harismehuljic.billboard.preprocessing.util;
+
+import com.harismehuljic.billboard.preprocessing.PerceptualRunLengthEncodedImage;
+import com.harismehuljic.billboard.preprocessing.data.EncodingEstimate;
+import com.harismehuljic.billboard.preprocessing.data.ImageTypes;
+import com.harismehuljic.billboard.preprocessing.data.ResamplingMode;
+import com.harismehuljic.billboard.rendering.CanvasLayout;
+import com.harismehuljic.billboard.rendering.CanvasScheduler;
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests the estimates of the {@link EncodingCostModel} against the layouts of the processed images.
+ */
+class EncodingCostModelTest {
+    private static final float TOLERANCE = PerceptualRunLengthEncodedImage.DEFAULT_TOLERANCE;
+
+    /**
+     * The image types whose entity counts are documented to be exact. The others are only expected to be close.
+     */
+    private static final List<ImageTypes> EXACT_TYPES = List.of(ImageTypes.RAW, ImageTypes.RLE, ImageTypes.LOSSY,
+            ImageTypes.GLYPH, ImageTypes.HALF);
+
+    @Test
+    void estimatesEntityCounts() {
+        for (Map.Entry<String, BufferedImage> image : createImages().entrySet()) {
+            BufferedImage source = image.getValue();
+            int width = source.getWidth();
+            int height = source.getHeight();
+            int[] pixels = Resampler.resample(source, width, height, ResamplingMode.NEAREST);
+
+            for (EncodingEstimate estimate : EncodingCostModel.estimate(pixels, width, height, TOLERANCE, CanvasScheduler.DEFAULT_ENTITY_BUDGET)) {
+                CanvasLayout layout = new CanvasLayout(ImageProcessor.process(source, width, height, estimate.getType(),
+                        ResamplingMode.NEAREST, TOLERANCE, EncodingCostModel.DEFAULT_QUALITY_TARGET));
+                int regions = layout.getRegions().size();
+                String message = "Entity count of " + estimate.getType() + " for the " + image.getKey() + " image.";
+
+                if (EXACT_TYPES.contains(estimate.getType())) {
+                    assertEquals(regions, estimate.getEntityCount(), message);
+                }
+                else {
+                    assertTrue(Math.abs(regions - estimate.getEntityCount()) <= regions / 20 + 1, message);
+                }
+            }
+        }
+    }
+
+    @Test
+    void selectsLosslessTypeForZeroTarget() {
+        for (Map.Entry<String, BufferedImage> image : createImages().entrySet()) {
+            BufferedImage source = image.getValue();
+            int[] pixels = Resampler.resample(source, source.getWidth(), source.getHeight(), ResamplingMode.NEAREST);
+
+            ImageTypes type = EncodingCostModel.select(pixels, source.getWidth(), source.getHeight(), TOLERANCE, 0);
+            EncodingEstimate estimate = getEstimate(EncodingCostModel.estimate(pixels, source.getWidth(), source.getHeight(),
+                    TOLERANCE, CanvasScheduler.DEFAULT_ENTITY_BUDGET), type);
+            assertEquals(0.0F, estimate.getMeanError(), "Picked " + type + " for the " + image.getKey() + " image.");
+        }
+    }
+
+    @Test
+    void selectsCheapestEstimateWithinTarget() {
+        BufferedImage source = createImages().get("noise");
+        int[] pixels = Resampler.resample(source, source.getWidth(), source.getHeight(), ResamplingMode.NEAREST);
+        List<EncodingEstimate> estimates = EncodingCostModel.estimate(pixels, source.getWidth(), source.getHeight(),
+                TOLERANCE, CanvasScheduler.DEFAULT_ENTITY_BUDGET);
+
+        for (EncodingEstimate target : estimates) {
+            EncodingEstimate selected = EncodingCostModel.select(estimates, target.getMeanError());
+            assertTrue(selected.getMeanError() <= target.getMeanError(), "Picked " + selected.getType() + " above the target.");
+            assertTrue(selected.getEntityCount() <= target.getEntityCount(), "Picked " + selected.getType() + " over " + target.getType() + ".");
+        }
+    }
+
+    @Test
+    void rejectsNegativeTarget() {
+        int[] pixels = new int[4 * 4];
+
+        assertThrows(IllegalArgumentException.class, () -> EncodingCostModel.select(pixels, 4, 4, TOLERANCE, -0.1F));
+        assertThrows(IllegalArgumentException.class, () -> EncodingCostModel.select(List.of(), 0));
+    }
+
+    /**
+     * Returns the estimate of an image type.
+     * @param estimates The estimates of every image type.
+     * @param type The image type.
+     * @return The estimate of the image type.
+     */
+    private static EncodingEstimate getEstimate(List<EncodingEstimate> estimates, ImageTypes type) {
+        return estimates.stream().filter(estimate -> estimate.getType() == type).findFirst().orElseThrow();
+    }
+
+    /**
+     * Creates the test images, which cover uniform areas, runs longer than a packed pixel, pairs of rows with different
+     * colors, an odd height, and noise.
+     * @return The test images by name.
+     */
+    private static Map<String, BufferedImage> createImages() {
+        Random random = new Random(42);
+        int[] palette = {0x000000, 0xFF0000, 0x00FF00, 0x0000FF, 0xFFFFFF};
+
+        return Map.of(
+                "uniform", createImage(80, 16, (x, y) -> 0x336699),
+                "stripes", createImage(70, 9, (x, y) -> palette[(x / 5 + y / 2) % palette.length]),
+                "gradient", createImage(45, 13, (x, y) -> (x * 5) << 16 | (y * 19) << 8 | (x + y) % 3 * 40),
+                "noise", createImage(37, 11, (x, y) -> palette[random.nextInt(palette.length)])
+        );
+    }
+
+    /**
+     * Creates an image from the color of every pixel.
+     * @param width The width of the image.
+     * @param height The height of the image.
+     * @param colors The color of the pixel at the given position.
+     * @return The image.
+     */
+    private static BufferedImage createImage(int width, int height, PixelColors colors) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                image.setRGB(x, y, colors.getRGB(x, y));
+            }
+        }
+        return image;
+    }
+
+    /**
+     * The color of every pixel of a test image.
+     */
+    @FunctionalInterface
+    private interface PixelColors {
+        int getRGB(int x, int y);
+    }
+}
@@ -0,0 +1,104 @@
+package com.harismehuljic.billboard.preprocessing.util;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Tests the {@link ImageFetcher} against a local HTTP server.
+ */
+class ImageFetcherTest {
+    private static final byte[] BODY = "not really an image".getBytes(StandardCharsets.UTF_8);
+
+    private static HttpServer server;
+    private static ExecutorService serverExecutor;
+    private static String baseUrl;
+
+    @BeforeAll
+    static void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+
+        server.createContext("/ok", exchange -> {
+            exchange.sendResponseHeaders(200, BODY.length);
+            exchange.getResponseBody().write(BODY);
+            exchange.close();
+        });
+        server.createContext("/missing", exchange -> {
+            exchange.sendResponseHeaders(404, -1);
+            exchange.close();
+        });
+        server.createContext("/streamed", exchange -> {
+            exchange.sendResponseHeaders(200, 0);
+            byte[] chunk = new byte[1024 * 1024];
+            try (OutputStream body = exchange.getResponseBody()) {
+                for (long sent = 0; sent <= ImageFetcher.MAX_DOWNLOAD_BYTES; sent += chunk.length) {
+                    body.write(chunk);
+                }
+            }
+            catch (IOException e) {
+                // The client cancels the download once it is too large.
+            }
+            exchange.close();
+        });
+        server.createContext("/announced", exchange -> {
+            exchange.sendResponseHeaders(200, ImageFetcher.MAX_DOWNLOAD_BYTES + 1);
+            exchange.close();
+        });
+
+        serverExecutor = Executors.newCachedThreadPool();
+        server.setExecutor(serverExecutor);
+        server.start();
+        baseUrl = "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort();
+    }
+
+    @AfterAll
+    static void stopServer() {
+        server.stop(0);
+        serverExecutor.shutdownNow();
+    }
+
+    @Test
+    void fetchesBody() throws ImageFetchException {
+        assertArrayEquals(BODY, ImageFetcher.fetch(baseUrl + "/ok"));
+    }
+
+    @Test
+    void reportsUnsuccessfulStatus() {
+        ImageFetchException e = assertThrows(ImageFetchException.class, () -> ImageFetcher.fetch(baseUrl + "/missing"));
+        assertEquals(ImageFetchException.Reason.HTTP_STATUS, e.getReason());
+        assertEquals(404, e.getStatusCode());
+    }
+
+    @Test
+    void cancelsStreamedBodyPastLimit() {
+        ImageFetchException e = assertThrows(ImageFetchException.class, () -> ImageFetcher.fetch(baseUrl + "/streamed"));
+        assertEquals(ImageFetchException.Reason.TOO_LARGE, e.getReason());
+    }
+
+    @Test
+    void rejectsAnnouncedBodyPastLimit() {
+        ImageFetchException e = assertThrows(ImageFetchException.class, () -> ImageFetcher.fetch(baseUrl + "/announced"));
+        assertEquals(ImageFetchException.Reason.TOO_LARGE, e.getReason());
+    }
+
+    @Test
+    void rejectsInvalidUrls() {
+        assertEquals(ImageFetchException.Reason.INVALID_URL,
+                assertThrows(ImageFetchException.class, () -> ImageFetcher.fetch("file:///etc/passwd")).getReason());
+        assertEquals(ImageFetchException.Reason.INVALID_URL,
+                assertThrows(ImageFetchException.class, () -> ImageFetcher.fetch("not a url")).getReason());
+    }
+}
@@ -0,0 +1,153 @@
+package com.harismehuljic.billboard.rendering;
+
+import net.minecraft.Bootstrap;
+import net.minecraft.SharedConstants;
+import net.minecraft.network.listener.ClientPlayPacketListener;
+import net.minecraft.network.packet.Packet;
+import net.minecraft.network.packet.s2c.play.BundleS2CPacket;
+import net.minecraft.network.packet.s2c.play.EntitiesDestroyS2CPacket;
+import net.minecraft.network.packet.s2c.play.EntitySpawnS2CPacket;
+import net.minecraft.network.packet.s2c.play.EntityTrackerUpdateS2CPacket;
+import net.minecraft.util.math.Vec3d;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests the packets virtual canvas pixels send to the {@link PacketSink}s of their viewers.
+ */
+class CanvasViewersTest {
+    @BeforeAll
+    static void bootstrap() {
+        SharedConstants.createGameVersion();
+        Bootstrap.initialize();
+    }
+
+    @AfterEach
+    void resetBundleLimit() {
+        CanvasViewers.setBundleLimit(CanvasViewers.MAX_BUNDLE_SIZE);
+    }
+
+    @Test
+    void sendsSpawnUpdateAndDestroyPackets() {
+        CanvasViewers viewers = new CanvasViewers();
+        RecordingSink sink = new RecordingSink();
+        viewers.add(UUID.randomUUID(), sink);
+
+        CanvasPixel pixel = new CanvasPixel(new Vec3d(1, 2, 3), null, 1.0F, 0xFF0000, viewers);
+        pixel.render();
+
+        List<Packet<?>> spawned = sink.unbundled();
+        assertInstanceOf(EntitySpawnS2CPacket.class, spawned.get(0));
+        assertEquals(pixel.getEntityId(), ((EntitySpawnS2CPacket) spawned.get(0)).getEntityId());
+
+        sink.packets.clear();
+        pixel.setColor(0x00FF00);
+
+        assertEquals(1, sink.packets.size());
+        EntityTrackerUpdateS2CPacket update = assertInstanceOf(EntityTrackerUpdateS2CPacket.class, sink.packets.get(0));
+        assertEquals(pixel.getEntityId(), update.id());
+
+        sink.packets.clear();
+        pixel.destroy();
+
+        assertEquals(1, sink.packets.size());
+        EntitiesDestroyS2CPacket destroy = assertInstanceOf(EntitiesDestroyS2CPacket.class, sink.packets.get(0));
+        assertEquals(List.of(pixel.getEntityId()), destroy.getEntityIds());
+    }
+
+    @Test
+    void bundlesHeldPacketsOnRelease() {
+        CanvasViewers.setBundleLimit(3);
+        CanvasViewers viewers = new CanvasViewers();
+        RecordingSink sink = new RecordingSink();
+        viewers.add(UUID.randomUUID(), sink);
+
+        viewers.hold();
+        viewers.hold();
+        for (int id = 0; id < 7; id++) {
+            viewers.broadcast(new EntitiesDestroyS2CPacket(id));
+        }
+
+        viewers.release();
+        assertTrue(sink.packets.isEmpty(), "Packets must be held until the last hold is released.");
+
+        viewers.release();
+        assertEquals(3, sink.packets.size());
+        for (Packet<?> packet : sink.packets) {
+            if (packet instanceof BundleS2CPacket bundle) {
+                int size = 0;
+                for (Packet<?> ignored : bundle.getPackets()) {
+                    size++;
+                }
+                assertTrue(size <= CanvasViewers.getBundleLimit(), "Bundle has " + size + " packets.");
+            }
+        }
+
+        List<Integer> ids = new ArrayList<>();
+        for (Packet<?> packet : sink.unbundled()) {
+            ids.addAll(assertInstanceOf(EntitiesDestroyS2CPacket.class, packet).getEntityIds());
+        }
+        assertEquals(List.of(0, 1, 2, 3, 4, 5, 6), ids);
+    }
+
+    @Test
+    void forgottenViewerReceivesNothing() {
+        CanvasViewers viewers = new CanvasViewers();
+        UUID forgotten = UUID.randomUUID();
+        RecordingSink forgottenSink = new RecordingSink();
+        RecordingSink remainingSink = new RecordingSink();
+        viewers.add(forgotten, forgottenSink);
+        viewers.add(UUID.randomUUID(), remainingSink);
+
+        assertEquals(forgottenSink, viewers.remove(forgotten));
+
+        CanvasPixel pixel = new CanvasPixel(Vec3d.ZERO, null, 1.0F, 0xFF0000, viewers);
+        pixel.render();
+        pixel.setColor(0x0000FF);
+        pixel.destroy();
+
+        assertTrue(forgottenSink.packets.isEmpty());
+        assertFalse(remainingSink.packets.isEmpty());
+    }
+
+    /**
+     * A sink recording every packet sent to it, in place of the connection of a player.
+     */
+    private static class RecordingSink implements PacketSink {
+        private final List<Packet<?>> packets = new ArrayList<>();
+
+        @Override
+        public void sendPacket(Packet<?> packet) {
+            this.packets.add(packet);
+        }
+
+        /**
+         * Returns the recorded packets, with the packets of every bundle in place of the bundle.
+         * @return The recorded packets, in the order they were sent.
+         */
+        List<Packet<?>> unbundled() {
+            List<Packet<?>> unbundled = new ArrayList<>();
+            for (Packet<?> packet : this.packets) {
+                if (packet instanceof BundleS2CPacket bundle) {
+                    for (Packet<? super ClientPlayPacketListener> bundled : bundle.getPackets()) {
+                        unbundled.add(bundled);
+                    }
+                }
+                else {
+                    unbundled.add(packet);
+                }
+            }
+            return unbundled;
+        }
+    }
+}
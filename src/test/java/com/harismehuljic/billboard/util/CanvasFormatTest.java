@@ -0,0 +1,206 @@
+package com.harismehuljic.billboard.util;
+
+import com.harismehuljic.billboard.preprocessing.GlyphPackedImage;
+import com.harismehuljic.billboard.preprocessing.HalfBlockEncodedImage;
+import com.harismehuljic.billboard.preprocessing.Image;
+import com.harismehuljic.billboard.preprocessing.RectangleEncodedImage;
+import com.harismehuljic.billboard.preprocessing.RunLengthEncodedImage;
+import com.harismehuljic.billboard.rendering.CanvasLayout;
+import com.harismehuljic.billboard.rendering.CanvasSnapshot;
+import com.harismehuljic.billboard.rendering.PixelRegion;
+import net.minecraft.util.math.Vec3d;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests writing and reading canvases in the {@link CanvasFormat}.
+ */
+class CanvasFormatTest {
+    private static final int WIDTH = 8;
+    private static final int HEIGHT = 6;
+    private static final int[] COLORS = {0xFF0000, 0x00FF00, 0x0000FF, 0xFFFFFF};
+    private static final String WORLD_ID = "minecraft:overworld";
+
+    /**
+     * The offset of the shown detail level in the header: the magic number, version, UUID, dimensions, pixel scale,
+     * position, world, next pixel serial, proximity radius and detail distance come before it.
+     */
+    private static final int DETAIL_LEVEL_OFFSET = 4 + 4 + 16 + 4 + 4 + 4 + 24 + 2 + WORLD_ID.length() + 4 + 4 + 4;
+
+    @Test
+    void roundTripsRunLengthEncodedLayout() throws IOException {
+        assertRoundTrip(RunLengthEncodedImage::new);
+    }
+
+    @Test
+    void roundTripsRectangleEncodedLayout() throws IOException {
+        assertRoundTrip(RectangleEncodedImage::new);
+    }
+
+    @Test
+    void roundTripsGlyphPackedLayout() throws IOException {
+        CanvasSnapshot read = assertRoundTrip(GlyphPackedImage::new);
+        assertTrue(read.getLayout().getRegions().stream().anyMatch(PixelRegion::isPacked), "No packed region was read.");
+    }
+
+    @Test
+    void roundTripsHalfBlockLayout() throws IOException {
+        CanvasSnapshot read = assertRoundTrip(HalfBlockEncodedImage::new);
+        assertTrue(read.getLayout().getRegions().stream().anyMatch(PixelRegion::isHalfBlock), "No half-block region was read.");
+    }
+
+    @Test
+    void rejectsBadMagic() throws IOException {
+        byte[] saved = write(createSnapshot(RunLengthEncodedImage::new));
+        ByteBuffer.wrap(saved).putInt(0, 0x12345678);
+
+        assertThrows(IOException.class, () -> CanvasFormat.read(new ByteArrayInputStream(saved)));
+    }
+
+    @Test
+    void rejectsBadVersion() throws IOException {
+        byte[] saved = write(createSnapshot(RunLengthEncodedImage::new));
+        ByteBuffer.wrap(saved).putInt(4, 99);
+
+        assertThrows(IOException.class, () -> CanvasFormat.read(new ByteArrayInputStream(saved)));
+    }
+
+    @Test
+    void rejectsInvalidDetailLevel() throws IOException {
+        byte[] saved = write(createSnapshot(RunLengthEncodedImage::new));
+        assertEquals(1, ByteBuffer.wrap(saved).getInt(DETAIL_LEVEL_OFFSET));
+        ByteBuffer.wrap(saved).putInt(DETAIL_LEVEL_OFFSET, 3);
+
+        assertThrows(IOException.class, () -> CanvasFormat.read(new ByteArrayInputStream(saved)));
+    }
+
+    /**
+     * Writes and reads a snapshot laid out by the given encoding, and checks that nothing changed.
+     * @param encoding The constructor of the image the layouts are created from.
+     * @return The snapshot that was read.
+     * @throws IOException If the snapshot can't be written or read.
+     */
+    private static CanvasSnapshot assertRoundTrip(Encoding encoding) throws IOException {
+        CanvasSnapshot snapshot = createSnapshot(encoding);
+        CanvasSnapshot read = CanvasFormat.read(new ByteArrayInputStream(write(snapshot)));
+
+        assertEquals(snapshot.getUUID(), read.getUUID());
+        assertEquals(snapshot.getWidth(), read.getWidth());
+        assertEquals(snapshot.getHeight(), read.getHeight());
+        assertEquals(snapshot.getPixelScale(), read.getPixelScale());
+        assertEquals(snapshot.getPos(), read.getPos());
+        assertEquals(snapshot.getWorldId(), read.getWorldId());
+        assertEquals(snapshot.getNextPixelSerial(), read.getNextPixelSerial());
+        assertEquals(snapshot.getProximityRadius(), read.getProximityRadius());
+        assertEquals(snapshot.getDetailDistance(), read.getDetailDistance());
+        assertEquals(snapshot.getDetailLevel(), read.getDetailLevel());
+        assertEquals(snapshot.isVirtual(), read.isVirtual());
+        assertEquals(snapshot.getCreationTime(), read.getCreationTime());
+        assertEquals(snapshot.getOwner(), read.getOwner());
+
+        assertSameLayout(snapshot.getLayout(), read.getLayout());
+        assertEquals(snapshot.getDetailLevels().size(), read.getDetailLevels().size());
+        for (int level = 0; level < snapshot.getDetailLevels().size(); level++) {
+            assertSameLayout(snapshot.getDetailLevels().get(level), read.getDetailLevels().get(level));
+        }
+
+        List<PixelRegion> shown = snapshot.getDetailLevels().get(snapshot.getDetailLevel() - 1).getRegions();
+        for (int i = 0; i < shown.size(); i++) {
+            assertEquals(snapshot.getPixelSerial(i), read.getPixelSerial(i));
+        }
+
+        return read;
+    }
+
+    /**
+     * Checks that two layouts have the same regions, in the same order.
+     * @param expected The layout that was written.
+     * @param actual The layout that was read.
+     */
+    private static void assertSameLayout(CanvasLayout expected, CanvasLayout actual) {
+        assertEquals(expected.getWidth(), actual.getWidth());
+        assertEquals(expected.getHeight(), actual.getHeight());
+        assertEquals(expected.getRegions().size(), actual.getRegions().size());
+
+        for (int i = 0; i < expected.getRegions().size(); i++) {
+            PixelRegion region = expected.getRegions().get(i);
+            PixelRegion other = actual.getRegions().get(i);
+            assertArrayEquals(new int[]{region.getX(), region.getY(), region.getWidth(), region.getHeight()},
+                    new int[]{other.getX(), other.getY(), other.getWidth(), other.getHeight()}, "Region " + i + " moved.");
+            assertEquals(region.isPacked(), other.isPacked());
+            assertEquals(region.isHalfBlock(), other.isHalfBlock());
+            assertTrue(region.hasSameColors(other), "Region " + i + " changed colors.");
+        }
+    }
+
+    /**
+     * Creates a snapshot with an owner and two coarser detail levels, showing the first of them.
+     * @param encoding The constructor of the image the layouts are created from.
+     * @return The snapshot.
+     */
+    private static CanvasSnapshot createSnapshot(Encoding encoding) {
+        CanvasLayout layout = new CanvasLayout(encoding.encode(WIDTH, HEIGHT, createPixels(WIDTH, HEIGHT)));
+        List<CanvasLayout> detailLevels = List.of(
+                new CanvasLayout(encoding.encode(WIDTH / 2, HEIGHT / 2, createPixels(WIDTH / 2, HEIGHT / 2))),
+                new CanvasLayout(encoding.encode(WIDTH / 4, HEIGHT / 4, createPixels(WIDTH / 4, HEIGHT / 4))));
+
+        int[] pixelSerials = new int[detailLevels.get(0).getRegions().size()];
+        for (int i = 0; i < pixelSerials.length; i++) {
+            pixelSerials[i] = 100 + i * 3;
+        }
+
+        return new CanvasSnapshot(new UUID(1, 2), WIDTH, HEIGHT, 0.5F, new Vec3d(10.5, 64, -3.25), WORLD_ID,
+                layout, detailLevels, 1, 32.0F, pixelSerials, 1000, 48.0F, true, 1234567890L, new UUID(3, 4));
+    }
+
+    /**
+     * Creates the pixels of a test image of the given size, with uniform, striped and mixed rows.
+     * @param width The width of the image.
+     * @param height The height of the image.
+     * @return The pixels, row by row.
+     */
+    private static int[] createPixels(int width, int height) {
+        int[] pixels = new int[width * height];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                pixels[y * width + x] = switch (y % 3) {
+                    case 0 -> COLORS[y % COLORS.length];
+                    case 1 -> COLORS[(x / 2) % COLORS.length];
+                    default -> COLORS[(x * x + y) % COLORS.length];
+                };
+            }
+        }
+        return pixels;
+    }
+
+    /**
+     * Writes a snapshot to a byte array.
+     * @param snapshot The snapshot to write.
+     * @return The written bytes.
+     * @throws IOException If the snapshot can't be written.
+     */
+    private static byte[] write(CanvasSnapshot snapshot) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        CanvasFormat.write(snapshot, output);
+        return output.toByteArray();
+    }
+
+    /**
+     * The constructor of an encoded image from its pixels.
+     */
+    @FunctionalInterface
+    private interface Encoding {
+        Image encode(int width, int height, int[] pixels);
+    }
+}